@@ -25,10 +25,20 @@ android {
             )
         }
     }
+    androidResources {
+        // Puzzle packs and endgame tablebases are memory-mapped straight out of the APK
+        noCompress += listOf("rvpk", "rveg")
+    }
     compileOptions {
         sourceCompatibility = JavaVersion.VERSION_11
         targetCompatibility = JavaVersion.VERSION_11
     }
+    testOptions {
+        unitTests {
+            // Robolectric inflates the real layouts, menus and assets
+            isIncludeAndroidResources = true
+        }
+    }
 }
 
 dependencies {
@@ -38,7 +48,10 @@ dependencies {
     implementation(libs.activity)
     implementation(libs.constraintlayout)
     implementation(libs.core.splashscreen)
+    implementation(libs.recyclerview)
     testImplementation(libs.junit)
+    testImplementation(libs.robolectric)
+    testImplementation(libs.test.core)
     androidTestImplementation(libs.ext.junit)
     androidTestImplementation(libs.espresso.core)
 }
\ No newline at end of file
@@ -0,0 +1,583 @@
+package edu.commonwealthu.hw3_wight;
+
+import androidx.annotation.NonNull;
+
+import java.util.Locale;
+
+/**
+ * Finds shortest move sequences with a breadth-first search that grows one
+ * frontier from the board and one from the solved board until they meet. A
+ * board d moves from solved is found after visiting roughly twice the boards
+ * within d / 2 of either end, instead of everything within d, which is what
+ * makes mid-size boards such as 3x4 practical.
+ * <p>
+ * Boards are stored as packed longs in primitive open-addressed tables, each
+ * with the move that reached it, so the path is read back from the meeting
+ * board without any per-board objects. The frontier around solved depends
+ * only on the grid, so it is kept between searches and grows as needed.
+ * <p>
+ * Memory is capped: the frontier around solved may use at most half of the
+ * cap, and if the two together would exceed it the search is abandoned and
+ * the board is solved with {@link PuzzleSolver}'s iterative-deepening A*
+ * instead. Either way the result is optimal. Like {@link PuzzleSolver}, a
+ * search can be bounded by depth or deadline or cancelled from another
+ * thread, and statistics about the last search are available afterwards.
+ * Instances are not thread-safe; use one solver per worker thread.
+ *
+ * @author Ethan Wight
+ */
+public class BidirectionalSolver {
+
+    private static final int DEADLINE_CHECK_INTERVAL = 4096;
+    private static final int INITIAL_CAPACITY = 1 << 10;
+    // Values in the tables: the move that reached a board, or this for the root
+    private static final byte ROOT = -1;
+
+    private enum Outcome { FOUND, EXHAUSTED, OVER_CAP, ABORTED }
+
+    private final MoveTable moves;
+    private final int moveCount;
+    private final long memoryCapBytes;
+    private final PuzzleSolver fallback;
+
+    // Kept between searches: every board within backwardDepth of solved
+    private final StateTable backward = new StateTable();
+    private long[] backwardFrontier = new long[INITIAL_CAPACITY];
+    private int backwardFrontierSize;
+    private int backwardDepth;
+
+    private final StateTable forward = new StateTable();
+    private long[] forwardFrontier = new long[INITIAL_CAPACITY];
+    private int forwardFrontierSize;
+    private int forwardDepth;
+    private long[] next = new long[INITIAL_CAPACITY];
+    private int nextSize;
+
+    private volatile boolean cancelled;
+    private boolean hasDeadline;
+    private long deadlineNanos;
+    private long expansions;
+    private long meeting;
+    private boolean timedOut;
+    private boolean usedFallback;
+    private int forwardStates;
+    private long elapsedNanos;
+    private long peakBytes;
+
+    /**
+     * Constructs a solver for classic boards of the given size.
+     *
+     * @param rows           The number of rows.
+     * @param cols           The number of columns.
+     * @param memoryCapBytes The most memory the two frontiers may use together.
+     */
+    public BidirectionalSolver(int rows, int cols, long memoryCapBytes) {
+        this(PuzzleVariant.CLASSIC.table(rows, cols), memoryCapBytes);
+    }
+
+    /**
+     * Constructs a solver for boards played with the given moves.
+     *
+     * @param moves          The moves of the variant being played.
+     * @param memoryCapBytes The most memory the two frontiers may use together.
+     */
+    public BidirectionalSolver(MoveTable moves, long memoryCapBytes) {
+        this.moves = moves;
+        this.moveCount = moves.moveCount();
+        this.memoryCapBytes = memoryCapBytes;
+        this.fallback = new PuzzleSolver(moves);
+        resetBackward();
+    }
+
+    /**
+     * Grows the frontier around solved as far as half the memory cap allows,
+     * so later searches start from it. Stops early if cancelled.
+     */
+    public void prepare() {
+        hasDeadline = false;
+        while (backwardFrontierSize > 0 && backwardLevelFits()) {
+            if (expandBackward() == Outcome.ABORTED) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * Finds an optimal solution no longer than maxDepth, with no time limit.
+     *
+     * @param board    The packed board to solve.
+     * @param maxDepth The longest solution to consider.
+     * @return The encoded moves of an optimal solution, or null if none exists
+     *         within maxDepth or the search was cancelled.
+     */
+    public int[] solve(long board, int maxDepth) {
+        return solve(board, maxDepth, 0L, false);
+    }
+
+    /**
+     * Finds an optimal solution no longer than maxDepth before a deadline.
+     *
+     * @param board         The packed board to solve.
+     * @param maxDepth      The longest solution to consider.
+     * @param deadlineNanos The {@link System#nanoTime()} value at which to give up.
+     * @return The encoded moves of an optimal solution, or null if none was found.
+     */
+    public int[] solve(long board, int maxDepth, long deadlineNanos) {
+        return solve(board, maxDepth, deadlineNanos, true);
+    }
+
+    private int[] solve(long board, int maxDepth, long deadlineNanos, boolean hasDeadline) {
+        long start = System.nanoTime();
+        this.hasDeadline = hasDeadline;
+        this.deadlineNanos = deadlineNanos;
+        this.expansions = 0;
+        this.timedOut = false;
+        this.usedFallback = false;
+        this.peakBytes = 0;
+
+        int[] solution = null;
+        Outcome outcome = search(board, maxDepth);
+        if (outcome == Outcome.FOUND) {
+            solution = path(meeting);
+        }
+        forwardStates = forward.size();
+        releaseForward();
+        if (outcome == Outcome.OVER_CAP) {
+            usedFallback = true;
+            fallback.reset();
+            solution = hasDeadline
+                    ? fallback.solve(board, maxDepth, deadlineNanos)
+                    : fallback.solve(board, maxDepth);
+            timedOut = fallback.isTimedOut();
+        }
+        elapsedNanos = System.nanoTime() - start;
+        return solution;
+    }
+
+    /**
+     * Grows the frontiers, each a whole level at a time, until they meet.
+     * The frontier around solved is only ever grown by complete levels, so it
+     * can be reused by the next search.
+     */
+    private Outcome search(long board, int maxDepth) {
+        if (backward.get(board) != StateTable.ABSENT) {
+            meeting = board;
+            return backward.depthOf(board, moves) <= maxDepth ? Outcome.FOUND : Outcome.EXHAUSTED;
+        }
+        forward.put(board, ROOT);
+        forwardFrontier[0] = board;
+        forwardFrontierSize = 1;
+        forwardDepth = 0;
+        trackMemory();
+
+        // Neither table holds a board of the other, so the distance is more
+        // than forwardDepth + backwardDepth; the first meeting found while
+        // extending either by one level is therefore a shortest path.
+        while (forwardDepth + backwardDepth < maxDepth) {
+            Outcome outcome;
+            if (backwardFrontierSize < forwardFrontierSize && backwardLevelFits()) {
+                outcome = expandBackward();
+            } else {
+                outcome = expandForward();
+            }
+            if (outcome != null) {
+                return outcome;
+            }
+            if (forwardFrontierSize == 0 || backwardFrontierSize == 0) {
+                return Outcome.EXHAUSTED;
+            }
+        }
+        return Outcome.EXHAUSTED;
+    }
+
+    /**
+     * Expands the frontier around the board by one level, stopping at the
+     * first board that the other frontier has reached.
+     *
+     * @return The outcome if the search is over, or null to keep going.
+     */
+    private Outcome expandForward() {
+        nextSize = 0;
+        for (int i = 0; i < forwardFrontierSize; i++) {
+            long board = forwardFrontier[i];
+            if (isInterrupted()) {
+                return Outcome.ABORTED;
+            }
+            for (int move = 0; move < moveCount; move++) {
+                long neighbor = moves.apply(board, move);
+                if (forward.get(neighbor) != StateTable.ABSENT) {
+                    continue;
+                }
+                if (!reserve(forward, backward, memoryCapBytes)) {
+                    return Outcome.OVER_CAP;
+                }
+                forward.put(neighbor, (byte) move);
+                if (backward.get(neighbor) != StateTable.ABSENT) {
+                    meeting = neighbor;
+                    return Outcome.FOUND;
+                }
+                addNext(neighbor);
+            }
+        }
+        long[] swap = forwardFrontier;
+        forwardFrontier = next;
+        forwardFrontierSize = nextSize;
+        next = swap;
+        forwardDepth++;
+        return null;
+    }
+
+    /**
+     * Expands the frontier around solved by one whole level, noting the
+     * first board that the other frontier has reached. An interrupted level
+     * would leave the table incomplete, so the boards it added are removed.
+     *
+     * @return The outcome if the search is over, or null to keep going.
+     */
+    private Outcome expandBackward() {
+        nextSize = 0;
+        long found = 0L;
+        for (int i = 0; i < backwardFrontierSize; i++) {
+            long board = backwardFrontier[i];
+            if (isInterrupted()) {
+                for (int j = 0; j < nextSize; j++) {
+                    backward.remove(next[j]);
+                }
+                return Outcome.ABORTED;
+            }
+            for (int move = 0; move < moveCount; move++) {
+                long neighbor = moves.apply(board, move);
+                if (backward.get(neighbor) != StateTable.ABSENT) {
+                    continue;
+                }
+                // Sized up front by backwardLevelFits(), so this cannot fail
+                reserve(backward, forward, Long.MAX_VALUE);
+                backward.put(neighbor, (byte) move);
+                addNext(neighbor);
+                if (found == 0L && forward.get(neighbor) != StateTable.ABSENT) {
+                    found = neighbor;
+                }
+            }
+        }
+        long[] swap = backwardFrontier;
+        backwardFrontier = next;
+        backwardFrontierSize = nextSize;
+        next = swap;
+        backwardDepth++;
+        if (found != 0L) {
+            meeting = found;
+            return Outcome.FOUND;
+        }
+        return null;
+    }
+
+    /**
+     * Checks whether the next level around solved is sure to stay within
+     * half the cap, assuming every move from the frontier reaches a new board.
+     */
+    private boolean backwardLevelFits() {
+        long newBoards = (long) backwardFrontierSize * (moveCount - 1);
+        long entries = backward.size() + newBoards;
+        long bytes = StateTable.bytesFor(entries) + 8 * (backwardFrontier.length + newBoards);
+        return bytes <= memoryCapBytes / 2;
+    }
+
+    /**
+     * Makes room for one more board in a table, unless doing so would take
+     * the memory in use past the limit.
+     */
+    private boolean reserve(StateTable table, StateTable other, long limit) {
+        if (!table.isFull()) {
+            return true;
+        }
+        long after = table.bytesWhenGrown() + other.bytes() + frontierBytes();
+        if (after > limit) {
+            return false;
+        }
+        table.grow();
+        trackMemory();
+        return true;
+    }
+
+    private void addNext(long board) {
+        if (nextSize == next.length) {
+            long[] grown = new long[next.length * 2];
+            System.arraycopy(next, 0, grown, 0, nextSize);
+            next = grown;
+            trackMemory();
+        }
+        next[nextSize++] = board;
+    }
+
+    private long frontierBytes() {
+        return 8L * (forwardFrontier.length + backwardFrontier.length + next.length);
+    }
+
+    private void trackMemory() {
+        peakBytes = Math.max(peakBytes, forward.bytes() + backward.bytes() + frontierBytes());
+    }
+
+    private boolean isInterrupted() {
+        if ((++expansions % DEADLINE_CHECK_INTERVAL) != 0) {
+            return false;
+        }
+        if (cancelled) {
+            return true;
+        }
+        if (hasDeadline && System.nanoTime() - deadlineNanos > 0) {
+            timedOut = true;
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Reads the solution back from the meeting board: the moves that reached
+     * it from the board, then the inverses of the moves that reached it from solved.
+     */
+    private int[] path(long meetingBoard) {
+        int head = forward.get(meetingBoard) == StateTable.ABSENT ? 0
+                : forward.depthOf(meetingBoard, moves);
+        int[] solution = new int[head + backward.depthOf(meetingBoard, moves)];
+        long board = meetingBoard;
+        for (int i = head - 1; i >= 0; i--) {
+            int move = forward.get(board);
+            solution[i] = move;
+            board = moves.apply(board, moves.inverse(move));
+        }
+        board = meetingBoard;
+        for (int i = head; i < solution.length; i++) {
+            int move = moves.inverse(backward.get(board));
+            solution[i] = move;
+            board = moves.apply(board, move);
+        }
+        return solution;
+    }
+
+    private void resetBackward() {
+        backward.release();
+        backwardFrontier = new long[INITIAL_CAPACITY];
+        backward.put(moves.solved(), ROOT);
+        backwardFrontier[0] = moves.solved();
+        backwardFrontierSize = 1;
+        backwardDepth = 0;
+    }
+
+    /**
+     * Drops the frontier around the board after a search, so its memory is
+     * not held between searches or during a fallback.
+     */
+    private void releaseForward() {
+        forward.release();
+        forwardFrontier = new long[INITIAL_CAPACITY];
+        next = new long[INITIAL_CAPACITY];
+        forwardFrontierSize = 0;
+    }
+
+    /**
+     * Requests that any search in progress stop as soon as possible.
+     * The flag stays set until {@link #reset()} is called.
+     */
+    public void cancel() {
+        cancelled = true;
+        fallback.cancel();
+    }
+
+    /**
+     * Clears a previous cancellation so the solver can be reused.
+     */
+    public void reset() {
+        cancelled = false;
+        fallback.reset();
+    }
+
+    /**
+     * Returns whether the last search stopped because its deadline passed.
+     */
+    public boolean isTimedOut() {
+        return timedOut;
+    }
+
+    /**
+     * Returns whether the last search hit the memory cap and was finished by
+     * {@link PuzzleSolver} instead.
+     */
+    public boolean usedFallback() {
+        return usedFallback;
+    }
+
+    /**
+     * Returns the number of boards the last search reached from the board itself.
+     */
+    public int getForwardStates() {
+        return forwardStates;
+    }
+
+    /**
+     * Returns the number of boards currently known around solved.
+     */
+    public int getBackwardStates() {
+        return backward.size();
+    }
+
+    /**
+     * Returns how deep the frontier around solved currently reaches.
+     */
+    public int getBackwardDepth() {
+        return backwardDepth;
+    }
+
+    /**
+     * Returns the wall time of the last search, including any fallback.
+     */
+    public long getElapsedNanos() {
+        return elapsedNanos;
+    }
+
+    /**
+     * Returns the most memory the frontiers held during the last search.
+     */
+    public long getPeakBytes() {
+        return peakBytes;
+    }
+
+    /**
+     * Describes the last search on one line, for logs.
+     */
+    @NonNull
+    @Override
+    public String toString() {
+        return String.format(Locale.US,
+                "BidirectionalSolver{%s, forward %d, backward %d (depth %d), peak %.1f MB, %.1f ms}",
+                usedFallback ? "fallback" : timedOut ? "timed out" : "bidirectional",
+                getForwardStates(), getBackwardStates(), backwardDepth,
+                peakBytes / (1024.0 * 1024.0), elapsedNanos / 1e6);
+    }
+
+    /**
+     * An open-addressed hash table from packed boards to the move that
+     * reached them, with linear probing. Zero marks an empty slot; no
+     * board of two or more tiles packs to zero.
+     */
+    private static final class StateTable {
+
+        static final int ABSENT = -2;
+
+        private long[] keys = new long[INITIAL_CAPACITY];
+        private byte[] values = new byte[INITIAL_CAPACITY];
+        private int size;
+
+        int get(long key) {
+            int mask = keys.length - 1;
+            for (int i = slot(key, mask); ; i = (i + 1) & mask) {
+                long k = keys[i];
+                if (k == key) {
+                    return values[i];
+                }
+                if (k == 0L) {
+                    return ABSENT;
+                }
+            }
+        }
+
+        /**
+         * Adds a board known to be absent. Call {@link #grow()} first when full.
+         */
+        void put(long key, byte value) {
+            int mask = keys.length - 1;
+            int i = slot(key, mask);
+            while (keys[i] != 0L) {
+                i = (i + 1) & mask;
+            }
+            keys[i] = key;
+            values[i] = value;
+            size++;
+        }
+
+        /**
+         * Removes a board, moving later entries of its probe run back so
+         * every remaining board can still be found.
+         */
+        void remove(long key) {
+            int mask = keys.length - 1;
+            int hole = slot(key, mask);
+            while (keys[hole] != key) {
+                hole = (hole + 1) & mask;
+            }
+            for (int i = (hole + 1) & mask; keys[i] != 0L; i = (i + 1) & mask) {
+                int home = slot(keys[i], mask);
+                // Entries whose home lies cyclically after the hole must stay put
+                boolean stays = hole <= i ? hole < home && home <= i : hole < home || home <= i;
+                if (!stays) {
+                    keys[hole] = keys[i];
+                    values[hole] = values[i];
+                    hole = i;
+                }
+            }
+            keys[hole] = 0L;
+            size--;
+        }
+
+        /**
+         * Counts the moves back to the root, following the recorded moves.
+         */
+        int depthOf(long key, MoveTable moves) {
+            int depth = 0;
+            for (int move = get(key); move != ROOT; move = get(key)) {
+                key = moves.apply(key, moves.inverse(move));
+                depth++;
+            }
+            return depth;
+        }
+
+        boolean isFull() {
+            // Kept at most half full so probes stay short
+            return 2 * (size + 1) > keys.length;
+        }
+
+        void grow() {
+            long[] oldKeys = keys;
+            byte[] oldValues = values;
+            keys = new long[oldKeys.length * 2];
+            values = new byte[oldKeys.length * 2];
+            size = 0;
+            for (int i = 0; i < oldKeys.length; i++) {
+                if (oldKeys[i] != 0L) {
+                    put(oldKeys[i], oldValues[i]);
+                }
+            }
+        }
+
+        void release() {
+            keys = new long[INITIAL_CAPACITY];
+            values = new byte[INITIAL_CAPACITY];
+            size = 0;
+        }
+
+        int size() {
+            return size;
+        }
+
+        long bytes() {
+            return 9L * keys.length;
+        }
+
+        long bytesWhenGrown() {
+            // The old arrays are still live while the new ones fill
+            return 27L * keys.length;
+        }
+
+        static long bytesFor(long entries) {
+            long capacity = INITIAL_CAPACITY;
+            while (capacity < 2 * entries) {
+                capacity *= 2;
+            }
+            return 9L * capacity;
+        }
+
+        private static int slot(long key, int mask) {
+            long h = key * 0x9E3779B97F4A7C15L;
+            return (int) (h >>> 32) & mask;
+        }
+    }
+}
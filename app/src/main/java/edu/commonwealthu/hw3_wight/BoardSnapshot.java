@@ -0,0 +1,92 @@
+package edu.commonwealthu.hw3_wight;
+
+import androidx.annotation.NonNull;
+
+/**
+ * An immutable view of a {@link Revolution} board at one point in time. The
+ * tiles are held as a single packed long (see {@link PackedBoard}), so a
+ * snapshot is a few words and never shares mutable state with the game.
+ * {@link Revolution} publishes a new snapshot after every change with one
+ * volatile write; any thread can read it without locking and will always see
+ * a complete, consistent board.
+ *
+ * @author Ethan Wight
+ */
+public final class BoardSnapshot {
+
+    private final int rows;
+    private final int cols;
+    private final long board;
+    private final long version;
+
+    BoardSnapshot(int rows, int cols, long board, long version) {
+        this.rows = rows;
+        this.cols = cols;
+        this.board = board;
+        this.version = version;
+    }
+
+    /**
+     * Returns the snapshot that follows this one once the board has changed
+     * to the given tiles, without touching this one.
+     */
+    BoardSnapshot next(long board) {
+        return new BoardSnapshot(rows, cols, board, version + 1);
+    }
+
+    public int getRows() {
+        return rows;
+    }
+
+    public int getCols() {
+        return cols;
+    }
+
+    /**
+     * Returns the packed tiles (see {@link PackedBoard}).
+     */
+    public long getPackedBoard() {
+        return board;
+    }
+
+    /**
+     * Returns how many changes the game had seen when this snapshot was taken.
+     * Later snapshots of the same game always have larger versions.
+     */
+    public long getVersion() {
+        return version;
+    }
+
+    /**
+     * Returns the tile value (1 to rows * cols) at a position.
+     *
+     * @param row The row.
+     * @param col The column.
+     */
+    public int getTile(int row, int col) {
+        return PackedBoard.tileAt(board, row * cols + col) + 1;
+    }
+
+    /**
+     * Copies the tiles into an existing grid without allocating.
+     *
+     * @param destination A rows x cols array to receive the tiles.
+     */
+    public void copyInto(int[][] destination) {
+        PackedBoard.unpackInto(board, destination);
+    }
+
+    /**
+     * Checks whether this board is solved.
+     */
+    public boolean isSolved() {
+        return board == PackedBoard.solved(rows, cols);
+    }
+
+    @NonNull
+    @Override
+    public String toString() {
+        return "BoardSnapshot{" + rows + "x" + cols + ", v" + version
+                + ", " + Long.toHexString(board) + "}";
+    }
+}
@@ -0,0 +1,220 @@
+package edu.commonwealthu.hw3_wight;
+
+/**
+ * Maps packed boards (see {@link PackedBoard}) to a canonical representative
+ * under the symmetries of the grid: the two mirrors and the half turn, plus
+ * the transpose and quarter turns on square grids.
+ * <p>
+ * A symmetry moves every tile and relabels it by where its home square
+ * moves, which keeps the solved board solved. Rotating a 2x2 block maps to
+ * rotating the image block, in the opposite direction under a mirror, so a
+ * board and all of its images are the same distance from solved. Tables and
+ * caches keyed by {@link #canonical(long)} therefore store each group of
+ * equivalent boards once; {@link #transformMove(int, int)} carries moves
+ * between a board and its canonical form.
+ * <p>
+ * Transforms are table-driven: one lookup per pair of tiles, indexed by
+ * symmetry, position and the two tiles. Instances are immutable and safe to share between threads.
+ *
+ * @author Ethan Wight
+ */
+public final class BoardSymmetry {
+
+    /** The identity, present for every grid. */
+    public static final int IDENTITY = 0;
+
+    private final int rows;
+    private final int cols;
+    private final int tiles;
+    private final int count;
+    // contributions[(s * bytes + i) * 256 + b]: where byte i of a board, holding the
+    // two tiles b, lands under symmetry s; a transform ORs one entry per byte
+    private final long[] contributions;
+    private final int bytes;
+    private final int[][] moveMaps;
+    private final int[] inverses;
+
+    /**
+     * Builds the symmetry tables for one grid size.
+     *
+     * @param rows The number of rows.
+     * @param cols The number of columns.
+     */
+    public BoardSymmetry(int rows, int cols) {
+        if (rows * cols > PackedBoard.MAX_TILES) {
+            throw new IllegalArgumentException("Board too large to pack: " + rows + "x" + cols);
+        }
+        this.rows = rows;
+        this.cols = cols;
+        this.tiles = rows * cols;
+        this.count = rows == cols ? 8 : 4;
+
+        int[][] positionMaps = new int[count][tiles];
+        for (int s = 0; s < count; s++) {
+            for (int r = 0; r < rows; r++) {
+                for (int c = 0; c < cols; c++) {
+                    positionMaps[s][r * cols + c] = map(s, r, c);
+                }
+            }
+        }
+
+        bytes = (tiles + 1) / 2;
+        contributions = new long[count * bytes * 256];
+        for (int s = 0; s < count; s++) {
+            for (int i = 0; i < bytes; i++) {
+                for (int b = 0; b < 256; b++) {
+                    long entry = 0;
+                    for (int half = 0; half < 2; half++) {
+                        int p = 2 * i + half;
+                        int t = (b >>> (4 * half)) & 0xF;
+                        if (p < tiles && t < tiles) {
+                            entry |= ((long) positionMaps[s][t]) << (4 * positionMaps[s][p]);
+                        }
+                    }
+                    contributions[(s * bytes + i) * 256 + b] = entry;
+                }
+            }
+        }
+
+        inverses = new int[count];
+        for (int s = 0; s < count; s++) {
+            for (int candidate = 0; candidate < count; candidate++) {
+                boolean undoes = true;
+                for (int p = 0; p < tiles && undoes; p++) {
+                    undoes = positionMaps[candidate][positionMaps[s][p]] == p;
+                }
+                if (undoes) {
+                    inverses[s] = candidate;
+                    break;
+                }
+            }
+        }
+
+        // Each move's image is the move that commutes with the transform;
+        // found once by trying every candidate on a board with distinct tiles
+        int moveCount = PackedBoard.moveCount(rows, cols);
+        long probe = PackedBoard.solved(rows, cols);
+        moveMaps = new int[count][moveCount];
+        for (int s = 0; s < count; s++) {
+            long image = transform(probe, s);
+            for (int move = 0; move < moveCount; move++) {
+                long expected = transform(PackedBoard.applyMove(probe, cols, move), s);
+                for (int candidate = 0; candidate < moveCount; candidate++) {
+                    if (PackedBoard.applyMove(image, cols, candidate) == expected) {
+                        moveMaps[s][move] = candidate;
+                        break;
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Returns where a cell lands under a symmetry, as a flat position.
+     * Symmetries 0-3 (identity, column mirror, row mirror, half turn) exist for
+     * every grid; 4-7 (transpose, anti-transpose, quarter turns) only for square ones.
+     */
+    private int map(int symmetry, int r, int c) {
+        int lastRow = rows - 1;
+        int lastCol = cols - 1;
+        switch (symmetry) {
+            case 0: return r * cols + c;
+            case 1: return r * cols + (lastCol - c);
+            case 2: return (lastRow - r) * cols + c;
+            case 3: return (lastRow - r) * cols + (lastCol - c);
+            case 4: return c * cols + r;
+            case 5: return (lastCol - c) * cols + (lastRow - r);
+            case 6: return c * cols + (lastRow - r);
+            default: return (lastCol - c) * cols + r;
+        }
+    }
+
+    /**
+     * Returns the number of symmetries: 8 for square grids, 4 otherwise.
+     */
+    public int size() {
+        return count;
+    }
+
+    /**
+     * Applies a symmetry to a board.
+     *
+     * @param board    A packed board of this size.
+     * @param symmetry A symmetry index below {@link #size()}.
+     * @return The transformed board; solved if and only if the input is.
+     */
+    public long transform(long board, int symmetry) {
+        long result = 0;
+        int base = symmetry * bytes * 256;
+        for (int i = 0; i < bytes; i++, base += 256) {
+            result |= contributions[base + (int) ((board >>> (8 * i)) & 0xFF)];
+        }
+        return result;
+    }
+
+    /**
+     * Returns the symmetry that maps a board to its canonical form, the
+     * smallest (unsigned) of all its images.
+     *
+     * @param board A packed board of this size.
+     * @return A symmetry index below {@link #size()}.
+     */
+    public int canonicalSymmetry(long board) {
+        int best = IDENTITY;
+        long bestBoard = board;
+        for (int s = 1; s < count; s++) {
+            long image = transform(board, s);
+            if (Long.compareUnsigned(image, bestBoard) < 0) {
+                bestBoard = image;
+                best = s;
+            }
+        }
+        return best;
+    }
+
+    /**
+     * Returns the canonical form of a board; equivalent boards share it.
+     *
+     * @param board A packed board of this size.
+     * @return The canonical board.
+     */
+    public long canonical(long board) {
+        long best = board;
+        for (int s = 1; s < count; s++) {
+            long image = transform(board, s);
+            if (Long.compareUnsigned(image, best) < 0) {
+                best = image;
+            }
+        }
+        return best;
+    }
+
+    /**
+     * Maps a move on a board to the corresponding move on its transformed board.
+     *
+     * @param move     An encoded move (see {@link PackedBoard}).
+     * @param symmetry A symmetry index below {@link #size()}.
+     * @return The encoded move after the transform.
+     */
+    public int transformMove(int move, int symmetry) {
+        return moveMaps[symmetry][move];
+    }
+
+    /**
+     * Returns the symmetry that undoes another.
+     *
+     * @param symmetry A symmetry index below {@link #size()}.
+     * @return Its inverse.
+     */
+    public int inverse(int symmetry) {
+        return inverses[symmetry];
+    }
+
+    public int getRows() {
+        return rows;
+    }
+
+    public int getCols() {
+        return cols;
+    }
+}
@@ -0,0 +1,746 @@
+package edu.commonwealthu.hw3_wight;
+
+import android.animation.Animator;
+import android.animation.AnimatorListenerAdapter;
+import android.animation.ValueAnimator;
+import android.content.Context;
+import android.graphics.Canvas;
+import android.graphics.Color;
+import android.graphics.Paint;
+import android.graphics.RectF;
+import android.os.SystemClock;
+import android.util.AttributeSet;
+import android.util.Log;
+import android.view.MotionEvent;
+import android.view.View;
+import android.view.ViewConfiguration;
+import android.view.animation.DecelerateInterpolator;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+/**
+ * Draws the whole Revolution board on a single canvas. Replaces one Button per
+ * tile: tile labels are measured once per size, touches are hit-tested against
+ * the tile grid directly, and highlight or number changes only invalidate the
+ * tiles they affect.
+ *
+ * @author Ethan Wight
+ */
+public class BoardView extends View {
+
+    /**
+     * Receives taps on individual tiles.
+     */
+    public interface OnTileClickListener {
+        /**
+         * Called when a tile is tapped.
+         *
+         * @param row The tile's row.
+         * @param col The tile's column.
+         */
+        void onTileClicked(int row, int col);
+    }
+
+    /**
+     * Receives rotations made with a circular swipe over the board.
+     */
+    public interface OnSwipeRotateListener {
+        /**
+         * Called as soon as a swipe has turned far enough around a grid corner.
+         *
+         * @param row    The top row of the swept 2x2 subgrid.
+         * @param col    The left column of the swept 2x2 subgrid.
+         * @param isLeft True if the swipe went counter-clockwise.
+         */
+        void onSwipeRotate(int row, int col, boolean isLeft);
+    }
+
+    /**
+     * Notified when every queued rotation has finished animating.
+     */
+    public interface OnRotationsSettledListener {
+        /**
+         * Called on the main thread once the displayed board has caught up
+         * with all queued rotations.
+         */
+        void onRotationsSettled();
+    }
+
+    private static final int TILE_MARGIN_PX = 4;
+    private static final float PEAK_SCALE = 1.15f;
+    private static final float PEAK_ALPHA_DROP = 0.15f;
+    private static final int QUEUE_CAPACITY = 64;
+    private static final int MAX_ANIMATED_BACKLOG = 3;
+    private static final long MIN_ROTATION_DURATION_MS = 60;
+    private static final String TAG = "BoardView";
+    // A quarter turn around the pivot commits a rotation
+    private static final double SWIPE_COMMIT_RADIANS = Math.PI / 2;
+    private static final long FRAME_BUDGET_MS = 16;
+
+    private final Paint tilePaint = new Paint(Paint.ANTI_ALIAS_FLAG);
+    private final Paint textPaint = new Paint(Paint.ANTI_ALIAS_FLAG);
+    private final RectF tileRect = new RectF();
+
+    private int rows;
+    private int cols;
+    private int[] tiles = new int[0];
+    private String[] labels = new String[0];
+    private float[] labelHalfWidths = new float[0];
+    private float textBaselineOffset;
+    private int tileSize;
+
+    private int tileColor = Color.LTGRAY;
+    private int highlightColor = Color.CYAN;
+    private int flashColor;
+    private boolean flashing;
+    private int highlightRow = -1;
+    private int highlightCol = -1;
+
+    // Rotation animation state; the animator and its listeners are created once and reused
+    private final ValueAnimator rotationAnimator = ValueAnimator.ofFloat(0f, 1f);
+    private int animRow = -1;
+    private int animCol = -1;
+    private boolean animLeft;
+    private boolean animCancelled;
+    private float animFraction;
+    private long rotationDurationMs = 400;
+
+    // Rotations waiting to be animated, as a ring buffer of (row << 8) | (col << 1) | left
+    private final int[] pendingRotations = new int[QUEUE_CAPACITY];
+    private int pendingHead;
+    private int pendingCount;
+
+    // Swipe gesture state; the pivot is the grid corner shared by the swept 2x2 block
+    private final int touchSlop;
+    private float downX;
+    private float downY;
+    private boolean swiping;
+    private boolean swipeCommitted;
+    private int pivotRow;
+    private int pivotCol;
+    private float pivotX;
+    private float pivotY;
+    private double lastAngle;
+    private double sweptAngle;
+    private long lastInputLatencyMs = -1;
+    private long swipeEventTimeNanos;
+
+    private OnTileClickListener tileClickListener;
+    private OnSwipeRotateListener swipeRotateListener;
+    private OnRotationsSettledListener rotationsSettledListener;
+
+    public BoardView(Context context) {
+        this(context, null);
+    }
+
+    public BoardView(Context context, @Nullable AttributeSet attrs) {
+        super(context, attrs);
+        textPaint.setTextAlign(Paint.Align.LEFT);
+        textPaint.setColor(Color.BLACK);
+        setClickable(true);
+        touchSlop = ViewConfiguration.get(context).getScaledTouchSlop();
+
+        rotationAnimator.setInterpolator(new DecelerateInterpolator());
+        rotationAnimator.addUpdateListener(animation -> {
+            // getAnimatedFraction() avoids boxing the value on every frame
+            animFraction = animation.getAnimatedFraction();
+            invalidateAnimatedBlock();
+        });
+        rotationAnimator.addListener(new AnimatorListenerAdapter() {
+            @Override
+            public void onAnimationCancel(Animator animation) {
+                animCancelled = true;
+            }
+
+            @Override
+            public void onAnimationEnd(Animator animation) {
+                finishRotation();
+            }
+        });
+    }
+
+    /**
+     * Sets the listener notified when a tile is tapped.
+     */
+    public void setOnTileClickListener(OnTileClickListener listener) {
+        this.tileClickListener = listener;
+    }
+
+    /**
+     * Sets the listener notified when a circular swipe commits a rotation.
+     */
+    public void setOnSwipeRotateListener(OnSwipeRotateListener listener) {
+        this.swipeRotateListener = listener;
+    }
+
+    /**
+     * Returns the time from the touch event that committed the last swipe until
+     * its rotation had been applied and queued, or -1 if no swipe has been made.
+     */
+    public long getLastInputLatencyMs() {
+        return lastInputLatencyMs;
+    }
+
+    /**
+     * Returns when the touch event that committed the current swipe happened,
+     * on the {@link System#nanoTime()} clock. Valid while the swipe listener runs.
+     */
+    public long getSwipeEventTimeNanos() {
+        return swipeEventTimeNanos;
+    }
+
+    /**
+     * Sets the colors used to draw tiles.
+     *
+     * @param tileColor      The normal tile background.
+     * @param highlightColor The background of the selected subgrid.
+     * @param textColor      The tile number color.
+     */
+    public void setColors(int tileColor, int highlightColor, int textColor) {
+        this.tileColor = tileColor;
+        this.highlightColor = highlightColor;
+        textPaint.setColor(textColor);
+        invalidate();
+    }
+
+    /**
+     * Changes the normal tile background, for example when entering surrender mode.
+     */
+    public void setTileColor(int color) {
+        if (tileColor != color) {
+            tileColor = color;
+            invalidate();
+        }
+    }
+
+    /**
+     * Shows a new board. Only requests a layout pass when the grid size changes.
+     *
+     * @param grid The tile values, indexed [row][col].
+     */
+    public void setBoard(int[][] grid) {
+        clearRotations();
+        int newRows = grid.length;
+        int newCols = grid[0].length;
+        if (newRows != rows || newCols != cols) {
+            rows = newRows;
+            cols = newCols;
+            tiles = new int[rows * cols];
+            labels = new String[rows * cols + 1];
+            labelHalfWidths = new float[rows * cols + 1];
+            for (int v = 1; v <= rows * cols; v++) {
+                labels[v] = String.valueOf(v);
+            }
+            highlightRow = -1;
+            highlightCol = -1;
+            // Text metrics depend on the tile size, so measure again on the next draw
+            tileSize = 0;
+            requestLayout();
+        }
+        copyTiles(grid);
+        invalidate();
+    }
+
+    /**
+     * Updates the tile numbers, invalidating only the tiles that changed.
+     *
+     * @param grid The tile values, indexed [row][col].
+     */
+    public void updateTiles(int[][] grid) {
+        clearRotations();
+        if (grid.length != rows || grid[0].length != cols) {
+            setBoard(grid);
+            return;
+        }
+        for (int r = 0; r < rows; r++) {
+            for (int c = 0; c < cols; c++) {
+                int index = r * cols + c;
+                if (tiles[index] != grid[r][c]) {
+                    tiles[index] = grid[r][c];
+                    invalidateTiles(r, c, r, c);
+                }
+            }
+        }
+    }
+
+    /**
+     * Highlights the 2x2 subgrid anchored at (row, col).
+     */
+    public void setHighlight(int row, int col) {
+        if (row == highlightRow && col == highlightCol) {
+            return;
+        }
+        clearHighlight();
+        highlightRow = row;
+        highlightCol = col;
+        invalidateTiles(row, col, row + 1, col + 1);
+    }
+
+    /**
+     * Removes the subgrid highlight.
+     */
+    public void clearHighlight() {
+        if (highlightRow >= 0) {
+            invalidateTiles(highlightRow, highlightCol, highlightRow + 1, highlightCol + 1);
+        }
+        highlightRow = -1;
+        highlightCol = -1;
+    }
+
+    /**
+     * Draws every tile in one color, used by the victory animation.
+     */
+    public void setFlashColor(int color) {
+        flashColor = color;
+        flashing = true;
+        invalidate();
+    }
+
+    /**
+     * Returns to normal tile colors after {@link #setFlashColor(int)}.
+     */
+    public void clearFlashColor() {
+        if (flashing) {
+            flashing = false;
+            invalidate();
+        }
+    }
+
+    /**
+     * Sets the listener notified when all queued rotations have been animated.
+     */
+    public void setOnRotationsSettledListener(OnRotationsSettledListener listener) {
+        this.rotationsSettledListener = listener;
+    }
+
+    /**
+     * Sets the length of one rotation animation when there is no backlog.
+     */
+    public void setRotationDuration(long durationMs) {
+        this.rotationDurationMs = durationMs;
+    }
+
+    /**
+     * Queues a rotation of the 2x2 subgrid anchored at (row, col) for animation.
+     * The caller has already applied the move to the game; the view catches up
+     * by itself, rotating its own copy of the tiles as each animation ends.
+     * Animations speed up while a backlog exists, and once more than a few
+     * moves are waiting the oldest ones are applied instantly, so the display
+     * never falls far behind fast input.
+     *
+     * @param row    The top row of the subgrid.
+     * @param col    The left column of the subgrid.
+     * @param isLeft True for a counter-clockwise rotation.
+     */
+    public void enqueueRotation(int row, int col, boolean isLeft) {
+        if (pendingCount == QUEUE_CAPACITY) {
+            // Input outran the display by a wide margin; catch up at once
+            applyPendingInstantly(pendingCount);
+        }
+        pendingRotations[(pendingHead + pendingCount) % QUEUE_CAPACITY] =
+                (row << 8) | (col << 1) | (isLeft ? 1 : 0);
+        pendingCount++;
+        if (animRow < 0) {
+            startNextRotation();
+        }
+    }
+
+    /**
+     * Drops every queued rotation and stops the running one without applying
+     * them. Callers follow up with {@link #setBoard} or {@link #updateTiles}.
+     */
+    public void clearRotations() {
+        pendingCount = 0;
+        if (rotationAnimator.isRunning()) {
+            rotationAnimator.cancel();
+        }
+    }
+
+    /**
+     * Returns whether a rotation is animating or waiting to be animated.
+     */
+    public boolean isRotating() {
+        return animRow >= 0 || pendingCount > 0;
+    }
+
+    /**
+     * Starts animating the oldest queued rotation, collapsing any excess backlog first.
+     * The same animator is reused for every move, and the four tile transforms
+     * are computed directly in {@link #onDraw(Canvas)}, so a warmed-up
+     * animation does not allocate.
+     */
+    private void startNextRotation() {
+        if (pendingCount > MAX_ANIMATED_BACKLOG) {
+            applyPendingInstantly(pendingCount - MAX_ANIMATED_BACKLOG);
+        }
+        if (pendingCount == 0) {
+            return;
+        }
+
+        int rotation = pollRotation();
+        animRow = rotation >> 8;
+        animCol = (rotation >> 1) & 0x7F;
+        animLeft = (rotation & 1) != 0;
+        animFraction = 0f;
+        animCancelled = false;
+
+        // Each waiting move shortens this one so the queue drains quickly
+        long duration = Math.max(MIN_ROTATION_DURATION_MS, rotationDurationMs / (1 + pendingCount));
+        setLayerType(LAYER_TYPE_HARDWARE, null);
+        rotationAnimator.setDuration(duration);
+        rotationAnimator.start();
+    }
+
+    private void finishRotation() {
+        invalidateAnimatedBlock();
+        int row = animRow;
+        int col = animCol;
+        animRow = -1;
+        animCol = -1;
+        if (animCancelled) {
+            setLayerType(LAYER_TYPE_NONE, null);
+            return;
+        }
+
+        rotateTiles(row, col, animLeft);
+        if (pendingCount > 0) {
+            startNextRotation();
+        } else {
+            setLayerType(LAYER_TYPE_NONE, null);
+            if (rotationsSettledListener != null) {
+                rotationsSettledListener.onRotationsSettled();
+            }
+        }
+    }
+
+    private int pollRotation() {
+        int rotation = pendingRotations[pendingHead];
+        pendingHead = (pendingHead + 1) % QUEUE_CAPACITY;
+        pendingCount--;
+        return rotation;
+    }
+
+    /**
+     * Applies the oldest count queued rotations to the displayed tiles without animating.
+     */
+    private void applyPendingInstantly(int count) {
+        for (int i = 0; i < count; i++) {
+            int rotation = pollRotation();
+            rotateTiles(rotation >> 8, (rotation >> 1) & 0x7F, (rotation & 1) != 0);
+        }
+    }
+
+    /**
+     * Rotates the displayed tiles of one 2x2 subgrid, matching {@link Revolution}.
+     */
+    private void rotateTiles(int row, int col, boolean isLeft) {
+        int tl = row * cols + col;
+        int tr = tl + 1;
+        int bl = tl + cols;
+        int br = bl + 1;
+        int temp = tiles[tl];
+        if (isLeft) {
+            tiles[tl] = tiles[tr];
+            tiles[tr] = tiles[br];
+            tiles[br] = tiles[bl];
+            tiles[bl] = temp;
+        } else {
+            tiles[tl] = tiles[bl];
+            tiles[bl] = tiles[br];
+            tiles[br] = tiles[tr];
+            tiles[tr] = temp;
+        }
+        invalidateTiles(row, col, row + 1, col + 1);
+    }
+
+    @Override
+    protected void onMeasure(int widthMeasureSpec, int heightMeasureSpec) {
+        int screenWidth = getResources().getDisplayMetrics().widthPixels;
+        int maxGridWidth = Math.min(screenWidth - 100, 800);
+        int desiredTile = (maxGridWidth - 40) / Math.max(1, Math.max(rows, cols));
+        int cell = desiredTile + 2 * TILE_MARGIN_PX;
+
+        int desiredWidth = cols * cell + getPaddingLeft() + getPaddingRight();
+        int width = resolveSize(desiredWidth, widthMeasureSpec);
+        // When the width is squeezed, as with two boards side by side, keep the tiles square
+        int widthCell = (width - getPaddingLeft() - getPaddingRight()) / Math.max(1, cols);
+        int desiredHeight = rows * Math.min(cell, widthCell) + getPaddingTop() + getPaddingBottom();
+        setMeasuredDimension(width, resolveSize(desiredHeight, heightMeasureSpec));
+    }
+
+    @Override
+    protected void onSizeChanged(int w, int h, int oldw, int oldh) {
+        super.onSizeChanged(w, h, oldw, oldh);
+        measureTiles();
+    }
+
+    /**
+     * Computes the tile size for the current view size and pre-measures every label.
+     */
+    private void measureTiles() {
+        if (rows == 0 || cols == 0) {
+            return;
+        }
+        int contentWidth = getWidth() - getPaddingLeft() - getPaddingRight();
+        int contentHeight = getHeight() - getPaddingTop() - getPaddingBottom();
+        int cell = Math.min(contentWidth / cols, contentHeight / rows);
+        tileSize = Math.max(0, cell - 2 * TILE_MARGIN_PX);
+
+        textPaint.setTextSize(tileSize / 3f);
+        Paint.FontMetrics metrics = textPaint.getFontMetrics();
+        textBaselineOffset = -(metrics.ascent + metrics.descent) / 2f;
+        for (int v = 1; v < labels.length; v++) {
+            labelHalfWidths[v] = textPaint.measureText(labels[v]) / 2f;
+        }
+    }
+
+    @Override
+    protected void onDraw(@NonNull Canvas canvas) {
+        super.onDraw(canvas);
+        if (rows == 0 || cols == 0) {
+            return;
+        }
+        if (tileSize == 0) {
+            measureTiles();
+        }
+
+        for (int r = 0; r < rows; r++) {
+            for (int c = 0; c < cols; c++) {
+                if (!isAnimatedTile(r, c)) {
+                    drawTile(canvas, r, c, 0f, 0f, 0f, 1f, 255);
+                }
+            }
+        }
+
+        if (animRow >= 0) {
+            drawAnimatedBlock(canvas);
+        }
+    }
+
+    /**
+     * Draws the four tiles of the rotating subgrid part-way along their paths.
+     */
+    private void drawAnimatedBlock(Canvas canvas) {
+        float cell = tileSize + 2 * TILE_MARGIN_PX;
+        float t = animFraction;
+        // Scale and alpha peak halfway through, then return
+        float pulse = 1f - Math.abs(2f * t - 1f);
+        float scale = 1f + (PEAK_SCALE - 1f) * pulse;
+        int alpha = (int) (255 * (1f - PEAK_ALPHA_DROP * pulse));
+        float angle = (animLeft ? -360f : 360f) * t;
+
+        // Direction each corner travels: clockwise moves TL right, TR down, BR left, BL up
+        float d = cell * t;
+        if (animLeft) {
+            drawTile(canvas, animRow, animCol, 0f, d, angle, scale, alpha);
+            drawTile(canvas, animRow, animCol + 1, -d, 0f, angle, scale, alpha);
+            drawTile(canvas, animRow + 1, animCol + 1, 0f, -d, angle, scale, alpha);
+            drawTile(canvas, animRow + 1, animCol, d, 0f, angle, scale, alpha);
+        } else {
+            drawTile(canvas, animRow, animCol, d, 0f, angle, scale, alpha);
+            drawTile(canvas, animRow, animCol + 1, 0f, d, angle, scale, alpha);
+            drawTile(canvas, animRow + 1, animCol + 1, -d, 0f, angle, scale, alpha);
+            drawTile(canvas, animRow + 1, animCol, 0f, -d, angle, scale, alpha);
+        }
+    }
+
+    /**
+     * Draws one tile with an optional offset, rotation and scale about its center.
+     */
+    private void drawTile(Canvas canvas, int r, int c, float dx, float dy,
+                          float angle, float scale, int alpha) {
+        float cell = tileSize + 2 * TILE_MARGIN_PX;
+        float left = getPaddingLeft() + c * cell + TILE_MARGIN_PX + dx;
+        float top = getPaddingTop() + r * cell + TILE_MARGIN_PX + dy;
+        float cx = left + tileSize / 2f;
+        float cy = top + tileSize / 2f;
+
+        boolean transformed = angle != 0f || scale != 1f;
+        if (transformed) {
+            canvas.save();
+            canvas.rotate(angle, cx, cy);
+            canvas.scale(scale, scale, cx, cy);
+        }
+
+        tilePaint.setColor(tileBackground(r, c));
+        tilePaint.setAlpha(alpha);
+        tileRect.set(left, top, left + tileSize, top + tileSize);
+        canvas.drawRect(tileRect, tilePaint);
+
+        int value = tiles[r * cols + c];
+        textPaint.setAlpha(alpha);
+        canvas.drawText(labels[value], cx - labelHalfWidths[value], cy + textBaselineOffset,
+                textPaint);
+
+        if (transformed) {
+            canvas.restore();
+        }
+    }
+
+    private int tileBackground(int r, int c) {
+        if (flashing) {
+            return flashColor;
+        }
+        boolean highlighted = highlightRow >= 0
+                && r >= highlightRow && r <= highlightRow + 1
+                && c >= highlightCol && c <= highlightCol + 1;
+        return highlighted ? highlightColor : tileColor;
+    }
+
+    private boolean isAnimatedTile(int r, int c) {
+        return animRow >= 0 && r >= animRow && r <= animRow + 1
+                && c >= animCol && c <= animCol + 1;
+    }
+
+    /**
+     * Handles taps and circular swipes. A swipe pivots on the grid corner
+     * nearest to where it started; once it has swept a quarter turn around
+     * that corner the rotation fires immediately, without waiting for the
+     * finger to lift. Anything that never leaves the touch slop is a tap.
+     */
+    @SuppressWarnings("ClickableViewAccessibility")
+    @Override
+    public boolean onTouchEvent(MotionEvent event) {
+        if (!isEnabled() || rows == 0 || tileSize == 0) {
+            return false;
+        }
+        switch (event.getActionMasked()) {
+            case MotionEvent.ACTION_DOWN:
+                downX = event.getX();
+                downY = event.getY();
+                swiping = false;
+                swipeCommitted = false;
+                // Keep an enclosing ScrollView from stealing the circular motion
+                getParent().requestDisallowInterceptTouchEvent(true);
+                break;
+
+            case MotionEvent.ACTION_MOVE:
+                if (!swipeCommitted) {
+                    trackSwipe(event);
+                }
+                break;
+
+            case MotionEvent.ACTION_UP:
+                if (!swiping) {
+                    dispatchTap(event.getX(), event.getY());
+                }
+                swiping = false;
+                break;
+
+            case MotionEvent.ACTION_CANCEL:
+                swiping = false;
+                break;
+        }
+        return true;
+    }
+
+    /**
+     * Accumulates the angle swept around the pivot corner and commits the
+     * rotation once it reaches a quarter turn.
+     */
+    private void trackSwipe(MotionEvent event) {
+        float x = event.getX();
+        float y = event.getY();
+        if (!swiping) {
+            if (Math.abs(x - downX) < touchSlop && Math.abs(y - downY) < touchSlop) {
+                return;
+            }
+            swiping = true;
+            choosePivot(downX, downY);
+            lastAngle = Math.atan2(downY - pivotY, downX - pivotX);
+            sweptAngle = 0;
+        }
+
+        double angle = Math.atan2(y - pivotY, x - pivotX);
+        double delta = angle - lastAngle;
+        // Unwrap across the -pi/pi seam
+        if (delta > Math.PI) {
+            delta -= 2 * Math.PI;
+        } else if (delta < -Math.PI) {
+            delta += 2 * Math.PI;
+        }
+        sweptAngle += delta;
+        lastAngle = angle;
+
+        if (Math.abs(sweptAngle) >= SWIPE_COMMIT_RADIANS) {
+            swipeCommitted = true;
+            // Screen y grows downward, so a positive angle is a clockwise sweep
+            boolean isLeft = sweptAngle < 0;
+            // Event times use the uptime clock, which shares its base with nanoTime
+            swipeEventTimeNanos = event.getEventTime() * 1_000_000L;
+            if (swipeRotateListener != null) {
+                swipeRotateListener.onSwipeRotate(pivotRow - 1, pivotCol - 1, isLeft);
+            }
+            lastInputLatencyMs = SystemClock.uptimeMillis() - event.getEventTime();
+            if (lastInputLatencyMs > FRAME_BUDGET_MS) {
+                Log.w(TAG, "Swipe took " + lastInputLatencyMs + " ms from touch to move");
+            }
+        }
+    }
+
+    /**
+     * Picks the interior grid corner nearest to (x, y) as the swipe pivot.
+     */
+    private void choosePivot(float x, float y) {
+        int cell = tileSize + 2 * TILE_MARGIN_PX;
+        int col = Math.round((x - getPaddingLeft()) / cell);
+        int row = Math.round((y - getPaddingTop()) / cell);
+        pivotCol = Math.max(1, Math.min(cols - 1, col));
+        pivotRow = Math.max(1, Math.min(rows - 1, row));
+        pivotX = getPaddingLeft() + pivotCol * cell;
+        pivotY = getPaddingTop() + pivotRow * cell;
+    }
+
+    private void dispatchTap(float x, float y) {
+        int cell = tileSize + 2 * TILE_MARGIN_PX;
+        int col = (int) ((x - getPaddingLeft()) / cell);
+        int row = (int) ((y - getPaddingTop()) / cell);
+        if (row >= 0 && row < rows && col >= 0 && col < cols) {
+            performClick();
+            if (tileClickListener != null) {
+                tileClickListener.onTileClicked(row, col);
+            }
+        }
+    }
+
+    @Override
+    public boolean performClick() {
+        return super.performClick();
+    }
+
+    /**
+     * Invalidates the rectangle covering tiles (r1, c1) to (r2, c2) inclusive.
+     */
+    @SuppressWarnings("deprecation")
+    private void invalidateTiles(int r1, int c1, int r2, int c2) {
+        int cell = tileSize + 2 * TILE_MARGIN_PX;
+        if (cell <= 2 * TILE_MARGIN_PX) {
+            invalidate();
+            return;
+        }
+        invalidate(getPaddingLeft() + c1 * cell, getPaddingTop() + r1 * cell,
+                getPaddingLeft() + (c2 + 1) * cell, getPaddingTop() + (r2 + 1) * cell);
+    }
+
+    /**
+     * Invalidates the animated subgrid plus room for the scaled tiles.
+     */
+    @SuppressWarnings("deprecation")
+    private void invalidateAnimatedBlock() {
+        if (animRow < 0) {
+            return;
+        }
+        int cell = tileSize + 2 * TILE_MARGIN_PX;
+        int grow = (int) (cell * (PEAK_SCALE - 1f)) + TILE_MARGIN_PX;
+        invalidate(getPaddingLeft() + animCol * cell - grow, getPaddingTop() + animRow * cell - grow,
+                getPaddingLeft() + (animCol + 2) * cell + grow,
+                getPaddingTop() + (animRow + 2) * cell + grow);
+    }
+
+    private void copyTiles(int[][] grid) {
+        for (int r = 0; r < rows; r++) {
+            System.arraycopy(grid[r], 0, tiles, r * cols, cols);
+        }
+    }
+}
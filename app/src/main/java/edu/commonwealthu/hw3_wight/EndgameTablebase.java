@@ -0,0 +1,210 @@
+package edu.commonwealthu.hw3_wight;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * Read-only view of a precomputed endgame tablebase: every board within a
+ * fixed distance of solved, with its exact distance and an optimal next
+ * move, so a board in range is answered by one lookup and no search. It is
+ * built offline by {@link EndgameTablebaseWriter} and memory-mapped, so
+ * opening it costs the same however many boards it holds.
+ * <p>
+ * Boards are stored once per group of equivalent boards, in the
+ * {@link BoardSymmetry#canonical canonical} form, which makes the table up to
+ * eight times smaller; moves are mapped back to the board that was asked about.
+ * <p>
+ * Binary layout (big-endian):
+ * <pre>
+ *   int    magic     'RVEG'
+ *   short  version
+ *   byte   rows
+ *   byte   cols
+ *   short  maxDepth
+ *   short  reserved
+ *   int    count
+ *   count x long      canonical boards, sorted in signed order
+ *   count x byte      distance of each board
+ *   count x byte      an optimal move of each board (see {@link PackedBoard}), 0 when solved
+ * </pre>
+ * A lookup is a binary search over the sorted boards.
+ *
+ * @author Ethan Wight
+ */
+public final class EndgameTablebase implements Closeable {
+
+    static final int MAGIC = 0x52564547;
+    static final int VERSION = 1;
+    static final int HEADER_SIZE = 16;
+
+    private final ByteBuffer buffer;
+    private final int rows;
+    private final int cols;
+    private final int maxDepth;
+    private final int count;
+    private final int distanceOffset;
+    private final int moveOffset;
+    private final long solved;
+    private final BoardSymmetry symmetry;
+
+    private EndgameTablebase(ByteBuffer buffer) throws IOException {
+        this.buffer = buffer.order(ByteOrder.BIG_ENDIAN);
+        if (buffer.capacity() < HEADER_SIZE || buffer.getInt(0) != MAGIC) {
+            throw new IOException("Not an endgame tablebase");
+        }
+        if (buffer.getShort(4) != VERSION) {
+            throw new IOException("Unsupported tablebase version " + buffer.getShort(4));
+        }
+        this.rows = buffer.get(6);
+        this.cols = buffer.get(7);
+        this.maxDepth = buffer.getShort(8);
+        this.count = buffer.getInt(12);
+        if (rows < 2 || cols < 2 || rows * cols > PackedBoard.MAX_TILES || maxDepth < 0
+                || count < 1 || HEADER_SIZE + 10L * count != buffer.capacity()) {
+            throw new IOException("Corrupt tablebase header");
+        }
+        this.distanceOffset = HEADER_SIZE + 8 * count;
+        this.moveOffset = distanceOffset + count;
+        this.solved = PackedBoard.solved(rows, cols);
+        this.symmetry = new BoardSymmetry(rows, cols);
+    }
+
+    /**
+     * Memory-maps a tablebase stored in a file.
+     *
+     * @param file The tablebase file.
+     * @return The opened tablebase.
+     * @throws IOException If the file cannot be mapped or is not a valid tablebase.
+     */
+    public static EndgameTablebase open(File file) throws IOException {
+        try (RandomAccessFile raf = new RandomAccessFile(file, "r")) {
+            return map(raf.getChannel(), 0, raf.length());
+        }
+    }
+
+    /**
+     * Memory-maps a tablebase stored in part of a file, such as an uncompressed
+     * APK asset. The mapping stays valid after the channel is closed.
+     *
+     * @param channel The channel to map.
+     * @param start   The byte offset of the tablebase within the channel.
+     * @param length  The length of the tablebase in bytes.
+     * @return The opened tablebase.
+     * @throws IOException If the region cannot be mapped or is not a valid tablebase.
+     */
+    public static EndgameTablebase map(FileChannel channel, long start, long length)
+            throws IOException {
+        if (length > Integer.MAX_VALUE) {
+            throw new IOException("Tablebase too large to map: " + length);
+        }
+        MappedByteBuffer mapped = channel.map(FileChannel.MapMode.READ_ONLY, start, length);
+        return new EndgameTablebase(mapped);
+    }
+
+    public int getRows() {
+        return rows;
+    }
+
+    public int getCols() {
+        return cols;
+    }
+
+    /**
+     * Returns the largest distance the tablebase covers; every board at most
+     * this far from solved is in it.
+     */
+    public int getMaxDepth() {
+        return maxDepth;
+    }
+
+    /**
+     * Returns the number of canonical boards stored.
+     */
+    public int size() {
+        return count;
+    }
+
+    /**
+     * Returns the optimal distance of a board.
+     *
+     * @param board A packed board of this size.
+     * @return The number of moves to solve it, or -1 if it is out of range.
+     */
+    public int distance(long board) {
+        int index = find(symmetry.canonical(board));
+        return index < 0 ? -1 : buffer.get(distanceOffset + index);
+    }
+
+    /**
+     * Returns an optimal next move for a board.
+     *
+     * @param board A packed board of this size.
+     * @return The encoded move, or -1 if the board is solved or out of range.
+     */
+    public int bestMove(long board) {
+        if (board == solved) {
+            return -1;
+        }
+        int toCanonical = symmetry.canonicalSymmetry(board);
+        int index = find(symmetry.transform(board, toCanonical));
+        if (index < 0) {
+            return -1;
+        }
+        int move = buffer.get(moveOffset + index) & 0xFF;
+        return symmetry.transformMove(move, symmetry.inverse(toCanonical));
+    }
+
+    /**
+     * Returns an optimal solution for a board, one lookup per move.
+     *
+     * @param board A packed board of this size.
+     * @return The encoded moves, or null if the board is out of range.
+     */
+    public int[] solution(long board) {
+        int distance = distance(board);
+        if (distance < 0) {
+            return null;
+        }
+        int[] moves = new int[distance];
+        for (int i = 0; i < distance; i++) {
+            moves[i] = bestMove(board);
+            board = PackedBoard.applyMove(board, cols, moves[i]);
+        }
+        return moves;
+    }
+
+    /**
+     * Binary search for a canonical board; returns its index or -1.
+     */
+    private int find(long key) {
+        int low = 0;
+        int high = count - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            long value = buffer.getLong(HEADER_SIZE + 8 * mid);
+            if (value < key) {
+                low = mid + 1;
+            } else if (value > key) {
+                high = mid - 1;
+            } else {
+                return mid;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Mapped buffers are released by the garbage collector; closing only
+     * documents that the tablebase is no longer in use.
+     */
+    @Override
+    public void close() {
+        // Nothing to release eagerly
+    }
+}
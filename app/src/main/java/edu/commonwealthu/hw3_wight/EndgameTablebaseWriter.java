@@ -0,0 +1,239 @@
+package edu.commonwealthu.hw3_wight;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * Offline builder for {@link EndgameTablebase} files. A breadth-first search
+ * from the solved board over canonical boards (see {@link BoardSymmetry})
+ * collects every board within maxDepth, one level at a time: each level is
+ * the sorted, de-duplicated set of neighbors of the previous level that are
+ * not in either of the two levels before it, so the search needs no hash
+ * table and no more memory than the levels themselves. Each board's optimal
+ * move is then any move that leads into the previous level.
+ * <p>
+ * Usage: {@code EndgameTablebaseWriter <rows> <cols> <maxDepth> <outputFile>}
+ *
+ * @author Ethan Wight
+ */
+public class EndgameTablebaseWriter {
+
+    // Neighbors are sorted and de-duplicated in batches of this many
+    private static final int BATCH_SIZE = 1 << 22;
+
+    private final int rows;
+    private final int cols;
+    private final int maxDepth;
+    private final int moveCount;
+    private final BoardSymmetry symmetry;
+
+    private final long[][] levels;
+    private final byte[][] moves;
+
+    /**
+     * Constructs a writer for one grid size.
+     *
+     * @param rows     The number of rows.
+     * @param cols     The number of columns.
+     * @param maxDepth The largest distance to cover.
+     */
+    public EndgameTablebaseWriter(int rows, int cols, int maxDepth) {
+        if (rows * cols > PackedBoard.MAX_TILES) {
+            throw new IllegalArgumentException("Board too large to pack: " + rows + "x" + cols);
+        }
+        this.rows = rows;
+        this.cols = cols;
+        this.maxDepth = maxDepth;
+        this.moveCount = PackedBoard.moveCount(rows, cols);
+        this.symmetry = new BoardSymmetry(rows, cols);
+        this.levels = new long[maxDepth + 1][];
+        this.moves = new byte[maxDepth + 1][];
+    }
+
+    /**
+     * Finds every canonical board within maxDepth of solved, with an optimal move for each.
+     */
+    public void generate() {
+        levels[0] = new long[] {PackedBoard.solved(rows, cols)};
+        moves[0] = new byte[1];
+        for (int depth = 1; depth <= maxDepth; depth++) {
+            levels[depth] = expand(depth);
+            moves[depth] = optimalMoves(levels[depth], levels[depth - 1]);
+        }
+    }
+
+    /**
+     * Returns the sorted canonical boards at exactly this depth.
+     */
+    private long[] expand(int depth) {
+        long[] frontier = levels[depth - 1];
+        long[] previous = depth >= 2 ? levels[depth - 2] : new long[0];
+        long[] found = new long[BATCH_SIZE];
+        int foundSize = 0;
+        long[] batch = new long[BATCH_SIZE];
+        int batchSize = 0;
+
+        for (long board : frontier) {
+            if (batchSize + moveCount > BATCH_SIZE) {
+                batchSize = newBoards(batch, batchSize, frontier, previous);
+                found = append(found, foundSize, batch, batchSize);
+                foundSize += batchSize;
+                batchSize = 0;
+            }
+            for (int move = 0; move < moveCount; move++) {
+                batch[batchSize++] = symmetry.canonical(PackedBoard.applyMove(board, cols, move));
+            }
+        }
+        batchSize = newBoards(batch, batchSize, frontier, previous);
+        found = append(found, foundSize, batch, batchSize);
+        foundSize += batchSize;
+
+        // Batches are de-duplicated separately, so a board may appear in several
+        Arrays.sort(found, 0, foundSize);
+        return Arrays.copyOf(found, unique(found, foundSize));
+    }
+
+    /**
+     * Sorts a batch of neighbors and keeps each board once, dropping boards
+     * already placed at the frontier's depth or the one before it. A
+     * neighbor of the frontier cannot be any closer to solved than that.
+     *
+     * @return The number of boards kept at the front of the batch.
+     */
+    private static int newBoards(long[] batch, int size, long[] frontier, long[] previous) {
+        Arrays.sort(batch, 0, size);
+        size = unique(batch, size);
+        int kept = 0;
+        for (int i = 0; i < size; i++) {
+            long board = batch[i];
+            if (Arrays.binarySearch(frontier, board) < 0
+                    && Arrays.binarySearch(previous, board) < 0) {
+                batch[kept++] = board;
+            }
+        }
+        return kept;
+    }
+
+    /**
+     * Removes adjacent duplicates from a sorted range and returns the new length.
+     */
+    private static int unique(long[] sorted, int size) {
+        int kept = 0;
+        for (int i = 0; i < size; i++) {
+            if (kept == 0 || sorted[kept - 1] != sorted[i]) {
+                sorted[kept++] = sorted[i];
+            }
+        }
+        return kept;
+    }
+
+    private static long[] append(long[] target, int size, long[] source, int count) {
+        if (size + count > target.length) {
+            target = Arrays.copyOf(target, Math.max(size + count, target.length * 2));
+        }
+        System.arraycopy(source, 0, target, size, count);
+        return target;
+    }
+
+    /**
+     * Picks for each board a move that leads into the previous level, in the
+     * frame of the board itself.
+     */
+    private byte[] optimalMoves(long[] level, long[] previous) {
+        byte[] result = new byte[level.length];
+        for (int i = 0; i < level.length; i++) {
+            for (int move = 0; move < moveCount; move++) {
+                long next = symmetry.canonical(PackedBoard.applyMove(level[i], cols, move));
+                if (Arrays.binarySearch(previous, next) >= 0) {
+                    result[i] = (byte) move;
+                    break;
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Writes the boards in the {@link EndgameTablebase} format, merging the
+     * levels into one sorted sequence.
+     *
+     * @param file The destination file.
+     * @throws IOException If the file cannot be written or holds too many boards.
+     */
+    public void write(File file) throws IOException {
+        long total = 0;
+        for (long[] level : levels) {
+            total += level.length;
+        }
+        if (EndgameTablebase.HEADER_SIZE + 10 * total > Integer.MAX_VALUE) {
+            throw new IOException("Too many boards to map: " + total);
+        }
+        try (DataOutputStream out = new DataOutputStream(
+                new BufferedOutputStream(new FileOutputStream(file), 1 << 16))) {
+            out.writeInt(EndgameTablebase.MAGIC);
+            out.writeShort(EndgameTablebase.VERSION);
+            out.writeByte(rows);
+            out.writeByte(cols);
+            out.writeShort(maxDepth);
+            out.writeShort(0);
+            out.writeInt((int) total);
+            // Three passes over the merged levels: boards, distances, moves
+            for (int pass = 0; pass < 3; pass++) {
+                int[] heads = new int[levels.length];
+                for (long written = 0; written < total; written++) {
+                    int depth = -1;
+                    for (int d = 0; d < levels.length; d++) {
+                        if (heads[d] < levels[d].length && (depth < 0
+                                || levels[d][heads[d]] < levels[depth][heads[depth]])) {
+                            depth = d;
+                        }
+                    }
+                    int index = heads[depth]++;
+                    if (pass == 0) {
+                        out.writeLong(levels[depth][index]);
+                    } else if (pass == 1) {
+                        out.writeByte(depth);
+                    } else {
+                        out.writeByte(moves[depth][index]);
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Returns the number of canonical boards at each distance.
+     */
+    public int[] getCounts() {
+        int[] counts = new int[levels.length];
+        for (int d = 0; d < levels.length; d++) {
+            counts[d] = levels[d] == null ? 0 : levels[d].length;
+        }
+        return counts;
+    }
+
+    /**
+     * Command-line entry point for building tablebases ahead of time.
+     *
+     * @param args rows, cols, maxDepth, outputFile
+     * @throws IOException If the tablebase cannot be written.
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length != 4) {
+            System.err.println("Usage: EndgameTablebaseWriter <rows> <cols> <maxDepth> <outputFile>");
+            System.exit(1);
+        }
+        int rows = Integer.parseInt(args[0]);
+        int cols = Integer.parseInt(args[1]);
+        int maxDepth = Integer.parseInt(args[2]);
+
+        EndgameTablebaseWriter writer = new EndgameTablebaseWriter(rows, cols, maxDepth);
+        writer.generate();
+        writer.write(new File(args[3]));
+        System.out.println("Canonical boards per distance: " + Arrays.toString(writer.getCounts()));
+    }
+}
@@ -0,0 +1,314 @@
+package edu.commonwealthu.hw3_wight;
+
+import android.content.Context;
+import android.os.Handler;
+import android.os.Looper;
+import android.util.Log;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Executor;
+
+/**
+ * Keeps the game in progress on disk so it survives the app being closed,
+ * not just the activity being recreated. It follows the game through its
+ * {@link GameEventBus} on a serial background executor: the save is the
+ * board beneath all of the player's moves and the known solution from it,
+ * followed by a log of the player's moves, so undo and surrender still work
+ * after a restore. Each batch of events is written once, so a burst of moves
+ * costs a single write, and the save is deleted as soon as the puzzle is
+ * solved.
+ * <p>
+ * Every autosave in the process must share one executor (the
+ * {@link ProgressStore}'s), so that the saves of an activity being destroyed
+ * and of the one replacing it are written one after the other, in order.
+ * <p>
+ * File layout (big-endian):
+ * <pre>
+ *   int    magic     'RVAS'
+ *   int    version
+ *   byte   variant ordinal
+ *   byte   rows
+ *   byte   cols
+ *   byte   depth
+ *   long   starting board
+ *   int    solution length, then that many solution moves (bytes)
+ *   int    moves made, int undos used
+ *   byte   surrendered
+ *   int    scramble moves undone
+ *   int    log length, then that many moves (bytes)
+ * </pre>
+ *
+ * @author Ethan Wight
+ */
+public final class GameAutosave implements GameEventBus.Subscriber {
+
+    /**
+     * Notified on the main thread with a restored game.
+     */
+    public interface OnRestoredListener {
+        /**
+         * @param game       The game as it was last saved.
+         * @param depth      The solution depth it was started with.
+         * @param movesMade  The moves the player had made.
+         * @param undosUsed  The undos the player had used.
+         */
+        void onRestored(Revolution game, int depth, int movesMade, int undosUsed);
+    }
+
+    private static final String TAG = "GameAutosave";
+    private static final String FILE_NAME = "autosave.bin";
+    private static final int MAGIC = 0x52564153; // "RVAS"
+    private static final int VERSION = 1;
+
+    private final File file;
+    private final GameEventBus events;
+    private final Executor writer;
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+
+    // Main thread only
+    private GameEventBus.Subscription subscription;
+
+    // Writer executor only
+    private boolean active;
+    private PuzzleVariant variant;
+    private int rows;
+    private int cols;
+    private int depth;
+    private long startBoard;
+    private int[] solution;
+    private int movesMade;
+    private int undosUsed;
+    private boolean surrendered;
+    private int scrambleUndos;
+    private int[] log = new int[64];
+    private int logSize;
+
+    /**
+     * Creates an autosave for the games published on a bus.
+     *
+     * @param context Any context; only the files directory is kept.
+     * @param events  The bus the games publish on.
+     * @param writer  The process-wide serial executor saves are written on.
+     */
+    public GameAutosave(Context context, GameEventBus events, Executor writer) {
+        this.file = new File(context.getFilesDir(), FILE_NAME);
+        this.events = events;
+        this.writer = writer;
+    }
+
+    /**
+     * Starts saving a game, replacing any earlier save. The game may already
+     * be under way, as when it is restored after the activity was recreated:
+     * its move history is saved as the log, so the player can still undo
+     * those moves after a restore. Call on the main thread before the game
+     * publishes anything.
+     *
+     * @param game      The game, already publishing on this autosave's bus.
+     * @param depth     The solution depth it was started with.
+     * @param movesMade The moves the player has made so far.
+     * @param undosUsed The undos the player has used so far.
+     */
+    public void begin(Revolution game, int depth, int movesMade, int undosUsed) {
+        // A fresh subscription, so events the old game left queued are dropped
+        if (subscription != null) {
+            subscription.cancel();
+        }
+        PuzzleVariant gameVariant = game.getVariant();
+        BoardSnapshot current = game.getSnapshot();
+        // The current board, back through the player's moves, then on to the solved board
+        long[] path = game.getKnownSolutionPath();
+        int history = game.getMoveHistorySize();
+        boolean gameSurrendered = game.isSurrenderMode();
+        writer.execute(() -> {
+            MoveTable table = gameVariant.table(current.getRows(), current.getCols());
+            variant = gameVariant;
+            rows = current.getRows();
+            cols = current.getCols();
+            this.depth = depth;
+            startBoard = path[history];
+            solution = table.movesAlong(Arrays.copyOfRange(path, history, path.length));
+            long[] played = new long[history + 1];
+            for (int i = 0; i <= history; i++) {
+                played[i] = path[history - i];
+            }
+            int[] moves = table.movesAlong(played);
+            log = Arrays.copyOf(moves, Math.max(64, moves.length));
+            logSize = moves.length;
+            this.movesMade = movesMade;
+            this.undosUsed = undosUsed;
+            surrendered = gameSurrendered;
+            scrambleUndos = 0;
+            active = !current.isSolved();
+            save();
+        });
+        subscription = events.subscribe(writer, GameEventBus.Delivery.ALL, this);
+    }
+
+    /**
+     * Follows the game. Runs on the writer executor.
+     */
+    @Override
+    public void onEvents(List<GameEvent> batch) {
+        if (!active) {
+            return;
+        }
+        for (GameEvent event : batch) {
+            switch (event.getType()) {
+                case MOVE_APPLIED:
+                    if (logSize == log.length) {
+                        log = Arrays.copyOf(log, logSize * 2);
+                    }
+                    log[logSize++] = event.getMove();
+                    movesMade++;
+                    break;
+                case UNDO:
+                    // Undo takes back the player's own moves before any scramble move
+                    if (logSize > 0) {
+                        logSize--;
+                    } else {
+                        scrambleUndos++;
+                    }
+                    undosUsed++;
+                    break;
+                case SURRENDER:
+                    surrendered = true;
+                    break;
+                case SOLVED:
+                    active = false;
+                    break;
+            }
+        }
+        if (active) {
+            save();
+        } else {
+            clear();
+        }
+    }
+
+    /**
+     * Writes the current save via a temporary file, so a crash mid-write
+     * leaves the previous save intact.
+     */
+    private void save() {
+        if (!active) {
+            clear();
+            return;
+        }
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(64 + solution.length + logSize);
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeByte(variant.ordinal());
+            out.writeByte(rows);
+            out.writeByte(cols);
+            out.writeByte(depth);
+            out.writeLong(startBoard);
+            out.writeInt(solution.length);
+            for (int move : solution) {
+                out.writeByte(move);
+            }
+            out.writeInt(movesMade);
+            out.writeInt(undosUsed);
+            out.writeBoolean(surrendered);
+            out.writeInt(scrambleUndos);
+            out.writeInt(logSize);
+            for (int i = 0; i < logSize; i++) {
+                out.writeByte(log[i]);
+            }
+        } catch (IOException e) {
+            // In memory; cannot happen
+            throw new IllegalStateException(e);
+        }
+
+        File temp = new File(file.getPath() + ".tmp");
+        try (FileOutputStream out = new FileOutputStream(temp)) {
+            bytes.writeTo(out);
+        } catch (IOException e) {
+            Log.e(TAG, "Failed to write autosave", e);
+            return;
+        }
+        if (!temp.renameTo(file)) {
+            Log.e(TAG, "Failed to replace autosave");
+        }
+    }
+
+    private void clear() {
+        if (file.exists() && !file.delete()) {
+            Log.w(TAG, "Failed to delete autosave");
+        }
+    }
+
+    /**
+     * Reads the save in the background and, if there is an unfinished game,
+     * rebuilds it and hands it to the listener on the main thread.
+     *
+     * @param listener Called only if a game was restored.
+     */
+    public void restore(OnRestoredListener listener) {
+        writer.execute(() -> {
+            if (!file.exists()) {
+                return;
+            }
+            try (DataInputStream in = new DataInputStream(new FileInputStream(file))) {
+                if (in.readInt() != MAGIC || in.readInt() != VERSION) {
+                    Log.w(TAG, "Ignoring autosave in an unknown format");
+                    return;
+                }
+                PuzzleVariant savedVariant = PuzzleVariant.values()[in.readByte()];
+                int savedRows = in.readByte();
+                int savedCols = in.readByte();
+                int savedDepth = in.readByte();
+                long board = in.readLong();
+                int[] savedSolution = readMoves(in);
+                int savedMoves = in.readInt();
+                int savedUndos = in.readInt();
+                boolean savedSurrendered = in.readBoolean();
+                int savedScrambleUndos = in.readInt();
+                int[] savedLog = readMoves(in);
+
+                Revolution game = new Revolution(savedVariant, savedRows, savedCols,
+                        board, savedSolution);
+                if (savedSurrendered) {
+                    game.enableSurrenderMode();
+                }
+                for (int i = 0; i < savedScrambleUndos; i++) {
+                    game.undo();
+                }
+                for (int move : savedLog) {
+                    game.move(move);
+                }
+                mainHandler.post(() -> listener.onRestored(game, savedDepth,
+                        savedMoves, savedUndos));
+            } catch (IOException | RuntimeException e) {
+                Log.w(TAG, "Ignoring unreadable autosave", e);
+            }
+        });
+    }
+
+    private static int[] readMoves(DataInputStream in) throws IOException {
+        int[] moves = new int[in.readInt()];
+        for (int i = 0; i < moves.length; i++) {
+            moves[i] = in.readUnsignedByte();
+        }
+        return moves;
+    }
+
+    /**
+     * Stops following games. Saves already queued are still written, ahead
+     * of anything a later autosave queues on the same executor.
+     */
+    public void shutdown() {
+        if (subscription != null) {
+            subscription.cancel();
+            subscription = null;
+        }
+    }
+}
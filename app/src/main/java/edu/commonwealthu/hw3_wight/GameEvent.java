@@ -0,0 +1,72 @@
+package edu.commonwealthu.hw3_wight;
+
+import androidx.annotation.NonNull;
+
+/**
+ * Something that happened to a {@link Revolution} game, as published on a
+ * {@link GameEventBus}. Events are immutable and carry the board as an
+ * immutable {@link BoardSnapshot}, so subscribers can read them on any
+ * thread, long after the game has moved on.
+ *
+ * @author Ethan Wight
+ */
+public final class GameEvent {
+
+    /**
+     * The kinds of event a game publishes.
+     */
+    public enum Type {
+        /** A move was made; {@link #getMove()} says which. */
+        MOVE_APPLIED,
+        /** A move, or in surrender mode a scramble move, was undone. */
+        UNDO,
+        /** The board reached the solved state; follows the move or undo that solved it. */
+        SOLVED,
+        /** Surrender mode was enabled. */
+        SURRENDER
+    }
+
+    private final Type type;
+    private final BoardSnapshot snapshot;
+    private final int move;
+    private final long timeNanos;
+
+    GameEvent(Type type, BoardSnapshot snapshot, int move) {
+        this.type = type;
+        this.snapshot = snapshot;
+        this.move = move;
+        this.timeNanos = System.nanoTime();
+    }
+
+    public Type getType() {
+        return type;
+    }
+
+    /**
+     * Returns the board just after the event.
+     */
+    public BoardSnapshot getSnapshot() {
+        return snapshot;
+    }
+
+    /**
+     * Returns the move made, numbered as in the game's {@link MoveTable}, or
+     * -1 unless this is a {@link Type#MOVE_APPLIED} event.
+     */
+    public int getMove() {
+        return move;
+    }
+
+    /**
+     * Returns when the event was published, on the {@link System#nanoTime()} clock.
+     */
+    public long getTimeNanos() {
+        return timeNanos;
+    }
+
+    @NonNull
+    @Override
+    public String toString() {
+        return type + (move >= 0 ? "(" + move + ")" : "") + " v" + snapshot.getVersion();
+    }
+}
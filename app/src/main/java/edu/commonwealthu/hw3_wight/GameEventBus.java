@@ -0,0 +1,163 @@
+package edu.commonwealthu.hw3_wight;
+
+import android.util.Log;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Delivers {@link GameEvent}s from a game to any number of subscribers, each
+ * on an executor of its own choosing: the renderer on the main thread, audio
+ * on the audio thread, autosave on a disk thread.
+ * <p>
+ * Publishing never blocks and never runs subscriber code. Each subscriber
+ * has its own queue, and at most one delivery task per subscriber is waiting
+ * on its executor at a time; that task hands over everything queued since
+ * the last one as a single batch. A subscriber that falls behind therefore
+ * receives fewer, larger batches rather than slowing down the publisher or
+ * the other subscribers. Subscribers that only care about the current board
+ * can ask for {@link Delivery#LATEST}, which keeps just the newest event.
+ *
+ * @author Ethan Wight
+ */
+public final class GameEventBus {
+
+    /**
+     * Receives events on the executor it subscribed with.
+     */
+    public interface Subscriber {
+        /**
+         * Handles the events published since the previous call.
+         *
+         * @param events One or more events, oldest first. Only valid during the call.
+         */
+        void onEvents(List<GameEvent> events);
+    }
+
+    /**
+     * How queued events are handed to a subscriber.
+     */
+    public enum Delivery {
+        /** Every event, in order, batched. */
+        ALL,
+        /** Only the newest event; older undelivered ones are dropped. */
+        LATEST
+    }
+
+    /**
+     * A subscriber's registration; cancel it to stop delivery.
+     */
+    public interface Subscription {
+        /**
+         * Stops delivery. Events already being handed over may still arrive.
+         */
+        void cancel();
+    }
+
+    private static final String TAG = "GameEventBus";
+
+    private final List<Channel> channels = new CopyOnWriteArrayList<>();
+
+    /**
+     * Registers a subscriber.
+     *
+     * @param executor   Where the subscriber is called; must run tasks one at a
+     *                   time, as a single thread or a handler does.
+     * @param delivery   How queued events are handed over.
+     * @param subscriber The subscriber.
+     * @return The registration, for cancelling it.
+     */
+    public Subscription subscribe(Executor executor, Delivery delivery, Subscriber subscriber) {
+        Channel channel = new Channel(executor, delivery, subscriber);
+        channels.add(channel);
+        return channel;
+    }
+
+    /**
+     * Queues an event for every subscriber and returns at once.
+     *
+     * @param event The event.
+     */
+    public void publish(GameEvent event) {
+        for (Channel channel : channels) {
+            channel.offer(event);
+        }
+    }
+
+    /**
+     * One subscriber's queue and its delivery task.
+     */
+    private final class Channel implements Subscription, Runnable {
+
+        private final Executor executor;
+        private final Delivery delivery;
+        private final Subscriber subscriber;
+        private final ConcurrentLinkedQueue<GameEvent> queue = new ConcurrentLinkedQueue<>();
+        private final AtomicReference<GameEvent> latest = new AtomicReference<>();
+        private final AtomicBoolean scheduled = new AtomicBoolean();
+        // Reused by every delivery; tasks run one at a time
+        private final List<GameEvent> batch = new ArrayList<>();
+        private volatile boolean cancelled;
+
+        Channel(Executor executor, Delivery delivery, Subscriber subscriber) {
+            this.executor = executor;
+            this.delivery = delivery;
+            this.subscriber = subscriber;
+        }
+
+        void offer(GameEvent event) {
+            if (delivery == Delivery.ALL) {
+                queue.add(event);
+            } else {
+                latest.set(event);
+            }
+            if (scheduled.compareAndSet(false, true)) {
+                try {
+                    executor.execute(this);
+                } catch (RejectedExecutionException e) {
+                    // The subscriber's thread has shut down; it will not be back
+                    Log.w(TAG, "Dropping subscriber whose executor rejected delivery", e);
+                    cancel();
+                }
+            }
+        }
+
+        @Override
+        public void run() {
+            // Cleared before draining, so an event published meanwhile schedules another run
+            scheduled.set(false);
+            if (delivery == Delivery.ALL) {
+                for (GameEvent event = queue.poll(); event != null; event = queue.poll()) {
+                    batch.add(event);
+                }
+            } else {
+                GameEvent event = latest.getAndSet(null);
+                if (event != null) {
+                    batch.add(event);
+                }
+            }
+            try {
+                if (!batch.isEmpty() && !cancelled) {
+                    subscriber.onEvents(Collections.unmodifiableList(batch));
+                }
+            } finally {
+                batch.clear();
+            }
+        }
+
+        @Override
+        public void cancel() {
+            cancelled = true;
+            channels.remove(this);
+            queue.clear();
+            latest.set(null);
+        }
+    }
+}
@@ -0,0 +1,540 @@
+package edu.commonwealthu.hw3_wight;
+
+import android.content.Context;
+import android.util.Log;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Records every finished game and keeps running statistics over them.
+ * <p>
+ * Each game is appended to a binary log of fixed-size records (time, moves,
+ * undos, grid size, depth and whether surrender was used). Alongside the log,
+ * aggregates are updated incrementally as each game is recorded and persisted
+ * in a small separate file: per grid size and per solution depth, the best and
+ * mean solve time and move count, a log-bucketed time histogram for percentile
+ * estimates, and the current and best win streaks. Reading any statistic costs
+ * the same no matter how many games have been logged. The log is the source
+ * of truth: the aggregate file stores how many records it covers, and on open
+ * any records logged after it was written, such as the last game before a
+ * crash, are replayed into it. If the aggregate file is lost or covers more
+ * records than the log holds, it is rebuilt by replaying the whole log. Each
+ * record reaches the disk before the aggregates that count it.
+ * <p>
+ * Times and moves only include games solved without surrendering.
+ * Recording happens on the caller's thread; disk writes run on a background worker.
+ *
+ * @author Ethan Wight
+ */
+public class GameStatsStore {
+
+    private static final String TAG = "GameStatsStore";
+    private static final String LOG_FILE = "game_stats.log";
+    private static final String AGGREGATE_FILE = "game_stats.agg";
+    private static final int AGGREGATE_MAGIC = 0x52565354; // "RVST"
+    private static final int AGGREGATE_VERSION = 2;
+
+    // Record layout: long timestamp, int timeMs, int moves, short undos,
+    // byte rows, byte cols, byte depth, byte flags, short reserved
+    static final int RECORD_SIZE = 24;
+    private static final int FLAG_SURRENDERED = 1;
+
+    private final File logFile;
+    private final File aggregateFile;
+    private final ExecutorService writer = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "GameStatsStore");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private final Aggregate overall = new Aggregate();
+    private final Map<Integer, Aggregate> bySize = new HashMap<>();
+    private final Map<Integer, Aggregate> byDepth = new HashMap<>();
+    private int currentStreak;
+    private int bestStreak;
+    // Number of log records the aggregates count
+    private long recordCount;
+
+    /**
+     * Running statistics over a group of games.
+     */
+    public static final class Aggregate {
+
+        // Time buckets grow by 10% each, covering 1 ms to several hours
+        private static final double BUCKET_GROWTH = 1.1;
+        private static final double LOG_GROWTH = Math.log(BUCKET_GROWTH);
+        private static final int BUCKETS = 192;
+
+        private int games;
+        private int surrenders;
+        private int solved;
+        private long totalTimeMs;
+        private int bestTimeMs = Integer.MAX_VALUE;
+        private long totalMoves;
+        private int bestMoves = Integer.MAX_VALUE;
+        private long totalUndos;
+        private final int[] timeHistogram = new int[BUCKETS];
+
+        void add(int timeMs, int moves, int undos, boolean surrendered) {
+            games++;
+            if (surrendered) {
+                surrenders++;
+                return;
+            }
+            solved++;
+            totalTimeMs += timeMs;
+            bestTimeMs = Math.min(bestTimeMs, timeMs);
+            totalMoves += moves;
+            bestMoves = Math.min(bestMoves, moves);
+            totalUndos += undos;
+            timeHistogram[bucketOf(timeMs)]++;
+        }
+
+        void clear() {
+            games = 0;
+            surrenders = 0;
+            solved = 0;
+            totalTimeMs = 0;
+            bestTimeMs = Integer.MAX_VALUE;
+            totalMoves = 0;
+            bestMoves = Integer.MAX_VALUE;
+            totalUndos = 0;
+            Arrays.fill(timeHistogram, 0);
+        }
+
+        private static int bucketOf(int timeMs) {
+            if (timeMs <= 1) {
+                return 0;
+            }
+            return Math.min(BUCKETS - 1, (int) (Math.log(timeMs) / LOG_GROWTH));
+        }
+
+        public int getGames() {
+            return games;
+        }
+
+        public int getSurrenders() {
+            return surrenders;
+        }
+
+        public int getSolved() {
+            return solved;
+        }
+
+        /**
+         * Returns the fastest solve time, or -1 if nothing has been solved.
+         */
+        public int getBestTimeMs() {
+            return solved == 0 ? -1 : bestTimeMs;
+        }
+
+        /**
+         * Returns the mean solve time, or -1 if nothing has been solved.
+         */
+        public long getMeanTimeMs() {
+            return solved == 0 ? -1 : totalTimeMs / solved;
+        }
+
+        /**
+         * Returns the fewest moves in a solve, or -1 if nothing has been solved.
+         */
+        public int getBestMoves() {
+            return solved == 0 ? -1 : bestMoves;
+        }
+
+        /**
+         * Returns the mean number of moves per solve, or -1 if nothing has been solved.
+         */
+        public double getMeanMoves() {
+            return solved == 0 ? -1 : (double) totalMoves / solved;
+        }
+
+        /**
+         * Returns the mean number of undos per solve, or -1 if nothing has been solved.
+         */
+        public double getMeanUndos() {
+            return solved == 0 ? -1 : (double) totalUndos / solved;
+        }
+
+        /**
+         * Estimates a solve time percentile to within about 5%.
+         *
+         * @param percentile A value from 0 to 100, such as 50 for the median.
+         * @return The estimated time, or -1 if nothing has been solved.
+         */
+        public long getTimePercentileMs(double percentile) {
+            if (solved == 0) {
+                return -1;
+            }
+            long rank = (long) Math.ceil(solved * Math.max(0, Math.min(100, percentile)) / 100.0);
+            long seen = 0;
+            for (int b = 0; b < BUCKETS; b++) {
+                seen += timeHistogram[b];
+                if (seen >= Math.max(1, rank)) {
+                    // Geometric middle of the bucket
+                    return Math.round(Math.pow(BUCKET_GROWTH, b + 0.5));
+                }
+            }
+            return Math.round(Math.pow(BUCKET_GROWTH, BUCKETS));
+        }
+
+        void write(DataOutputStream out) throws IOException {
+            out.writeInt(games);
+            out.writeInt(surrenders);
+            out.writeInt(solved);
+            out.writeLong(totalTimeMs);
+            out.writeInt(bestTimeMs);
+            out.writeLong(totalMoves);
+            out.writeInt(bestMoves);
+            out.writeLong(totalUndos);
+            // Histograms are sparse, so store only the filled buckets
+            int filled = 0;
+            for (int count : timeHistogram) {
+                if (count != 0) {
+                    filled++;
+                }
+            }
+            out.writeShort(filled);
+            for (int b = 0; b < BUCKETS; b++) {
+                if (timeHistogram[b] != 0) {
+                    out.writeShort(b);
+                    out.writeInt(timeHistogram[b]);
+                }
+            }
+        }
+
+        void read(DataInputStream in) throws IOException {
+            games = in.readInt();
+            surrenders = in.readInt();
+            solved = in.readInt();
+            totalTimeMs = in.readLong();
+            bestTimeMs = in.readInt();
+            totalMoves = in.readLong();
+            bestMoves = in.readInt();
+            totalUndos = in.readLong();
+            int filled = in.readShort();
+            for (int i = 0; i < filled; i++) {
+                int bucket = in.readShort();
+                if (bucket < 0 || bucket >= BUCKETS) {
+                    throw new IOException("Bad histogram bucket " + bucket);
+                }
+                timeHistogram[bucket] = in.readInt();
+            }
+        }
+    }
+
+    /**
+     * Opens the store, loading the aggregates or rebuilding them from the log.
+     * Reads and may repair the files, so call off the main thread.
+     *
+     * @param context Any context; used to locate the app's files directory.
+     */
+    public GameStatsStore(Context context) {
+        File dir = context.getFilesDir();
+        logFile = new File(dir, LOG_FILE);
+        aggregateFile = new File(dir, AGGREGATE_FILE);
+        truncatePartialRecord();
+        long logged = logFile.length() / RECORD_SIZE;
+        if (loadAggregates() && recordCount <= logged) {
+            // Catch up on games whose aggregates were not saved before the process died
+            if (recordCount < logged) {
+                replayLog(recordCount);
+            }
+        } else {
+            clearAggregates();
+            replayLog(0);
+        }
+    }
+
+    /**
+     * Records a finished game and updates every aggregate it belongs to.
+     *
+     * @param rows        Number of rows.
+     * @param cols        Number of columns.
+     * @param depth       Solution depth the puzzle was generated with.
+     * @param timeMs      Time spent playing, excluding time in the background.
+     * @param moves       Rotations made by the player.
+     * @param undos       Undos used.
+     * @param surrendered True if surrender mode was used.
+     */
+    public synchronized void recordGame(int rows, int cols, int depth, long timeMs,
+                                        int moves, int undos, boolean surrendered) {
+        int clampedTime = (int) Math.min(Integer.MAX_VALUE, Math.max(0, timeMs));
+        apply(rows, cols, depth, clampedTime, moves, undos, surrendered);
+
+        ByteBuffer record = ByteBuffer.allocate(RECORD_SIZE);
+        record.putLong(System.currentTimeMillis());
+        record.putInt(clampedTime);
+        record.putInt(moves);
+        record.putShort((short) Math.min(Short.MAX_VALUE, undos));
+        record.put((byte) rows);
+        record.put((byte) cols);
+        record.put((byte) depth);
+        record.put((byte) (surrendered ? FLAG_SURRENDERED : 0));
+        record.putShort((short) 0);
+        byte[] aggregates = serializeAggregates();
+
+        writer.execute(() -> {
+            try (FileOutputStream out = new FileOutputStream(logFile, true)) {
+                out.write(record.array());
+                out.getFD().sync();
+            } catch (IOException e) {
+                // The aggregates on disk stay as they were; the next saved ones count
+                // one record more than the log holds, which makes the next open rebuild
+                Log.e(TAG, "Failed to append game record", e);
+                truncatePartialRecord();
+                return;
+            }
+            writeAtomically(aggregates);
+        });
+    }
+
+    /**
+     * Returns the statistics over every recorded game.
+     */
+    public synchronized Aggregate getOverall() {
+        return overall;
+    }
+
+    /**
+     * Returns the statistics for one grid size, or null if none have been played.
+     */
+    public synchronized Aggregate getForSize(int rows, int cols) {
+        return bySize.get(sizeKey(rows, cols));
+    }
+
+    /**
+     * Returns the statistics for one solution depth, or null if none have been played.
+     */
+    public synchronized Aggregate getForDepth(int depth) {
+        return byDepth.get(depth);
+    }
+
+    /**
+     * Returns the number of games solved in a row without surrendering.
+     */
+    public synchronized int getCurrentStreak() {
+        return currentStreak;
+    }
+
+    /**
+     * Returns the longest run of games solved without surrendering.
+     */
+    public synchronized int getBestStreak() {
+        return bestStreak;
+    }
+
+    /**
+     * Deletes the log and every aggregate.
+     */
+    public synchronized void reset() {
+        clearAggregates();
+        writer.execute(() -> {
+            if ((logFile.exists() && !logFile.delete())
+                    || (aggregateFile.exists() && !aggregateFile.delete())) {
+                Log.w(TAG, "Failed to delete statistics files");
+            }
+        });
+    }
+
+    private void apply(int rows, int cols, int depth, int timeMs, int moves, int undos,
+                       boolean surrendered) {
+        overall.add(timeMs, moves, undos, surrendered);
+        aggregateFor(bySize, sizeKey(rows, cols)).add(timeMs, moves, undos, surrendered);
+        aggregateFor(byDepth, depth).add(timeMs, moves, undos, surrendered);
+        recordCount++;
+        if (surrendered) {
+            currentStreak = 0;
+        } else {
+            currentStreak++;
+            bestStreak = Math.max(bestStreak, currentStreak);
+        }
+    }
+
+    private static Aggregate aggregateFor(Map<Integer, Aggregate> groups, int key) {
+        Aggregate aggregate = groups.get(key);
+        if (aggregate == null) {
+            aggregate = new Aggregate();
+            groups.put(key, aggregate);
+        }
+        return aggregate;
+    }
+
+    private static int sizeKey(int rows, int cols) {
+        return (rows << 8) | cols;
+    }
+
+    private void clearAggregates() {
+        overall.clear();
+        bySize.clear();
+        byDepth.clear();
+        currentStreak = 0;
+        bestStreak = 0;
+        recordCount = 0;
+    }
+
+    private byte[] serializeAggregates() {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeInt(AGGREGATE_MAGIC);
+            out.writeInt(AGGREGATE_VERSION);
+            out.writeInt(currentStreak);
+            out.writeInt(bestStreak);
+            out.writeLong(recordCount);
+            overall.write(out);
+            writeGroups(out, bySize);
+            writeGroups(out, byDepth);
+        } catch (IOException e) {
+            // Writing to memory cannot fail
+            throw new IllegalStateException(e);
+        }
+        return bytes.toByteArray();
+    }
+
+    private static void writeGroups(DataOutputStream out, Map<Integer, Aggregate> groups)
+            throws IOException {
+        out.writeInt(groups.size());
+        for (Map.Entry<Integer, Aggregate> entry : groups.entrySet()) {
+            out.writeInt(entry.getKey());
+            entry.getValue().write(out);
+        }
+    }
+
+    private static void readGroups(DataInputStream in, Map<Integer, Aggregate> groups)
+            throws IOException {
+        int count = in.readInt();
+        for (int i = 0; i < count; i++) {
+            int key = in.readInt();
+            Aggregate aggregate = new Aggregate();
+            aggregate.read(in);
+            groups.put(key, aggregate);
+        }
+    }
+
+    /**
+     * Replaces the aggregate file via a temporary file so a crash mid-write
+     * leaves the previous version intact.
+     */
+    private void writeAtomically(byte[] aggregates) {
+        File temp = new File(aggregateFile.getPath() + ".tmp");
+        try (FileOutputStream out = new FileOutputStream(temp)) {
+            out.write(aggregates);
+            out.getFD().sync();
+        } catch (IOException e) {
+            Log.e(TAG, "Failed to write statistics", e);
+            return;
+        }
+        if (!temp.renameTo(aggregateFile)) {
+            Log.e(TAG, "Failed to replace statistics file");
+        }
+    }
+
+    /**
+     * Loads the persisted aggregates.
+     *
+     * @return False if the file is missing or unreadable.
+     */
+    private boolean loadAggregates() {
+        if (!aggregateFile.exists()) {
+            return false;
+        }
+        try (DataInputStream in = new DataInputStream(new FileInputStream(aggregateFile))) {
+            if (in.readInt() != AGGREGATE_MAGIC || in.readInt() != AGGREGATE_VERSION) {
+                return false;
+            }
+            currentStreak = in.readInt();
+            bestStreak = in.readInt();
+            recordCount = in.readLong();
+            overall.read(in);
+            readGroups(in, bySize);
+            readGroups(in, byDepth);
+            return true;
+        } catch (IOException e) {
+            Log.w(TAG, "Statistics file unreadable, rebuilding from log", e);
+            clearAggregates();
+            return false;
+        }
+    }
+
+    /**
+     * Cuts off a partial record at the end of the log, left by an interrupted
+     * append, so that the next append starts on a record boundary.
+     *
+     * @return True if the log was truncated.
+     */
+    private boolean truncatePartialRecord() {
+        long length = logFile.length();
+        long whole = (length / RECORD_SIZE) * RECORD_SIZE;
+        if (whole == length) {
+            return false;
+        }
+        try (RandomAccessFile file = new RandomAccessFile(logFile, "rw")) {
+            file.setLength(whole);
+            file.getFD().sync();
+        } catch (IOException e) {
+            Log.e(TAG, "Failed to truncate game log", e);
+        }
+        Log.w(TAG, "Dropped a partial game record of " + (length - whole) + " bytes");
+        return true;
+    }
+
+    /**
+     * Adds the records of the game log from a given one on to the aggregates,
+     * then saves them. Only whole records are read; see
+     * {@link #truncatePartialRecord()}.
+     *
+     * @param first The index of the first record to replay.
+     */
+    private void replayLog(long first) {
+        if (!logFile.exists()) {
+            return;
+        }
+        byte[] buffer = new byte[RECORD_SIZE];
+        try (FileInputStream in = new FileInputStream(logFile)) {
+            in.getChannel().position(first * RECORD_SIZE);
+            while (readFully(in, buffer)) {
+                ByteBuffer record = ByteBuffer.wrap(buffer);
+                record.getLong(); // timestamp
+                int timeMs = record.getInt();
+                int moves = record.getInt();
+                int undos = record.getShort();
+                int rows = record.get();
+                int cols = record.get();
+                int depth = record.get();
+                boolean surrendered = (record.get() & FLAG_SURRENDERED) != 0;
+                apply(rows, cols, depth, timeMs, moves, undos, surrendered);
+            }
+        } catch (IOException e) {
+            Log.e(TAG, "Failed to read game log", e);
+            return;
+        }
+        byte[] aggregates = serializeAggregates();
+        writer.execute(() -> writeAtomically(aggregates));
+    }
+
+    private static boolean readFully(InputStream in, byte[] buffer) throws IOException {
+        int read = 0;
+        while (read < buffer.length) {
+            int n = in.read(buffer, read, buffer.length - read);
+            if (n < 0) {
+                return false;
+            }
+            read += n;
+        }
+        return true;
+    }
+}
@@ -0,0 +1,293 @@
+package edu.commonwealthu.hw3_wight;
+
+import android.content.Context;
+import android.content.res.AssetFileDescriptor;
+import android.content.res.AssetManager;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.Process;
+import android.util.Log;
+
+import java.io.FileInputStream;
+import java.io.IOException;
+
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Suggests the best next rotation for a board within a fixed latency budget.
+ * The search runs on a worker thread; results are delivered on the main thread.
+ * Whenever an optimal solution is found, every board along it is cached with
+ * its next move, so hints that follow the optimal line are answered from the
+ * cache without searching. If the budget runs out, the move that most reduces
+ * the distance estimate is suggested instead.
+ * The cache is keyed by {@link BoardSymmetry#canonical canonical} board, so
+ * mirrored and turned boards share an entry.
+ * The cache belongs to one game; call {@link #clearCache()} when a new game starts.
+ * <p>
+ * Mid-size boards (10 to 12 tiles, such as 3x4) are searched with a
+ * {@link BidirectionalSolver}, whose frontier around solved is built once in
+ * the background when the engine is created and then shared by every hint.
+ * The worker builds it at background priority, so it does not compete with
+ * startup or the UI, and raises itself to display priority only while
+ * answering a hint. Other sizes use {@link PuzzleSolver} directly.
+ * <p>
+ * If an {@link EndgameTablebase} is bundled for the grid size (see
+ * {@link #loadTablebase}), boards close to solved are answered from it with a
+ * single lookup before any search is tried.
+ *
+ * @author Ethan Wight
+ */
+public class HintEngine {
+
+    /**
+     * Receives hint results on the main thread.
+     */
+    public interface Callback {
+        /**
+         * Called with the suggested move.
+         *
+         * @param board   The packed board the hint was computed for.
+         * @param move    The encoded move (see {@link PackedBoard}), or -1 if the board is solved.
+         * @param optimal True if the move lies on a shortest solution.
+         */
+        void onHint(long board, int move, boolean optimal);
+    }
+
+    private static final String TAG = "HintEngine";
+    private static final String TABLEBASE_DIRECTORY = "endgame/";
+    private static final String TABLEBASE_EXTENSION = ".rveg";
+    private static final long DEFAULT_BUDGET_MS = 50;
+    private static final int MAX_SEARCH_DEPTH = 40;
+    private static final int MAX_CACHE_ENTRIES = 8192;
+    private static final int MIN_BIDIRECTIONAL_TILES = 10;
+    private static final int MAX_BIDIRECTIONAL_TILES = 12;
+    // Lets the solved side of a 3x4 search reach six moves out
+    private static final long BIDIRECTIONAL_MEMORY_CAP = 64L * 1024 * 1024;
+    // Grid sizes already reported as having no tablebase, so each is logged once per process
+    private static final Set<String> missingTablebases = ConcurrentHashMap.newKeySet();
+
+    private final int rows;
+    private final int cols;
+    private final long budgetNanos;
+    private final PuzzleSolver solver;
+    private final BidirectionalSolver bidirectional;
+    private final BoardSymmetry symmetry;
+    private final Map<Long, Integer> optimalMoves = new ConcurrentHashMap<>();
+    private final ExecutorService worker;
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    private volatile EndgameTablebase tablebase;
+
+    /**
+     * Constructs a hint engine for one grid size with the default 50 ms budget.
+     *
+     * @param rows Number of rows.
+     * @param cols Number of columns.
+     */
+    public HintEngine(int rows, int cols) {
+        this(rows, cols, DEFAULT_BUDGET_MS);
+    }
+
+    /**
+     * Constructs a hint engine for one grid size.
+     *
+     * @param rows     Number of rows.
+     * @param cols     Number of columns.
+     * @param budgetMs The longest time to search before falling back to a heuristic move.
+     */
+    public HintEngine(int rows, int cols, long budgetMs) {
+        this.rows = rows;
+        this.cols = cols;
+        this.budgetNanos = TimeUnit.MILLISECONDS.toNanos(budgetMs);
+        this.solver = new PuzzleSolver(rows, cols);
+        this.symmetry = new BoardSymmetry(rows, cols);
+        int tiles = rows * cols;
+        this.bidirectional = tiles >= MIN_BIDIRECTIONAL_TILES && tiles <= MAX_BIDIRECTIONAL_TILES
+                ? new BidirectionalSolver(rows, cols, BIDIRECTIONAL_MEMORY_CAP) : null;
+        this.worker = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(() -> {
+                Process.setThreadPriority(Process.THREAD_PRIORITY_BACKGROUND);
+                runnable.run();
+            }, TAG);
+            thread.setDaemon(true);
+            return thread;
+        });
+        if (bidirectional != null) {
+            prepareBidirectional();
+        }
+    }
+
+    /**
+     * Opens the endgame tablebase bundled for this grid size, if there is one,
+     * on the worker thread. The app bundles 3x3 and 4x4 tables; hints work the
+     * same without one, only slower near the end of a game.
+     *
+     * @param context Any context; only the application's assets are used.
+     */
+    public void loadTablebase(Context context) {
+        AssetManager assets = context.getApplicationContext().getAssets();
+        String name = TABLEBASE_DIRECTORY + "revolution_" + rows + "x" + cols + TABLEBASE_EXTENSION;
+        worker.execute(() -> {
+            try (AssetFileDescriptor afd = assets.openFd(name);
+                 FileInputStream in = afd.createInputStream()) {
+                EndgameTablebase opened = EndgameTablebase.map(in.getChannel(),
+                        afd.getStartOffset(), afd.getLength());
+                if (opened.getRows() == rows && opened.getCols() == cols) {
+                    tablebase = opened;
+                } else {
+                    Log.w(TAG, "Tablebase " + name + " has the wrong grid size");
+                }
+            } catch (IOException e) {
+                // Missing or compressed asset: every hint is searched
+                if (missingTablebases.add(name)) {
+                    Log.d(TAG, "No endgame tablebase for " + rows + "x" + cols);
+                }
+            }
+        });
+    }
+
+    public int getRows() {
+        return rows;
+    }
+
+    public int getCols() {
+        return cols;
+    }
+
+    /**
+     * Requests a hint. A cached answer is delivered immediately; otherwise the
+     * search runs in the background and the callback is posted when done.
+     *
+     * @param board    The packed board to advise on.
+     * @param callback Receives the result on the main thread.
+     */
+    public void requestHint(long board, Callback callback) {
+        if (board == PackedBoard.solved(rows, cols)) {
+            callback.onHint(board, -1, true);
+            return;
+        }
+
+        int toCanonical = symmetry.canonicalSymmetry(board);
+        Integer cached = optimalMoves.get(symmetry.transform(board, toCanonical));
+        if (cached != null) {
+            callback.onHint(board, symmetry.transformMove(cached, symmetry.inverse(toCanonical)), true);
+            return;
+        }
+
+        cancelSearch();
+        worker.execute(() -> {
+            // The player is waiting on this one
+            Process.setThreadPriority(Process.THREAD_PRIORITY_DISPLAY);
+            EndgameTablebase endgame = tablebase;
+            int finishingMove = endgame != null ? endgame.bestMove(board) : -1;
+            if (finishingMove >= 0) {
+                mainHandler.post(() -> callback.onHint(board, finishingMove, true));
+                return;
+            }
+            int[] solution = search(board, System.nanoTime() + budgetNanos);
+            int move;
+            boolean optimal;
+            if (solution != null && solution.length > 0) {
+                cacheSolution(board, solution);
+                move = solution[0];
+                optimal = true;
+            } else {
+                move = bestHeuristicMove(board);
+                optimal = false;
+            }
+            mainHandler.post(() -> callback.onHint(board, move, optimal));
+        });
+    }
+
+    /**
+     * Searches for an optimal solution with the solver suited to the board size.
+     */
+    private int[] search(long board, long deadlineNanos) {
+        if (bidirectional == null) {
+            solver.reset();
+            return solver.solve(board, MAX_SEARCH_DEPTH, deadlineNanos);
+        }
+        bidirectional.reset();
+        int[] solution = bidirectional.solve(board, MAX_SEARCH_DEPTH, deadlineNanos);
+        // Resume growing the solved side if a hint request cut it short
+        try {
+            prepareBidirectional();
+        } catch (RejectedExecutionException e) {
+            // Shut down while searching; nothing left to prepare for
+        }
+        return solution;
+    }
+
+    /**
+     * Queues growing the bidirectional solver's solved side, at background
+     * priority.
+     */
+    private void prepareBidirectional() {
+        worker.execute(() -> {
+            Process.setThreadPriority(Process.THREAD_PRIORITY_BACKGROUND);
+            bidirectional.prepare();
+        });
+    }
+
+    private void cancelSearch() {
+        solver.cancel();
+        if (bidirectional != null) {
+            bidirectional.cancel();
+        }
+    }
+
+    /**
+     * Forgets all cached results. Call when a new game starts.
+     */
+    public void clearCache() {
+        optimalMoves.clear();
+    }
+
+    /**
+     * Cancels any search and stops the worker thread.
+     */
+    public void shutdown() {
+        cancelSearch();
+        worker.shutdownNow();
+        mainHandler.removeCallbacksAndMessages(null);
+    }
+
+    /**
+     * Records the next optimal move for every board along a solution, in the
+     * frame of each board's canonical form.
+     */
+    private void cacheSolution(long board, int[] solution) {
+        if (optimalMoves.size() + solution.length > MAX_CACHE_ENTRIES) {
+            optimalMoves.clear();
+        }
+        long current = board;
+        for (int move : solution) {
+            int toCanonical = symmetry.canonicalSymmetry(current);
+            optimalMoves.put(symmetry.transform(current, toCanonical),
+                    symmetry.transformMove(move, toCanonical));
+            current = PackedBoard.applyMove(current, cols, move);
+        }
+    }
+
+    /**
+     * Returns the move whose result has the smallest distance estimate.
+     */
+    private int bestHeuristicMove(long board) {
+        int bestMove = 0;
+        int bestScore = Integer.MAX_VALUE;
+        int moveCount = PackedBoard.moveCount(rows, cols);
+        for (int move = 0; move < moveCount; move++) {
+            int score = PackedBoard.heuristic(PackedBoard.applyMove(board, cols, move), rows, cols);
+            if (score < bestScore) {
+                bestScore = score;
+                bestMove = move;
+            }
+        }
+        return bestMove;
+    }
+}
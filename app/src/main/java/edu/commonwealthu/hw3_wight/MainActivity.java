@@ -1,30 +1,32 @@
 package edu.commonwealthu.hw3_wight;
 
-import android.animation.Animator;
-import android.animation.AnimatorListenerAdapter;
-import android.animation.AnimatorSet;
-import android.animation.ObjectAnimator;
 import android.content.Intent;
-import android.content.SharedPreferences;
-import android.media.MediaPlayer;
 import android.os.Bundle;
 import android.os.Handler;
 import android.os.Looper;
+import android.os.SystemClock;
 import android.text.SpannableString;
 import android.text.style.ForegroundColorSpan;
-import android.util.TypedValue;
 import android.view.Menu;
 import android.view.MenuItem;
-import android.view.animation.DecelerateInterpolator;
 import android.widget.AdapterView;
 import android.widget.ArrayAdapter;
 import android.widget.Button;
-import android.widget.GridLayout;
 import android.widget.NumberPicker;
 import android.widget.Spinner;
 import android.widget.Toast;
 
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayDeque;
+import java.util.List;
+import java.util.concurrent.Executor;
+
 import androidx.annotation.NonNull;
+import androidx.annotation.VisibleForTesting;
 import androidx.appcompat.app.AlertDialog;
 import androidx.appcompat.app.AppCompatActivity;
 import androidx.core.content.ContextCompat;
@@ -41,32 +43,45 @@ import com.google.android.material.appbar.MaterialToolbar;
 public class MainActivity extends AppCompatActivity {
 
     // Constants
-    private static final String PREFS_NAME = "RevolutionSettings";
-    private static final String KEY_SOUND_ENABLED = "sound_enabled";
     private static final String KEY_GAME_STATE = "gameState";
     private static final String KEY_GRID_ROWS = "gridRows";
     private static final String KEY_GRID_COLS = "gridCols";
     private static final String KEY_SELECTED_GRID_SIZE = "selectedGridSize";
+    private static final String KEY_PLAY_TIME = "playTime";
+    private static final String KEY_MOVES_MADE = "movesMade";
+    private static final String KEY_UNDOS_USED = "undosUsed";
 
     private static final int DEFAULT_SOLUTION_DEPTH = 5;
     private static final int MIN_SOLUTION_DEPTH = 1;
     private static final int MAX_SOLUTION_DEPTH = 20;
     private static final int DEFAULT_GRID_ROWS = 3;
     private static final int DEFAULT_GRID_COLS = 3;
-    private static final int SUBGRID_SIZE = 2;
 
     private static final long ROTATION_ANIMATION_DURATION = 400;
+    private static final long PREFETCH_DEBOUNCE_MS = 300;
     private static final long FLASH_INTERVAL_MS = 250;
     private static final int MAX_FLASH_COUNT = 10;
 
     // Game components
     private Revolution game;
-    private MilestonesManager milestonesManager;
-    private SharedPreferences preferences;
+    private ProgressStore progressStore;
+    private PuzzleGenerator puzzleGenerator;
+    private HintEngine hintEngine;
+    private SolutionStreamer solutionStreamer;
+    private GameAutosave autosave;
+
+    // Game events; the main-thread subscriptions are renewed for every game
+    private final GameEventBus gameEvents = new GameEventBus();
+    private Executor mainExecutor;
+    private GameEventBus.Subscription rendererSubscription;
+    private GameEventBus.Subscription resultSubscription;
+    private GameEventBus.Subscription soundSubscription;
 
     // UI components
-    private GridLayout gridLayout;
-    private Button[][] gameButtons;
+    private BoardView boardView;
+    private int[][] gridBuffer;
+    // Version of the snapshot the board view shows, or is animating towards
+    private long displayedVersion;
     private Button rotateLeftButton;
     private Button rotateRightButton;
     private Button undoButton;
@@ -79,7 +94,16 @@ public class MainActivity extends AppCompatActivity {
     private int currentSolutionDepth = DEFAULT_SOLUTION_DEPTH;
     private int selectedAnchorRow = -1;
     private int selectedAnchorCol = -1;
-    private boolean isAnimating = false;
+    private boolean isPlayingSolution = false;
+    private final ArrayDeque<Integer> pendingSolutionMoves = new ArrayDeque<>();
+    // Prefetches the depth the picker settled on
+    private final Runnable depthPrefetch = () -> puzzleGenerator.prefetch(currentRows, currentCols,
+            solutionDepthPicker.getValue());
+    // Per-game statistics; play time excludes time spent in the background
+    private long playTimeMs;
+    private long playClockStart = -1;
+    private int movesMade;
+    private int undosUsed;
     private boolean soundEnabled = true;
 
     // Colors
@@ -95,41 +119,72 @@ public class MainActivity extends AppCompatActivity {
     private int flashCount = 0;
 
     // Sound
-    private MediaPlayer rotationSoundPlayer;
-    private MediaPlayer winSoundPlayer;
+    private SoundEngine soundEngine;
+
+    // Instrumentation
+    private PerfOverlay perfOverlay;
+    private StartupTracer startupTracer;
 
+    /**
+     * Builds everything the first frame needs and defers the rest until the
+     * board is on screen.
+     */
     @Override
     protected void onCreate(Bundle savedInstanceState) {
-        SplashScreen.installSplashScreen(this);
-        super.onCreate(savedInstanceState);
-        setContentView(R.layout.activity_main);
+        startupTracer = new StartupTracer(this);
+        startupTracer.trace("splash", () -> SplashScreen.installSplashScreen(this));
+        startupTracer.trace("super", () -> super.onCreate(savedInstanceState));
+        startupTracer.trace("layout", () -> setContentView(R.layout.activity_main));
+
+        startupTracer.trace("components", () -> {
+            initializeComponents();
+            initializeColors();
+            setupToolbar();
+            setupControlListeners();
+        });
 
-        initializeComponents();
-        initializeColors();
-        setupToolbar();
-        setupControlListeners();
+        startupTracer.trace("board", () -> {
+            if (savedInstanceState != null) {
+                restoreState(savedInstanceState);
+            } else {
+                // Queued ahead of the new game's first save, so it reads the previous session
+                autosave.restore(this::resumeGame);
+                startNewGame(solutionDepthPicker.getValue());
+            }
+        });
 
-        if (savedInstanceState != null) {
-            restoreState(savedInstanceState);
-        } else {
-            startNewGame(solutionDepthPicker.getValue());
-        }
+        // Nothing the first frame needs; played sounds are dropped until this runs
+        startupTracer.defer("audio", this::initializeSoundEffects);
+        startupTracer.awaitFirstFrame();
     }
 
     /**
      * Initializes all UI components and managers.
      */
     private void initializeComponents() {
-        preferences = getSharedPreferences(PREFS_NAME, MODE_PRIVATE);
-        soundEnabled = preferences.getBoolean(KEY_SOUND_ENABLED, true);
-        milestonesManager = new MilestonesManager(this);
+        // Preloaded in the background since process start; never blocks on disk here
+        progressStore = ProgressStore.get(this);
+        soundEnabled = progressStore.isSoundEnabled();
+        puzzleGenerator = new PuzzleGenerator(new PuzzlePackRepository(this));
         flashHandler = new Handler(Looper.getMainLooper());
-
-        gridLayout = findViewById(R.id.grid);
+        perfOverlay = new PerfOverlay(this);
+        mainExecutor = ContextCompat.getMainExecutor(this);
+        autosave = new GameAutosave(this, gameEvents, progressStore.getIoExecutor());
+
+        boardView = findViewById(R.id.board);
+        boardView.setOnTileClickListener(this::onTileClicked);
+        boardView.setOnSwipeRotateListener(this::onSwipeRotate);
+        boardView.setRotationDuration(ROTATION_ANIMATION_DURATION);
+        boardView.setOnRotationsSettledListener(this::onRotationsSettled);
         solutionDepthPicker = findViewById(R.id.solutionDepthPicker);
         solutionDepthPicker.setMinValue(MIN_SOLUTION_DEPTH);
         solutionDepthPicker.setMaxValue(MAX_SOLUTION_DEPTH);
         solutionDepthPicker.setValue(DEFAULT_SOLUTION_DEPTH);
+        solutionDepthPicker.setOnValueChangedListener((picker, oldVal, newVal) -> {
+            // A fling passes through many values; only prefetch the one it stops on
+            picker.removeCallbacks(depthPrefetch);
+            picker.postDelayed(depthPrefetch, PREFETCH_DEBOUNCE_MS);
+        });
 
         gridSizeSpinner = findViewById(R.id.gridSizeSpinner);
         setupGridSizeSpinner();
@@ -138,7 +193,13 @@ public class MainActivity extends AppCompatActivity {
         rotateRightButton = findViewById(R.id.rotateRightButton);
         undoButton = findViewById(R.id.undoButton);
 
-        initializeSoundEffects();
+        progressStore.whenLoaded(store -> {
+            soundEnabled = store.isSoundEnabled();
+            if (soundEngine != null) {
+                soundEngine.setEnabled(soundEnabled);
+            }
+            invalidateOptionsMenu();
+        });
     }
 
     /**
@@ -154,6 +215,9 @@ public class MainActivity extends AppCompatActivity {
         flashColors[2] = ContextCompat.getColor(this, R.color.flash_magenta);
         flashColors[3] = ContextCompat.getColor(this, R.color.flash_cyan);
         flashColors[4] = ContextCompat.getColor(this, R.color.flash_red);
+
+        boardView.setColors(defaultButtonBackgroundColor, selectedButtonBackgroundColor,
+                ContextCompat.getColor(this, R.color.tile_text_color));
     }
 
     /**
@@ -193,6 +257,9 @@ public class MainActivity extends AppCompatActivity {
                 // (avoids restarting during initial setup)
                 if (game != null && (previousRows != currentRows || previousCols != currentCols)) {
                     startNewGame(solutionDepthPicker.getValue());
+                } else {
+                    puzzleGenerator.prefetch(currentRows, currentCols,
+                            solutionDepthPicker.getValue());
                 }
             }
 
@@ -213,98 +280,156 @@ public class MainActivity extends AppCompatActivity {
     }
 
     /**
-     * Initializes sound effect players.
+     * Starts loading sound effects in the background. Deferred until after the
+     * first frame.
      */
     private void initializeSoundEffects() {
-        try {
-            rotationSoundPlayer = MediaPlayer.create(this, R.raw.rotation_sound);
-            if (rotationSoundPlayer != null) {
-                rotationSoundPlayer.setOnCompletionListener(mp -> mp.seekTo(0));
-            }
-
-            winSoundPlayer = MediaPlayer.create(this, R.raw.win_sound);
-            if (winSoundPlayer != null) {
-                winSoundPlayer.setOnCompletionListener(mp -> mp.seekTo(0));
-            }
-        } catch (Exception e) {
-            rotationSoundPlayer = null;
-            winSoundPlayer = null;
-        }
+        soundEngine = new SoundEngine(this);
+        soundEngine.setEnabled(soundEnabled);
+        soundSubscription = soundEngine.follow(gameEvents);
     }
 
     /**
      * Starts a new game with the specified solution depth.
      */
     private void startNewGame(int solDepth) {
+        // Prefetched in the background; only falls back to a synchronous scramble on a miss
+        startGame(puzzleGenerator.take(currentRows, currentCols, solDepth), solDepth, 0, 0);
+    }
+
+    /**
+     * Shows a game from its start, or from where a previous session left it.
+     */
+    private void startGame(Revolution newGame, int solDepth, int moves, int undos) {
         stopFlashAnimation();
+        stopSolutionPlayback();
 
         currentSolutionDepth = solDepth;
-        game = new Revolution(currentRows, currentCols, solDepth);
+        movesMade = moves;
+        undosUsed = undos;
+        attachGame(newGame);
+        resetHintEngine();
         selectedAnchorRow = -1;
         selectedAnchorCol = -1;
-        gameButtons = new Button[currentRows][currentCols];
+        playTimeMs = 0;
+        playClockStart = -1;
+        startPlayClock();
 
         populateGrid();
         updateUndoButton();
-        setGridButtonsEnabled(true);
+        setBoardEnabled(true);
         updateSurrenderModeUI();
     }
 
     /**
-     * Populates the grid with buttons representing the puzzle tiles.
+     * Makes a game the one on screen and subscribes to its events. The
+     * main-thread subscribers are replaced, so events the previous game left
+     * queued are dropped instead of being applied to the new board. The
+     * game's move and undo counts must already be set, as the autosave
+     * starts from them.
      */
-    private void populateGrid() {
-        gridLayout.removeAllViews();
-        gridLayout.setColumnCount(currentCols);
-        gridLayout.setRowCount(currentRows);
-
-        int[][] currentGridState = game.getGrid();
-        int screenWidth = getResources().getDisplayMetrics().widthPixels;
-        int maxGridWidth = Math.min(screenWidth - 100, 800);
-        int buttonSize = (maxGridWidth - 40) / Math.max(currentRows, currentCols);
-        int margin = 4;
-        float textSize = buttonSize / 3f;
-
-        for (int r = 0; r < currentRows; r++) {
-            for (int c = 0; c < currentCols; c++) {
-                Button tileButton = createTileButton(currentGridState[r][c], buttonSize, textSize, margin, r, c);
-                gameButtons[r][c] = tileButton;
-                gridLayout.addView(tileButton);
-            }
+    private void attachGame(Revolution newGame) {
+        if (game != null) {
+            game.setEventBus(null);
+        }
+        if (rendererSubscription != null) {
+            rendererSubscription.cancel();
+            resultSubscription.cancel();
         }
+        game = newGame;
+        game.setEventBus(gameEvents);
+        rendererSubscription = gameEvents.subscribe(mainExecutor,
+                GameEventBus.Delivery.ALL, this::renderEvents);
+        resultSubscription = gameEvents.subscribe(mainExecutor,
+                GameEventBus.Delivery.ALL, this::recordEvents);
+        autosave.begin(game, currentSolutionDepth, movesMade, undosUsed);
+    }
 
-        gridLayout.requestLayout();
-        clearSubgridHighlight();
+    /**
+     * Replaces a fresh game with the one saved by a previous session, if the
+     * player has not touched the fresh one yet and its size is offered.
+     */
+    private void resumeGame(Revolution saved, int solDepth, int moves, int undos) {
+        int position = gridSizePosition(saved.getSnapshot().getRows(), saved.getSnapshot().getCols());
+        if (position < 0 || movesMade > 0 || undosUsed > 0 || game.isSurrenderMode()
+                || solDepth < MIN_SOLUTION_DEPTH || solDepth > MAX_SOLUTION_DEPTH) {
+            return;
+        }
+        // Set first, so the spinner's selection callback sees no change of size
+        currentRows = saved.getSnapshot().getRows();
+        currentCols = saved.getSnapshot().getCols();
+        gridSizeSpinner.setSelection(position);
+        solutionDepthPicker.setValue(solDepth);
+        startGame(saved, solDepth, moves, undos);
     }
 
     /**
-     * Creates a single tile button with proper styling.
+     * Returns the grid size spinner position for a size, or -1 if it is not offered.
      */
-    private Button createTileButton(int value, int size, float textSize, int margin, int row, int col) {
-        Button tileButton = new Button(this);
-        tileButton.setText(String.valueOf(value));
-        tileButton.setTextSize(TypedValue.COMPLEX_UNIT_PX, textSize);
-        tileButton.setTextColor(ContextCompat.getColor(this, R.color.tile_text_color));
+    private static int gridSizePosition(int rows, int cols) {
+        if (rows == 3 && cols == 3) {
+            return 0;
+        } else if (rows == 3 && cols == 4) {
+            return 1;
+        } else if (rows == 4 && cols == 4) {
+            return 2;
+        }
+        return -1;
+    }
 
-        int backgroundColor = game.isSurrenderMode() ?
-                surrenderModeBackgroundColor : defaultButtonBackgroundColor;
-        tileButton.setBackgroundColor(backgroundColor);
+    /**
+     * Ensures the hint engine matches the current grid size and holds no
+     * results from a previous game.
+     */
+    private void resetHintEngine() {
+        if (hintEngine != null && hintEngine.getRows() == currentRows
+                && hintEngine.getCols() == currentCols) {
+            hintEngine.clearCache();
+            return;
+        }
+        if (hintEngine != null) {
+            hintEngine.shutdown();
+        }
+        hintEngine = new HintEngine(currentRows, currentCols);
+        hintEngine.loadTablebase(this);
+    }
 
-        GridLayout.LayoutParams params = new GridLayout.LayoutParams();
-        params.width = size;
-        params.height = size;
-        params.setMargins(margin, margin, margin, margin);
-        tileButton.setLayoutParams(params);
+    /**
+     * Requests a hint and highlights the suggested subgrid when it arrives.
+     */
+    private void showHint() {
+        if (isPlayingSolution || game.isOver()) {
+            return;
+        }
+        hintEngine.requestHint(game.getPackedBoard(), (board, move, optimal) -> {
+            // Ignore results for a board the player has already moved away from
+            if (move < 0 || isPlayingSolution || board != game.getPackedBoard()) {
+                return;
+            }
+            selectedAnchorRow = PackedBoard.moveRow(currentCols, move);
+            selectedAnchorCol = PackedBoard.moveCol(currentCols, move);
+            highlightSubgrid(selectedAnchorRow, selectedAnchorCol);
+            Toast.makeText(this, PackedBoard.isClockwise(move) ?
+                    getString(R.string.hint_rotate_right) :
+                    getString(R.string.hint_rotate_left), Toast.LENGTH_SHORT).show();
+        });
+    }
 
-        tileButton.setOnClickListener(v -> onTileClicked(row, col));
-        return tileButton;
+    /**
+     * Shows the current game on the board view.
+     */
+    @VisibleForTesting
+    void populateGrid() {
+        boardView.setBoard(game.getGrid());
+        displayedVersion = game.getSnapshot().getVersion();
+        clearSubgridHighlight();
     }
 
     /**
      * Handles tile click events.
      */
     private void onTileClicked(int r, int c) {
-        if (isAnimating) return;
+        if (isPlayingSolution) return;
 
         boolean isValidAnchor = r < currentRows - 1 && c < currentCols - 1;
 
@@ -326,18 +451,22 @@ public class MainActivity extends AppCompatActivity {
         }
     }
 
+    /**
+     * Rotates the subgrid a circular swipe went around, in one gesture.
+     */
+    private void onSwipeRotate(int anchorRow, int anchorCol, boolean isLeftRotation) {
+        if (isPlayingSolution || game.isOver()) {
+            return;
+        }
+        applyRotation(anchorRow, anchorCol, isLeftRotation);
+        perfOverlay.onMoveApplied(boardView.getSwipeEventTimeNanos());
+    }
+
     /**
      * Highlights the selected 2x2 subgrid.
      */
     private void highlightSubgrid(int anchorRow, int anchorCol) {
-        clearSubgridHighlight();
-        for (int i = anchorRow; i < anchorRow + SUBGRID_SIZE; i++) {
-            for (int j = anchorCol; j < anchorCol + SUBGRID_SIZE; j++) {
-                if (gameButtons[i][j] != null) {
-                    gameButtons[i][j].setBackgroundColor(selectedButtonBackgroundColor);
-                }
-            }
-        }
+        boardView.setHighlight(anchorRow, anchorCol);
     }
 
     /**
@@ -347,152 +476,135 @@ public class MainActivity extends AppCompatActivity {
         int baseColor = game.isSurrenderMode() ?
                 surrenderModeBackgroundColor : defaultButtonBackgroundColor;
 
-        for (int i = 0; i < currentRows; i++) {
-            for (int j = 0; j < currentCols; j++) {
-                if (gameButtons[i][j] != null) {
-                    gameButtons[i][j].setBackgroundColor(baseColor);
-                }
-            }
-        }
+        boardView.clearFlashColor();
+        boardView.setTileColor(baseColor);
+        boardView.clearHighlight();
     }
 
     /**
-     * Rotates the selected subgrid with animation.
+     * Rotates the selected subgrid. The move is applied to the game at once;
+     * animation and sound follow from the game's events, so input is never
+     * blocked by an animation still in progress.
      */
     private void rotateSelectedSubgrid(boolean isLeftRotation) {
-        if (isAnimating) {
-            Toast.makeText(this, "Animation in progress...", Toast.LENGTH_SHORT).show();
+        // A solved game locks the board once its event has been handled
+        if (isPlayingSolution || game.isOver()) {
             return;
         }
 
         if (selectedAnchorRow != -1 && selectedAnchorCol != -1) {
-            playSound(rotationSoundPlayer);
-            animateRotation(selectedAnchorRow, selectedAnchorCol, isLeftRotation);
+            // Click events carry no timestamp, so latency is measured from the click handler
+            long inputNanos = System.nanoTime();
+            applyRotation(selectedAnchorRow, selectedAnchorCol, isLeftRotation);
+            perfOverlay.onMoveApplied(inputNanos);
         } else {
             Toast.makeText(this, getString(R.string.subgrid_selection_prompt), Toast.LENGTH_SHORT).show();
         }
     }
 
     /**
-     * Animates the rotation of a 2x2 subgrid.
+     * Applies a rotation to the game and resets the selection. Everything the
+     * move sets off is driven by the events the game publishes: see
+     * {@link #renderEvents}, {@link #recordEvents}, {@link SoundEngine#follow}
+     * and {@link GameAutosave}.
      */
-    private void animateRotation(int anchorRow, int anchorCol, boolean isLeftRotation) {
-        isAnimating = true;
-        setControlsEnabled(false);
-
-        Button topLeft = gameButtons[anchorRow][anchorCol];
-        Button topRight = gameButtons[anchorRow][anchorCol + 1];
-        Button bottomLeft = gameButtons[anchorRow + 1][anchorCol];
-        Button bottomRight = gameButtons[anchorRow + 1][anchorCol + 1];
-
-        int buttonWidth = topLeft.getWidth();
-        int buttonHeight = topLeft.getHeight();
-        float rotationAngle = isLeftRotation ? -360f : 360f;
-
-        AnimatorSet animatorSet = new AnimatorSet();
-
+    private void applyRotation(int anchorRow, int anchorCol, boolean isLeftRotation) {
         if (isLeftRotation) {
-            animatorSet.playTogether(
-                    createTileAnimation(topLeft, 0, buttonHeight, rotationAngle),
-                    createTileAnimation(topRight, -buttonWidth, 0, rotationAngle),
-                    createTileAnimation(bottomRight, 0, -buttonHeight, rotationAngle),
-                    createTileAnimation(bottomLeft, buttonWidth, 0, rotationAngle)
-            );
+            game.rotateLeft(anchorRow, anchorCol);
         } else {
-            animatorSet.playTogether(
-                    createTileAnimation(topLeft, buttonWidth, 0, rotationAngle),
-                    createTileAnimation(topRight, 0, buttonHeight, rotationAngle),
-                    createTileAnimation(bottomRight, -buttonWidth, 0, rotationAngle),
-                    createTileAnimation(bottomLeft, 0, -buttonHeight, rotationAngle)
-            );
+            game.rotateRight(anchorRow, anchorCol);
+        }
+        if (!isPlayingSolution) {
+            movesMade++;
         }
 
-        animatorSet.setDuration(ROTATION_ANIMATION_DURATION);
-        animatorSet.setInterpolator(new DecelerateInterpolator());
-        animatorSet.addListener(new AnimatorListenerAdapter() {
-            @Override
-            public void onAnimationEnd(Animator animation) {
-                if (isLeftRotation) {
-                    game.rotateLeft(anchorRow, anchorCol);
-                } else {
-                    game.rotateRight(anchorRow, anchorCol);
-                }
-
-                resetTileProperties(topLeft, topRight, bottomLeft, bottomRight);
-                updateGridNumbers();
-                clearSubgridHighlight();
-                selectedAnchorRow = -1;
-                selectedAnchorCol = -1;
-
-                isAnimating = false;
-                setControlsEnabled(true);
-                updateUndoButton();
+        clearSubgridHighlight();
+        selectedAnchorRow = -1;
+        selectedAnchorCol = -1;
+        updateUndoButton();
+    }
 
-                if (game.isOver()) {
-                    onPuzzleSolved();
+    /**
+     * Brings the board view up to date with a batch of game events. Undo is
+     * not animated, so the board jumps to the state after the batch's last
+     * undo and only the moves after it are queued for animation. Boards
+     * already shown by {@link #populateGrid()} are skipped.
+     */
+    private void renderEvents(List<GameEvent> events) {
+        int first = 0;
+        for (int i = events.size() - 1; i >= 0; i--) {
+            if (events.get(i).getType() == GameEvent.Type.UNDO) {
+                BoardSnapshot snapshot = events.get(i).getSnapshot();
+                if (snapshot.getVersion() > displayedVersion) {
+                    showSnapshot(snapshot);
                 }
+                first = i + 1;
+                break;
             }
-        });
-
-        animatorSet.start();
+        }
+        for (int i = first; i < events.size(); i++) {
+            GameEvent event = events.get(i);
+            if (event.getType() == GameEvent.Type.MOVE_APPLIED
+                    && event.getSnapshot().getVersion() > displayedVersion) {
+                int move = event.getMove();
+                boardView.enqueueRotation(PackedBoard.moveRow(currentCols, move),
+                        PackedBoard.moveCol(currentCols, move), !PackedBoard.isClockwise(move));
+                displayedVersion = event.getSnapshot().getVersion();
+            }
+        }
     }
 
     /**
-     * Creates animation set for a single tile.
+     * Handles the outcome of the game once it is reached.
      */
-    private AnimatorSet createTileAnimation(Button button, float deltaX, float deltaY, float rotation) {
-        AnimatorSet animatorSet = new AnimatorSet();
-        animatorSet.playTogether(
-                ObjectAnimator.ofFloat(button, "translationX", 0f, deltaX),
-                ObjectAnimator.ofFloat(button, "translationY", 0f, deltaY),
-                ObjectAnimator.ofFloat(button, "rotation", 0f, rotation),
-                ObjectAnimator.ofFloat(button, "scaleX", 1f, 1.15f, 1f),
-                ObjectAnimator.ofFloat(button, "scaleY", 1f, 1.15f, 1f),
-                ObjectAnimator.ofFloat(button, "alpha", 1f, 0.85f, 1f),
-                ObjectAnimator.ofFloat(button, "elevation", 0f, 12f, 0f)
-        );
-        return animatorSet;
+    private void recordEvents(List<GameEvent> events) {
+        for (GameEvent event : events) {
+            if (event.getType() == GameEvent.Type.SOLVED) {
+                onPuzzleSolved();
+            }
+        }
     }
 
     /**
-     * Resets animation properties for buttons.
+     * Continues solution playback once the board has finished animating.
      */
-    private void resetTileProperties(Button... buttons) {
-        for (Button button : buttons) {
-            button.setTranslationX(0f);
-            button.setTranslationY(0f);
-            button.setRotation(0f);
-            button.setScaleX(1f);
-            button.setScaleY(1f);
-            button.setAlpha(1f);
-            button.setElevation(0f);
+    private void onRotationsSettled() {
+        if (isPlayingSolution) {
+            playNextSolutionMove();
         }
     }
 
     /**
-     * Updates grid button numbers after a move.
+     * Updates the board numbers after a move.
      */
-    private void updateGridNumbers() {
-        int[][] currentGridState = game.getGrid();
-        for (int r = 0; r < currentRows; r++) {
-            for (int c = 0; c < currentCols; c++) {
-                if (gameButtons[r][c] != null) {
-                    gameButtons[r][c].setText(String.valueOf(currentGridState[r][c]));
-                }
-            }
+    @VisibleForTesting
+    void updateGridNumbers() {
+        showSnapshot(game.getSnapshot());
+    }
+
+    /**
+     * Shows a board without animating, invalidating only the tiles that changed.
+     */
+    private void showSnapshot(BoardSnapshot snapshot) {
+        if (gridBuffer == null || gridBuffer.length != currentRows
+                || gridBuffer[0].length != currentCols) {
+            gridBuffer = new int[currentRows][currentCols];
         }
+        snapshot.copyInto(gridBuffer);
+        boardView.updateTiles(gridBuffer);
+        displayedVersion = snapshot.getVersion();
     }
 
     /**
      * Performs undo operation.
      */
     private void performUndo() {
-        if (isAnimating || !game.undo()) {
+        if (isPlayingSolution || game.isOver() || !game.undo()) {
             Toast.makeText(this, getString(R.string.undo_error), Toast.LENGTH_SHORT).show();
             return;
         }
+        undosUsed++;
 
-        updateGridNumbers();
         clearSubgridHighlight();
         selectedAnchorRow = -1;
         selectedAnchorCol = -1;
@@ -502,20 +614,53 @@ public class MainActivity extends AppCompatActivity {
                 getString(R.string.undo_surrender_success, game.remainingUndos()) :
                 getString(R.string.undo_success);
         Toast.makeText(this, message, Toast.LENGTH_SHORT).show();
+    }
 
-        if (game.isOver()) {
-            onPuzzleSolved();
+    /**
+     * Handles puzzle completion. The win sound and clearing the autosave
+     * follow from the same event, on their own threads.
+     */
+    private void onPuzzleSolved() {
+        stopSolutionPlayback();
+        stopPlayClock();
+        int rows = currentRows;
+        int cols = currentCols;
+        int depth = currentSolutionDepth;
+        long timeMs = playTimeMs;
+        int moves = movesMade;
+        int undos = undosUsed;
+        boolean surrendered = game.isSurrenderMode();
+        // Both stores update in memory and write to disk in the background
+        progressStore.whenLoaded(store -> {
+            if (!surrendered) {
+                for (MilestoneRule unlocked : store.getMilestones().recordCompletion(
+                        rows, cols, depth)) {
+                    Toast.makeText(this, getString(R.string.milestone_unlocked,
+                            getString(unlocked.getTitleRes())), Toast.LENGTH_LONG).show();
+                }
+            }
+            store.getStats().recordGame(rows, cols, depth, timeMs, moves, undos, surrendered);
+        });
+        showVictoryAnimation();
+    }
+
+    /**
+     * Starts timing the current game if it is still being played.
+     */
+    private void startPlayClock() {
+        if (playClockStart < 0 && game != null && !game.isOver()) {
+            playClockStart = SystemClock.elapsedRealtime();
         }
     }
 
     /**
-     * Handles puzzle completion.
+     * Adds the time since {@link #startPlayClock()} to the game's play time.
      */
-    private void onPuzzleSolved() {
-        if (!game.isSurrenderMode()) {
-            milestonesManager.recordCompletion(currentRows, currentCols, currentSolutionDepth);
+    private void stopPlayClock() {
+        if (playClockStart >= 0) {
+            playTimeMs += SystemClock.elapsedRealtime() - playClockStart;
+            playClockStart = -1;
         }
-        showVictoryAnimation();
     }
 
     /**
@@ -523,9 +668,8 @@ public class MainActivity extends AppCompatActivity {
      */
     private void showVictoryAnimation() {
         Toast.makeText(this, getString(R.string.congratulations), Toast.LENGTH_LONG).show();
-        setGridButtonsEnabled(false);
+        setBoardEnabled(false);
         undoButton.setEnabled(false);
-        playSound(winSoundPlayer);
 
         flashCount = 0;
         flashColorIndex = 0;
@@ -537,14 +681,7 @@ public class MainActivity extends AppCompatActivity {
                     return;
                 }
 
-                int currentColor = flashColors[flashColorIndex % flashColors.length];
-                for (int i = 0; i < currentRows; i++) {
-                    for (int j = 0; j < currentCols; j++) {
-                        if (gameButtons[i][j] != null) {
-                            gameButtons[i][j].setBackgroundColor(currentColor);
-                        }
-                    }
-                }
+                boardView.setFlashColor(flashColors[flashColorIndex % flashColors.length]);
 
                 flashColorIndex++;
                 flashCount++;
@@ -568,7 +705,7 @@ public class MainActivity extends AppCompatActivity {
      */
     private void updateUndoButton() {
         boolean canUndo = game != null && game.canUndo();
-        undoButton.setEnabled(canUndo && !isAnimating);
+        undoButton.setEnabled(canUndo && !isPlayingSolution);
 
         if (game != null && game.isSurrenderMode() && canUndo) {
             undoButton.setText(getString(R.string.undo_with_count, game.remainingUndos()));
@@ -584,20 +721,14 @@ public class MainActivity extends AppCompatActivity {
         rotateLeftButton.setEnabled(enabled);
         rotateRightButton.setEnabled(enabled);
         undoButton.setEnabled(enabled && game.canUndo());
-        setGridButtonsEnabled(enabled);
+        setBoardEnabled(enabled);
     }
 
     /**
-     * Enables or disables grid buttons.
+     * Enables or disables tile input on the board.
      */
-    private void setGridButtonsEnabled(boolean enabled) {
-        for (int i = 0; i < currentRows; i++) {
-            for (int j = 0; j < currentCols; j++) {
-                if (gameButtons[i][j] != null) {
-                    gameButtons[i][j].setEnabled(enabled);
-                }
-            }
-        }
+    private void setBoardEnabled(boolean enabled) {
+        boardView.setEnabled(enabled);
     }
 
     /**
@@ -625,34 +756,86 @@ public class MainActivity extends AppCompatActivity {
                     Toast.makeText(this, getString(R.string.surrender_mode_enabled,
                             game.remainingUndos()), Toast.LENGTH_LONG).show();
                 })
-                .setNeutralButton(R.string.surrender_show_all, (dialog, which) -> {
-                    game.enableSurrenderMode();
-                    int undoCount = game.revealFullSolution();
-                    updateGridNumbers();
-                    updateSurrenderModeUI();
-                    updateUndoButton();
-                    Toast.makeText(this, getString(R.string.solution_revealed, undoCount),
-                            Toast.LENGTH_LONG).show();
-                    if (game.isOver()) {
-                        showVictoryAnimation();
-                    }
-                })
+                .setNeutralButton(R.string.surrender_show_all, (dialog, which) ->
+                        playShortestSolution())
                 .setNegativeButton(android.R.string.cancel, null)
                 .show();
     }
 
+    /**
+     * Enables surrender mode and animates a shortest solution from the current
+     * board. Moves are animated as soon as the background search delivers them.
+     */
+    private void playShortestSolution() {
+        game.enableSurrenderMode();
+        updateSurrenderModeUI();
+        selectedAnchorRow = -1;
+        selectedAnchorCol = -1;
+
+        if (game.isOver()) {
+            playSound(SoundEngine.SOUND_WIN);
+            showVictoryAnimation();
+            return;
+        }
+
+        isPlayingSolution = true;
+        setControlsEnabled(false);
+        Toast.makeText(this, getString(R.string.solution_computing), Toast.LENGTH_SHORT).show();
+
+        solutionStreamer = new SolutionStreamer(currentRows, currentCols);
+        solutionStreamer.start(game.getKnownSolutionPath(), new SolutionStreamer.Listener() {
+            @Override
+            public void onMove(int move) {
+                pendingSolutionMoves.add(move);
+                playNextSolutionMove();
+            }
+
+            @Override
+            public void onComplete(int totalMoves, boolean optimal) {
+                Toast.makeText(MainActivity.this, optimal ?
+                        getString(R.string.solution_revealed_optimal, totalMoves) :
+                        getString(R.string.solution_revealed, totalMoves),
+                        Toast.LENGTH_LONG).show();
+            }
+        });
+    }
+
+    /**
+     * Plays the next streamed solution move if the board is idle. Solution moves
+     * are fed one at a time so each is animated in full rather than collapsed.
+     */
+    private void playNextSolutionMove() {
+        // The last move may not have reached the board view yet
+        if (boardView.isRotating() || pendingSolutionMoves.isEmpty()
+                || displayedVersion != game.getSnapshot().getVersion()) {
+            return;
+        }
+        int move = pendingSolutionMoves.poll();
+        applyRotation(PackedBoard.moveRow(currentCols, move),
+                PackedBoard.moveCol(currentCols, move), !PackedBoard.isClockwise(move));
+    }
+
+    /**
+     * Cancels the solution search and discards moves not yet animated.
+     */
+    private void stopSolutionPlayback() {
+        if (solutionStreamer != null) {
+            solutionStreamer.cancel();
+            solutionStreamer = null;
+        }
+        pendingSolutionMoves.clear();
+        if (isPlayingSolution) {
+            isPlayingSolution = false;
+            setControlsEnabled(true);
+        }
+    }
+
     /**
      * Plays a sound effect if enabled.
      */
-    private void playSound(MediaPlayer player) {
-        if (soundEnabled && player != null) {
-            try {
-                if (player.isPlaying()) {
-                    player.seekTo(0);
-                } else {
-                    player.start();
-                }
-            } catch (Exception ignored) {}
+    private void playSound(int sound) {
+        if (soundEnabled && soundEngine != null) {
+            soundEngine.play(sound);
         }
     }
 
@@ -661,7 +844,10 @@ public class MainActivity extends AppCompatActivity {
      */
     private void setSoundEnabled(boolean enabled) {
         soundEnabled = enabled;
-        preferences.edit().putBoolean(KEY_SOUND_ENABLED, enabled).apply();
+        if (soundEngine != null) {
+            soundEngine.setEnabled(enabled);
+        }
+        progressStore.setSoundEnabled(enabled);
         String message = enabled ? getString(R.string.sound_enabled) : getString(R.string.sound_disabled);
         Toast.makeText(this, message, Toast.LENGTH_SHORT).show();
     }
@@ -686,6 +872,10 @@ public class MainActivity extends AppCompatActivity {
         outState.putInt(KEY_GRID_ROWS, currentRows);
         outState.putInt(KEY_GRID_COLS, currentCols);
         outState.putInt(KEY_SELECTED_GRID_SIZE, gridSizeSpinner.getSelectedItemPosition());
+        long clockRunning = playClockStart >= 0 ? SystemClock.elapsedRealtime() - playClockStart : 0;
+        outState.putLong(KEY_PLAY_TIME, playTimeMs + clockRunning);
+        outState.putInt(KEY_MOVES_MADE, movesMade);
+        outState.putInt(KEY_UNDOS_USED, undosUsed);
     }
 
     /**
@@ -696,8 +886,13 @@ public class MainActivity extends AppCompatActivity {
         currentCols = savedInstanceState.getInt(KEY_GRID_COLS, DEFAULT_GRID_COLS);
         int selectedPosition = savedInstanceState.getInt(KEY_SELECTED_GRID_SIZE, 0);
         gridSizeSpinner.setSelection(selectedPosition);
-        game = (Revolution) savedInstanceState.getSerializable(KEY_GAME_STATE);
-        gameButtons = new Button[currentRows][currentCols];
+        playTimeMs = savedInstanceState.getLong(KEY_PLAY_TIME);
+        movesMade = savedInstanceState.getInt(KEY_MOVES_MADE);
+        undosUsed = savedInstanceState.getInt(KEY_UNDOS_USED);
+        attachGame((Revolution) savedInstanceState.getSerializable(KEY_GAME_STATE));
+        playClockStart = -1;
+        startPlayClock();
+        resetHintEngine();
         populateGrid();
         updateUndoButton();
     }
@@ -711,13 +906,25 @@ public class MainActivity extends AppCompatActivity {
             soundItem.setChecked(soundEnabled);
         }
 
+        // Titles are only seen once the overflow opens, so styling them can wait
+        startupTracer.defer("menu", () -> colorMenuItems(menu));
+
+        return true;
+    }
+
+    /**
+     * Applies the menu text color to every item title.
+     */
+    private void colorMenuItems(Menu menu) {
         colorMenuItem(menu.findItem(R.id.action_sound_toggle), R.string.sound_effects);
+        colorMenuItem(menu.findItem(R.id.action_hint), R.string.hint);
         colorMenuItem(menu.findItem(R.id.action_milestones), R.string.milestones);
+        colorMenuItem(menu.findItem(R.id.action_race), R.string.race);
         colorMenuItem(menu.findItem(R.id.action_surrender), R.string.surrender);
+        colorMenuItem(menu.findItem(R.id.action_perf_overlay), R.string.perf_overlay);
+        colorMenuItem(menu.findItem(R.id.action_perf_export), R.string.perf_export);
         colorMenuItem(menu.findItem(R.id.action_about), R.string.about);
         colorMenuItem(menu.findItem(R.id.action_exit), R.string.exit);
-
-        return true;
     }
 
     @Override
@@ -732,6 +939,11 @@ public class MainActivity extends AppCompatActivity {
             soundItem.setChecked(soundEnabled);
         }
 
+        MenuItem perfItem = menu.findItem(R.id.action_perf_overlay);
+        if (perfItem != null) {
+            perfItem.setChecked(perfOverlay.isEnabled());
+        }
+
         return super.onPrepareOptionsMenu(menu);
     }
 
@@ -743,12 +955,28 @@ public class MainActivity extends AppCompatActivity {
             setSoundEnabled(!soundEnabled);
             item.setChecked(soundEnabled);
             return true;
+        } else if (itemId == R.id.action_hint) {
+            showHint();
+            return true;
         } else if (itemId == R.id.action_milestones) {
             startActivity(new Intent(this, MilestonesActivity.class));
             return true;
+        } else if (itemId == R.id.action_race) {
+            startActivity(new Intent(this, RaceActivity.class)
+                    .putExtra(RaceActivity.EXTRA_ROWS, currentRows)
+                    .putExtra(RaceActivity.EXTRA_COLS, currentCols)
+                    .putExtra(RaceActivity.EXTRA_DEPTH, solutionDepthPicker.getValue()));
+            return true;
         } else if (itemId == R.id.action_surrender) {
             showSurrenderDialog();
             return true;
+        } else if (itemId == R.id.action_perf_overlay) {
+            perfOverlay.setEnabled(!perfOverlay.isEnabled());
+            item.setChecked(perfOverlay.isEnabled());
+            return true;
+        } else if (itemId == R.id.action_perf_export) {
+            exportPerfData();
+            return true;
         } else if (itemId == R.id.action_about) {
             new AlertDialog.Builder(this)
                     .setTitle(R.string.about)
@@ -769,35 +997,97 @@ public class MainActivity extends AppCompatActivity {
         return super.onOptionsItemSelected(item);
     }
 
+    /**
+     * Saves the recorded frame times and move latencies as CSV in the app's
+     * external files directory, where they can be pulled for offline analysis.
+     * The data is copied here and written on the background io thread.
+     */
+    private void exportPerfData() {
+        String csv = perfOverlay.toCsv();
+        progressStore.getIoExecutor().execute(() -> {
+            // Looking up the directory may create it, so that is done here too
+            File dir = getExternalFilesDir(null);
+            File file = new File(dir != null ? dir : getFilesDir(),
+                    "perf_" + System.currentTimeMillis() + ".csv");
+            boolean saved;
+            try (Writer out = new BufferedWriter(new FileWriter(file))) {
+                out.write(csv);
+                saved = true;
+            } catch (IOException e) {
+                saved = false;
+            }
+            boolean exported = saved;
+            runOnUiThread(() -> {
+                if (exported) {
+                    Toast.makeText(this, getString(R.string.perf_exported, file.getAbsolutePath()),
+                            Toast.LENGTH_LONG).show();
+                } else {
+                    Toast.makeText(this, R.string.perf_export_failed, Toast.LENGTH_SHORT).show();
+                }
+            });
+        });
+    }
+
+    @Override
+    protected void onStart() {
+        super.onStart();
+        puzzleGenerator.resume();
+        puzzleGenerator.prefetch(currentRows, currentCols, solutionDepthPicker.getValue());
+        perfOverlay.onStart();
+    }
+
+    @Override
+    protected void onStop() {
+        super.onStop();
+        puzzleGenerator.pause();
+        perfOverlay.onStop();
+        stopSolutionPlayback();
+    }
+
+    @Override
+    public void onTrimMemory(int level) {
+        super.onTrimMemory(level);
+        if (level >= TRIM_MEMORY_BACKGROUND) {
+            puzzleGenerator.trimMemory();
+        }
+    }
+
     @Override
     protected void onResume() {
         super.onResume();
         invalidateOptionsMenu();
+        if (soundEngine != null) {
+            soundEngine.resumeAll();
+        }
+        startPlayClock();
     }
 
     @Override
     protected void onPause() {
         super.onPause();
-        if (rotationSoundPlayer != null && rotationSoundPlayer.isPlaying()) {
-            rotationSoundPlayer.pause();
-        }
-        if (winSoundPlayer != null && winSoundPlayer.isPlaying()) {
-            winSoundPlayer.pause();
+        if (soundEngine != null) {
+            soundEngine.pauseAll();
         }
+        stopPlayClock();
     }
 
     @Override
     protected void onDestroy() {
         super.onDestroy();
         stopFlashAnimation();
-
-        if (rotationSoundPlayer != null) {
-            rotationSoundPlayer.release();
-            rotationSoundPlayer = null;
+        solutionDepthPicker.removeCallbacks(depthPrefetch);
+        puzzleGenerator.shutdown();
+        if (hintEngine != null) {
+            hintEngine.shutdown();
+        }
+        startupTracer.cancel();
+        if (game != null) {
+            game.setEventBus(null);
         }
-        if (winSoundPlayer != null) {
-            winSoundPlayer.release();
-            winSoundPlayer = null;
+        autosave.shutdown();
+        if (soundEngine != null) {
+            soundSubscription.cancel();
+            soundEngine.release();
         }
     }
 }
\ No newline at end of file
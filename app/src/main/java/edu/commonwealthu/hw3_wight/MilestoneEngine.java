@@ -0,0 +1,170 @@
+package edu.commonwealthu.hw3_wight;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Evaluates a table of {@link MilestoneRule}s incrementally.
+ * <p>
+ * Threshold rules are kept sorted by threshold for each counter, with a
+ * cursor marking the first one not yet reached; when the counter rises, only
+ * the rules it passes are visited. Size rules are indexed by each size they
+ * require, so completing a new size re-checks only the rules that mention it.
+ * An update therefore costs time proportional to what it unlocks, not to the
+ * number of rules, and lookups and counts are constant time.
+ *
+ * @author Ethan Wight
+ */
+public class MilestoneEngine {
+
+    private static final int COUNTERS = MilestoneRule.Input.values().length;
+
+    private final List<MilestoneRule> rules;
+    private final MilestoneRule[][] byThreshold = new MilestoneRule[COUNTERS][];
+    private final int[] cursors = new int[COUNTERS];
+    private final int[] counters = new int[COUNTERS];
+    @SuppressWarnings("unchecked")
+    private final List<MilestoneRule>[] bySizeBit = new List[Long.SIZE];
+    private long sizeMask;
+
+    private final BitSet unlocked = new BitSet();
+    private int unlockedCount;
+
+    /**
+     * Builds the indexes for a rule table. Nothing is unlocked until the first update.
+     *
+     * @param rules The rules, each with its index in this list.
+     */
+    public MilestoneEngine(List<MilestoneRule> rules) {
+        this.rules = rules;
+
+        int[] sizes = new int[COUNTERS];
+        for (MilestoneRule rule : rules) {
+            if (rule.getInput() != MilestoneRule.Input.GRID_SIZES) {
+                sizes[rule.getInput().ordinal()]++;
+            }
+        }
+        for (MilestoneRule.Input input : MilestoneRule.Input.values()) {
+            byThreshold[input.ordinal()] = new MilestoneRule[sizes[input.ordinal()]];
+            sizes[input.ordinal()] = 0;
+        }
+
+        for (MilestoneRule rule : rules) {
+            if (rule.getInput() == MilestoneRule.Input.GRID_SIZES) {
+                long required = rule.getRequiredSizes();
+                while (required != 0) {
+                    int bit = Long.numberOfTrailingZeros(required);
+                    if (bySizeBit[bit] == null) {
+                        bySizeBit[bit] = new ArrayList<>();
+                    }
+                    bySizeBit[bit].add(rule);
+                    required &= required - 1;
+                }
+            } else {
+                int counter = rule.getInput().ordinal();
+                byThreshold[counter][sizes[counter]++] = rule;
+            }
+        }
+        for (MilestoneRule[] sorted : byThreshold) {
+            Arrays.sort(sorted, (a, b) -> Integer.compare(a.getThreshold(), b.getThreshold()));
+        }
+    }
+
+    /**
+     * Brings the engine up to date with the latest game state.
+     *
+     * @param totalWins Puzzles won without surrendering.
+     * @param maxDepth  Deepest solution depth won.
+     * @param sizes     Bitmask of grid sizes won (see {@link MilestoneRule#sizeBit}).
+     * @return The rules unlocked by this update, in table order; empty if none.
+     */
+    public List<MilestoneRule> update(int totalWins, int maxDepth, long sizes) {
+        List<MilestoneRule> newlyUnlocked =
+                advance(MilestoneRule.Input.TOTAL_WINS, totalWins, null);
+        newlyUnlocked = advance(MilestoneRule.Input.MAX_DEPTH, maxDepth, newlyUnlocked);
+
+        long added = sizes & ~sizeMask;
+        sizeMask |= sizes;
+        while (added != 0) {
+            int bit = Long.numberOfTrailingZeros(added);
+            added &= added - 1;
+            if (bySizeBit[bit] == null) {
+                continue;
+            }
+            for (MilestoneRule rule : bySizeBit[bit]) {
+                long required = rule.getRequiredSizes();
+                if ((sizeMask & required) == required && !unlocked.get(rule.getIndex())) {
+                    newlyUnlocked = unlock(rule, newlyUnlocked);
+                }
+            }
+        }
+
+        if (newlyUnlocked == null) {
+            return Collections.emptyList();
+        }
+        if (newlyUnlocked.size() > 1) {
+            Collections.sort(newlyUnlocked,
+                    (a, b) -> Integer.compare(a.getIndex(), b.getIndex()));
+        }
+        return newlyUnlocked;
+    }
+
+    private List<MilestoneRule> advance(MilestoneRule.Input input, int value,
+                                        List<MilestoneRule> newlyUnlocked) {
+        int counter = input.ordinal();
+        if (value <= counters[counter]) {
+            return newlyUnlocked;
+        }
+        counters[counter] = value;
+        MilestoneRule[] sorted = byThreshold[counter];
+        while (cursors[counter] < sorted.length && sorted[cursors[counter]].getThreshold() <= value) {
+            newlyUnlocked = unlock(sorted[cursors[counter]++], newlyUnlocked);
+        }
+        return newlyUnlocked;
+    }
+
+    private List<MilestoneRule> unlock(MilestoneRule rule, List<MilestoneRule> newlyUnlocked) {
+        unlocked.set(rule.getIndex());
+        unlockedCount++;
+        if (newlyUnlocked == null) {
+            newlyUnlocked = new ArrayList<>();
+        }
+        newlyUnlocked.add(rule);
+        return newlyUnlocked;
+    }
+
+    /**
+     * Returns whether a rule has been unlocked.
+     */
+    public boolean isUnlocked(MilestoneRule rule) {
+        return unlocked.get(rule.getIndex());
+    }
+
+    /**
+     * Returns the number of unlocked rules.
+     */
+    public int getUnlockedCount() {
+        return unlockedCount;
+    }
+
+    /**
+     * Returns the rule table.
+     */
+    public List<MilestoneRule> getRules() {
+        return rules;
+    }
+
+    /**
+     * Locks every rule again and forgets the game state.
+     */
+    public void reset() {
+        Arrays.fill(cursors, 0);
+        Arrays.fill(counters, 0);
+        sizeMask = 0;
+        unlocked.clear();
+        unlockedCount = 0;
+    }
+}
@@ -0,0 +1,149 @@
+package edu.commonwealthu.hw3_wight;
+
+import androidx.annotation.NonNull;
+
+/**
+ * One achievement, defined as data: either a threshold over a counter
+ * (total wins, deepest puzzle solved) or a set of grid sizes that must all
+ * have been completed. Rules are listed in {@link MilestoneRules} and
+ * evaluated by {@link MilestoneEngine}.
+ *
+ * @author Ethan Wight
+ */
+public final class MilestoneRule {
+
+    /**
+     * The game state a rule depends on.
+     */
+    public enum Input {
+        /** Number of puzzles won without surrendering. */
+        TOTAL_WINS,
+        /** Deepest solution depth won without surrendering. */
+        MAX_DEPTH,
+        /** Grid sizes won without surrendering, as a bitmask of {@link #sizeBit}. */
+        GRID_SIZES
+    }
+
+    // One bit per grid size; dimensions up to 8 fit in a long
+    static final int MAX_DIMENSION = 8;
+
+    private final int index;
+    private final String id;
+    private final int sectionRes;
+    private final int titleRes;
+    private final int descriptionRes;
+    private final Input input;
+    private final int threshold;
+    private final long requiredSizes;
+
+    private MilestoneRule(int index, String id, int sectionRes, int titleRes, int descriptionRes,
+                          Input input, int threshold, long requiredSizes) {
+        this.index = index;
+        this.id = id;
+        this.sectionRes = sectionRes;
+        this.titleRes = titleRes;
+        this.descriptionRes = descriptionRes;
+        this.input = input;
+        this.threshold = threshold;
+        this.requiredSizes = requiredSizes;
+    }
+
+    /**
+     * Creates a rule unlocked once a counter reaches a threshold.
+     *
+     * @param index          Position of the rule in its table.
+     * @param id             Stable identifier.
+     * @param sectionRes     String resource of the section heading.
+     * @param titleRes       String resource of the title.
+     * @param descriptionRes String resource of the description.
+     * @param input          {@link Input#TOTAL_WINS} or {@link Input#MAX_DEPTH}.
+     * @param threshold      The value the counter must reach.
+     * @return The rule.
+     */
+    static MilestoneRule atLeast(int index, String id, int sectionRes, int titleRes,
+                                 int descriptionRes, Input input, int threshold) {
+        if (input == Input.GRID_SIZES) {
+            throw new IllegalArgumentException("Grid sizes are not a counter");
+        }
+        return new MilestoneRule(index, id, sectionRes, titleRes, descriptionRes,
+                input, threshold, 0);
+    }
+
+    /**
+     * Creates a rule unlocked once every given grid size has been completed.
+     *
+     * @param index          Position of the rule in its table.
+     * @param id             Stable identifier.
+     * @param sectionRes     String resource of the section heading.
+     * @param titleRes       String resource of the title.
+     * @param descriptionRes String resource of the description.
+     * @param requiredSizes  A non-empty bitmask of {@link #sizeBit} values.
+     * @return The rule.
+     */
+    static MilestoneRule allSizes(int index, String id, int sectionRes, int titleRes,
+                                  int descriptionRes, long requiredSizes) {
+        if (requiredSizes == 0) {
+            throw new IllegalArgumentException("A size rule needs at least one size");
+        }
+        return new MilestoneRule(index, id, sectionRes, titleRes, descriptionRes,
+                Input.GRID_SIZES, 0, requiredSizes);
+    }
+
+    /**
+     * Returns the bit representing a grid size in a size bitmask.
+     *
+     * @param rows Number of rows
+     * @param cols Number of columns
+     * @return A single-bit mask, or 0 if the size is out of range
+     */
+    public static long sizeBit(int rows, int cols) {
+        if (rows < 1 || rows > MAX_DIMENSION || cols < 1 || cols > MAX_DIMENSION) {
+            return 0;
+        }
+        return 1L << ((rows - 1) * MAX_DIMENSION + (cols - 1));
+    }
+
+    public int getIndex() {
+        return index;
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public int getSectionRes() {
+        return sectionRes;
+    }
+
+    public int getTitleRes() {
+        return titleRes;
+    }
+
+    public int getDescriptionRes() {
+        return descriptionRes;
+    }
+
+    public Input getInput() {
+        return input;
+    }
+
+    /**
+     * Returns the counter value needed, for threshold rules.
+     */
+    public int getThreshold() {
+        return threshold;
+    }
+
+    /**
+     * Returns the sizes needed, for grid size rules.
+     */
+    public long getRequiredSizes() {
+        return requiredSizes;
+    }
+
+    @NonNull
+    @Override
+    public String toString() {
+        return id;
+    }
+}
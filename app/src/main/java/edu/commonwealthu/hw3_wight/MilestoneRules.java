@@ -0,0 +1,76 @@
+package edu.commonwealthu.hw3_wight;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * The table of achievements shown on the milestones screen, in display order.
+ * Adding an achievement only needs a new row here and its strings.
+ *
+ * @author Ethan Wight
+ */
+public final class MilestoneRules {
+
+    /** Every milestone, in display order. */
+    public static final List<MilestoneRule> ALL;
+
+    static {
+        Table table = new Table();
+
+        table.sizes("size_3x3", R.string.milestone_grid_sizes,
+                R.string.milestone_3x3, R.string.milestone_3x3_desc,
+                MilestoneRule.sizeBit(3, 3));
+        table.sizes("size_3x4", R.string.milestone_grid_sizes,
+                R.string.milestone_3x4, R.string.milestone_3x4_desc,
+                MilestoneRule.sizeBit(3, 4));
+        table.sizes("size_4x4", R.string.milestone_grid_sizes,
+                R.string.milestone_4x4, R.string.milestone_4x4_desc,
+                MilestoneRule.sizeBit(4, 4));
+
+        table.atLeast("depth_10", R.string.milestone_difficulty,
+                R.string.milestone_hard, R.string.milestone_hard_desc,
+                MilestoneRule.Input.MAX_DEPTH, 10);
+        table.atLeast("depth_15", R.string.milestone_difficulty,
+                R.string.milestone_expert, R.string.milestone_expert_desc,
+                MilestoneRule.Input.MAX_DEPTH, 15);
+
+        table.atLeast("wins_10", R.string.milestone_wins,
+                R.string.milestone_10_wins, R.string.milestone_10_wins_desc,
+                MilestoneRule.Input.TOTAL_WINS, 10);
+        table.atLeast("wins_25", R.string.milestone_wins,
+                R.string.milestone_25_wins, R.string.milestone_25_wins_desc,
+                MilestoneRule.Input.TOTAL_WINS, 25);
+        table.atLeast("wins_50", R.string.milestone_wins,
+                R.string.milestone_50_wins, R.string.milestone_50_wins_desc,
+                MilestoneRule.Input.TOTAL_WINS, 50);
+
+        table.sizes("all_sizes", R.string.milestone_master,
+                R.string.milestone_master_title, R.string.milestone_master_desc,
+                MilestoneRule.sizeBit(3, 3) | MilestoneRule.sizeBit(3, 4)
+                        | MilestoneRule.sizeBit(4, 4));
+
+        ALL = Collections.unmodifiableList(table.rules);
+    }
+
+    private MilestoneRules() {
+    }
+
+    /**
+     * Collects rules, numbering them in the order they are added.
+     */
+    private static final class Table {
+        final List<MilestoneRule> rules = new ArrayList<>();
+
+        void atLeast(String id, int sectionRes, int titleRes, int descriptionRes,
+                     MilestoneRule.Input input, int threshold) {
+            rules.add(MilestoneRule.atLeast(rules.size(), id, sectionRes, titleRes,
+                    descriptionRes, input, threshold));
+        }
+
+        void sizes(String id, int sectionRes, int titleRes, int descriptionRes, long sizes) {
+            rules.add(MilestoneRule.allSizes(rules.size(), id, sectionRes, titleRes,
+                    descriptionRes, sizes));
+        }
+    }
+}
@@ -3,18 +3,18 @@ package edu.commonwealthu.hw3_wight;
 import android.os.Bundle;
 import android.util.Log;
 import android.view.MenuItem;
-import android.widget.LinearLayout;
-import android.widget.TextView;
 import android.widget.Toast;
 
 import androidx.appcompat.app.AlertDialog;
 import androidx.appcompat.app.AppCompatActivity;
-import androidx.core.content.ContextCompat;
+import androidx.recyclerview.widget.RecyclerView;
 
 import com.google.android.material.appbar.MaterialToolbar;
 
 import java.text.SimpleDateFormat;
+import java.util.ArrayList;
 import java.util.Date;
+import java.util.List;
 import java.util.Locale;
 
 /**
@@ -26,10 +26,24 @@ import java.util.Locale;
 public class MilestonesActivity extends AppCompatActivity {
 
     private static final String TAG = "MilestonesActivity";
-    private static final int TOTAL_MILESTONES = 9;
+
+    // Row kinds, used as the high half of each stable row ID
+    private static final int ROW_HEADER = 1;
+    private static final int ROW_MILESTONE = 2;
+    private static final int ROW_STAT = 3;
+    private static final int ROW_RESET = 4;
+
+    // Statistic row keys
+    private static final int STAT_TOTAL_WINS = 0;
+    private static final int STAT_ACHIEVEMENTS = 1;
+    private static final int STAT_FIRST_WIN = 2;
+    private static final int STAT_CURRENT_STREAK = 3;
+    private static final int STAT_BEST_STREAK = 4;
+    private static final int STAT_SIZE_BASE = 1 << 20;
 
     private MilestonesManager milestonesManager;
-    private LinearLayout milestonesContainer;
+    private GameStatsStore statsStore;
+    private MilestonesAdapter adapter;
 
     @Override
     protected void onCreate(Bundle savedInstanceState) {
@@ -39,7 +53,7 @@ public class MilestonesActivity extends AppCompatActivity {
         try {
             setupToolbar();
             initializeComponents();
-            displayContent();
+            loadContent();
         } catch (Exception e) {
             Log.e(TAG, "Error in onCreate", e);
             Toast.makeText(this, "Error loading milestones", Toast.LENGTH_SHORT).show();
@@ -62,219 +76,134 @@ public class MilestonesActivity extends AppCompatActivity {
      * Initializes components and managers.
      */
     private void initializeComponents() {
-        milestonesContainer = findViewById(R.id.milestonesContainer);
-        milestonesManager = new MilestonesManager(this);
+        adapter = new MilestonesAdapter(this::showResetConfirmation);
+        RecyclerView milestonesList = findViewById(R.id.milestonesList);
+        milestonesList.setAdapter(adapter);
     }
 
     /**
-     * Displays all milestone content.
+     * Shows the content once the progress store is loaded; it is normally
+     * preloaded already, so this runs immediately without touching disk.
      */
-    private void displayContent() {
-        displayMilestones();
-        displayStatistics();
+    private void loadContent() {
+        ProgressStore.get(this).whenLoaded(store -> {
+            if (isDestroyed()) {
+                return;
+            }
+            milestonesManager = store.getMilestones();
+            statsStore = store.getStats();
+            displayContent();
+        });
     }
 
     /**
-     * Displays all milestone achievements.
+     * Rebuilds the row list and hands it to the adapter, which animates only the rows that changed.
      */
-    private void displayMilestones() {
-        milestonesContainer.removeAllViews();
-
-        addSectionHeader("Grid Sizes Completed");
-        addMilestone("Beginner", "Complete a 3×3 puzzle",
-                milestonesManager.hasCompletedGridSize(3, 3));
-        addMilestone("Intermediate", "Complete a 3×4 puzzle",
-                milestonesManager.hasCompletedGridSize(3, 4));
-        addMilestone("Advanced", "Complete a 4×4 puzzle",
-                milestonesManager.hasCompletedGridSize(4, 4));
-
-        addSectionHeader("Difficulty Levels");
-        addMilestone("Challenger", "Complete a puzzle with solution depth 10+",
-                milestonesManager.hasCompletedHardPuzzle());
-        addMilestone("Expert", "Complete a puzzle with solution depth 15+",
-                milestonesManager.hasCompletedExpertPuzzle());
-
-        addSectionHeader("Total Victories");
-        addMilestone("Dedicated Player", "Win 10 puzzles",
-                milestonesManager.hasWon10Times());
-        addMilestone("Puzzle Enthusiast", "Win 25 puzzles",
-                milestonesManager.hasWon25Times());
-        addMilestone("Revolution Master", "Win 50 puzzles",
-                milestonesManager.hasWon50Times());
+    private void displayContent() {
+        List<MilestonesAdapter.Row> rows = new ArrayList<>();
+        addMilestoneRows(rows);
+        addStatisticsRows(rows);
+        addGameRecordRows(rows);
+        rows.add(MilestonesAdapter.Row.reset(rowId(ROW_RESET, 0)));
+        adapter.submitList(rows);
+    }
 
-        addSectionHeader("Master Achievement");
-        addMilestone("Grand Master", "Complete all grid sizes (3×3, 3×4, and 4×4)",
-                milestonesManager.hasCompletedAllGridSizes());
+    /**
+     * Adds a header for each section and a row for each milestone.
+     */
+    private void addMilestoneRows(List<MilestonesAdapter.Row> rows) {
+        int section = 0;
+        for (MilestoneRule rule : milestonesManager.getMilestones()) {
+            if (rule.getSectionRes() != section) {
+                section = rule.getSectionRes();
+                rows.add(MilestonesAdapter.Row.header(rowId(ROW_HEADER, section),
+                        getString(section)));
+            }
+            rows.add(MilestonesAdapter.Row.milestone(rowId(ROW_MILESTONE, rule.getIndex()),
+                    getString(rule.getTitleRes()), getString(rule.getDescriptionRes()),
+                    milestonesManager.isAchieved(rule)));
+        }
     }
 
     /**
-     * Displays statistics section.
+     * Adds the statistics section.
      */
-    private void displayStatistics() {
-        addSectionHeader("Statistics");
+    private void addStatisticsRows(List<MilestonesAdapter.Row> rows) {
+        rows.add(MilestonesAdapter.Row.header(rowId(ROW_HEADER, R.string.milestone_statistics),
+                getString(R.string.milestone_statistics)));
+        rows.add(MilestonesAdapter.Row.stat(rowId(ROW_STAT, STAT_TOTAL_WINS),
+                "Total Puzzles Solved", String.valueOf(milestonesManager.getTotalWins())));
+        rows.add(MilestonesAdapter.Row.stat(rowId(ROW_STAT, STAT_ACHIEVEMENTS),
+                "Achievements Unlocked", milestonesManager.getTotalMilestonesAchieved()
+                        + " / " + milestonesManager.getTotalMilestones()));
 
-        int totalWins = milestonesManager.getTotalWins();
-        int totalMilestones = milestonesManager.getTotalMilestonesAchieved();
         long firstWinTime = milestonesManager.getFirstWinTime();
-
-        StringBuilder stats = new StringBuilder();
-        stats.append("Total Puzzles Solved: ").append(totalWins).append("\n");
-        stats.append("Achievements Unlocked: ").append(totalMilestones)
-                .append(" / ").append(TOTAL_MILESTONES);
-
         if (firstWinTime > 0) {
             String dateStr = formatDate(firstWinTime);
             if (dateStr != null) {
-                stats.append("\n").append("First Victory: ").append(dateStr);
+                rows.add(MilestonesAdapter.Row.stat(rowId(ROW_STAT, STAT_FIRST_WIN),
+                        "First Victory", dateStr));
             }
         }
-
-        TextView statsText = createTextView(stats.toString(), 16,
-                getColorSafe(R.color.milestone_text));
-        statsText.setPadding(32, 24, 32, 24);
-        milestonesContainer.addView(statsText);
-
-        addResetButton();
-    }
-
-    /**
-     * Adds a section header.
-     *
-     * @param headerText The header text
-     */
-    private void addSectionHeader(String headerText) {
-        TextView header = createTextView(headerText, 18,
-                getColorSafe(R.color.colorAccent));
-        header.setTypeface(null, android.graphics.Typeface.BOLD);
-        header.setPadding(32, 40, 32, 16);
-        milestonesContainer.addView(header);
-    }
-
-    /**
-     * Adds a milestone item.
-     *
-     * @param title       Milestone title
-     * @param description Milestone description
-     * @param achieved    Whether achieved
-     */
-    private void addMilestone(String title, String description, boolean achieved) {
-        LinearLayout milestoneItem = new LinearLayout(this);
-        milestoneItem.setOrientation(LinearLayout.HORIZONTAL);
-        milestoneItem.setPadding(32, 16, 32, 16);
-
-        // Add checkmark/indicator
-        TextView checkmark = createCheckmark(achieved);
-        milestoneItem.addView(checkmark);
-
-        // Add text container
-        LinearLayout textContainer = createMilestoneTextContainer(title, description, achieved);
-        milestoneItem.addView(textContainer);
-
-        milestonesContainer.addView(milestoneItem);
     }
 
     /**
-     * Creates a checkmark indicator.
-     *
-     * @param achieved Whether the milestone is achieved
-     * @return TextView with checkmark or circle
+     * Adds streaks and, for each grid size played, best times and move counts.
      */
-    private TextView createCheckmark(boolean achieved) {
-        TextView checkmark = new TextView(this);
-        checkmark.setText(achieved ? "✓" : "○");
-        checkmark.setTextColor(achieved ?
-                getColorSafe(R.color.milestone_achieved) :
-                getColorSafe(R.color.milestone_unachieved));
-        checkmark.setTextSize(24);
-        checkmark.setPadding(0, 0, 24, 0);
-
-        LinearLayout.LayoutParams params = new LinearLayout.LayoutParams(
-                LinearLayout.LayoutParams.WRAP_CONTENT,
-                LinearLayout.LayoutParams.WRAP_CONTENT
-        );
-        checkmark.setLayoutParams(params);
-
-        return checkmark;
+    private void addGameRecordRows(List<MilestonesAdapter.Row> rows) {
+        rows.add(MilestonesAdapter.Row.header(rowId(ROW_HEADER, R.string.stats_game_records),
+                getString(R.string.stats_game_records)));
+        rows.add(MilestonesAdapter.Row.stat(rowId(ROW_STAT, STAT_CURRENT_STREAK),
+                getString(R.string.stats_current_streak),
+                String.valueOf(statsStore.getCurrentStreak())));
+        rows.add(MilestonesAdapter.Row.stat(rowId(ROW_STAT, STAT_BEST_STREAK),
+                getString(R.string.stats_best_streak), String.valueOf(statsStore.getBestStreak())));
+
+        int[][] sizes = {{3, 3}, {3, 4}, {4, 4}};
+        for (int[] size : sizes) {
+            GameStatsStore.Aggregate stats = statsStore.getForSize(size[0], size[1]);
+            if (stats == null || stats.getSolved() == 0) {
+                continue;
+            }
+            // Size stats are keyed by size, then by field
+            int key = STAT_SIZE_BASE + ((size[0] << 8 | size[1]) << 4);
+            int sizeRows = size[0];
+            int sizeCols = size[1];
+            rows.add(MilestonesAdapter.Row.stat(rowId(ROW_STAT, key),
+                    getString(R.string.stats_solved, sizeRows, sizeCols),
+                    String.valueOf(stats.getSolved())));
+            rows.add(MilestonesAdapter.Row.stat(rowId(ROW_STAT, key + 1),
+                    getString(R.string.stats_best_time, sizeRows, sizeCols),
+                    formatDuration(stats.getBestTimeMs())));
+            rows.add(MilestonesAdapter.Row.stat(rowId(ROW_STAT, key + 2),
+                    getString(R.string.stats_median_time, sizeRows, sizeCols),
+                    formatDuration(stats.getTimePercentileMs(50))));
+            rows.add(MilestonesAdapter.Row.stat(rowId(ROW_STAT, key + 3),
+                    getString(R.string.stats_fewest_moves, sizeRows, sizeCols),
+                    String.valueOf(stats.getBestMoves())));
+            rows.add(MilestonesAdapter.Row.stat(rowId(ROW_STAT, key + 4),
+                    getString(R.string.stats_average_moves, sizeRows, sizeCols),
+                    String.format(Locale.getDefault(), "%.1f", stats.getMeanMoves())));
+        }
     }
 
     /**
-     * Creates the text container for a milestone.
-     *
-     * @param title       Milestone title
-     * @param description Milestone description
-     * @param achieved    Whether achieved
-     * @return LinearLayout containing title and description
+     * Builds a stable row ID from a row kind and a key unique within that kind.
      */
-    private LinearLayout createMilestoneTextContainer(String title, String description, boolean achieved) {
-        LinearLayout textContainer = new LinearLayout(this);
-        textContainer.setOrientation(LinearLayout.VERTICAL);
-
-        LinearLayout.LayoutParams params = new LinearLayout.LayoutParams(
-                0,
-                LinearLayout.LayoutParams.WRAP_CONTENT,
-                1.0f
-        );
-        textContainer.setLayoutParams(params);
-
-        // Title
-        TextView titleView = createTextView(title, 16, achieved ?
-                getColorSafe(R.color.milestone_text) :
-                getColorSafe(R.color.milestone_unachieved));
-        titleView.setTypeface(null, android.graphics.Typeface.BOLD);
-        textContainer.addView(titleView);
-
-        // Description
-        TextView descView = createTextView(description, 14,
-                getColorSafe(R.color.milestone_description));
-        descView.setPadding(0, 4, 0, 0);
-        textContainer.addView(descView);
-
-        return textContainer;
+    private static long rowId(int kind, int key) {
+        return ((long) kind << 32) | (key & 0xFFFFFFFFL);
     }
 
     /**
-     * Creates a TextView with specified text, size, and color.
+     * Formats a duration as minutes and seconds.
      *
-     * @param text  The text to display
-     * @param size  Text size in sp
-     * @param color Text color
-     * @return Configured TextView
-     */
-    private TextView createTextView(String text, int size, int color) {
-        TextView textView = new TextView(this);
-        textView.setText(text);
-        textView.setTextSize(size);
-        textView.setTextColor(color);
-        return textView;
-    }
-
-    /**
-     * Adds reset button.
+     * @param millis Duration in milliseconds
+     * @return Formatted string (e.g., "1:05.3")
      */
-    private void addResetButton() {
-        TextView resetButton = createTextView(
-                getString(R.string.reset_all_milestones),
-                16,
-                getColorSafe(R.color.milestone_reset)
-        );
-        resetButton.setPadding(32, 40, 32, 40);
-        resetButton.setTextAlignment(TextView.TEXT_ALIGNMENT_CENTER);
-        resetButton.setClickable(true);
-        resetButton.setFocusable(true);
-
-        // Add ripple effect
-        try {
-            int[] attrs = new int[]{android.R.attr.selectableItemBackground};
-            try (android.content.res.TypedArray ta = obtainStyledAttributes(attrs)) {
-                android.graphics.drawable.Drawable drawable = ta.getDrawable(0);
-                resetButton.setBackground(drawable);
-            }
-        } catch (Exception e) {
-            Log.w(TAG, "Could not set ripple effect", e);
-        }
-
-        resetButton.setOnClickListener(v -> showResetConfirmation());
-        milestonesContainer.addView(resetButton);
+    private String formatDuration(long millis) {
+        long tenths = millis / 100;
+        return String.format(Locale.getDefault(), "%d:%02d.%d",
+                tenths / 600, (tenths / 10) % 60, tenths % 10);
     }
 
     /**
@@ -287,6 +216,7 @@ public class MilestonesActivity extends AppCompatActivity {
                 .setPositiveButton(android.R.string.yes, (dialog, which) -> {
                     try {
                         milestonesManager.resetAllMilestones();
+                        statsStore.reset();
                         displayContent();
                         Toast.makeText(this, "Milestones reset", Toast.LENGTH_SHORT).show();
                     } catch (Exception e) {
@@ -299,21 +229,6 @@ public class MilestonesActivity extends AppCompatActivity {
                 .show();
     }
 
-    /**
-     * Safely gets a color resource with fallback.
-     *
-     * @param resId Color resource ID
-     * @return Color value
-     */
-    private int getColorSafe(int resId) {
-        try {
-            return ContextCompat.getColor(this, resId);
-        } catch (Exception e) {
-            Log.w(TAG, "Color resource not found: " + resId, e);
-            return 0xFF212121; // Default dark gray
-        }
-    }
-
     /**
      * Formats a timestamp as a date string.
      *
@@ -0,0 +1,234 @@
+package edu.commonwealthu.hw3_wight;
+
+import android.view.LayoutInflater;
+import android.view.View;
+import android.view.ViewGroup;
+import android.widget.TextView;
+
+import androidx.annotation.NonNull;
+import androidx.core.content.ContextCompat;
+import androidx.recyclerview.widget.DiffUtil;
+import androidx.recyclerview.widget.ListAdapter;
+import androidx.recyclerview.widget.RecyclerView;
+
+import java.util.Objects;
+
+/**
+ * Shows the milestones screen as a recycled list of rows: section headers,
+ * milestones, statistics and the reset action. Every row has a stable ID, so
+ * submitting a new list only rebinds and animates the rows whose contents
+ * changed, and only the rows on screen are ever inflated.
+ *
+ * @author Ethan Wight
+ */
+public class MilestonesAdapter extends ListAdapter<MilestonesAdapter.Row, MilestonesAdapter.RowHolder> {
+
+    static final int TYPE_HEADER = 0;
+    static final int TYPE_MILESTONE = 1;
+    static final int TYPE_STAT = 2;
+    static final int TYPE_RESET = 3;
+
+    /**
+     * One immutable row of the list.
+     */
+    public static final class Row {
+        final int type;
+        final long id;
+        final String title;
+        final String detail;
+        final boolean achieved;
+
+        private Row(int type, long id, String title, String detail, boolean achieved) {
+            this.type = type;
+            this.id = id;
+            this.title = title;
+            this.detail = detail;
+            this.achieved = achieved;
+        }
+
+        /**
+         * Creates a section header.
+         *
+         * @param id    Stable ID, unique within the list.
+         * @param title Header text.
+         */
+        public static Row header(long id, String title) {
+            return new Row(TYPE_HEADER, id, title, null, false);
+        }
+
+        /**
+         * Creates a milestone row.
+         *
+         * @param id          Stable ID, unique within the list.
+         * @param title       Milestone title.
+         * @param description Milestone description.
+         * @param achieved    Whether the milestone is unlocked.
+         */
+        public static Row milestone(long id, String title, String description, boolean achieved) {
+            return new Row(TYPE_MILESTONE, id, title, description, achieved);
+        }
+
+        /**
+         * Creates a statistic row with a label and a value.
+         *
+         * @param id    Stable ID, unique within the list.
+         * @param label What the statistic is.
+         * @param value The formatted value.
+         */
+        public static Row stat(long id, String label, String value) {
+            return new Row(TYPE_STAT, id, label, value, false);
+        }
+
+        /**
+         * Creates the reset action row.
+         *
+         * @param id Stable ID, unique within the list.
+         */
+        public static Row reset(long id) {
+            return new Row(TYPE_RESET, id, null, null, false);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof Row)) return false;
+            Row other = (Row) o;
+            return type == other.type && id == other.id && achieved == other.achieved
+                    && Objects.equals(title, other.title) && Objects.equals(detail, other.detail);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(type, id, title, detail, achieved);
+        }
+    }
+
+    private static final DiffUtil.ItemCallback<Row> DIFF = new DiffUtil.ItemCallback<Row>() {
+        @Override
+        public boolean areItemsTheSame(@NonNull Row oldItem, @NonNull Row newItem) {
+            return oldItem.id == newItem.id;
+        }
+
+        @Override
+        public boolean areContentsTheSame(@NonNull Row oldItem, @NonNull Row newItem) {
+            return oldItem.equals(newItem);
+        }
+    };
+
+    private final Runnable onResetClicked;
+
+    /**
+     * Constructs the adapter.
+     *
+     * @param onResetClicked Run when the reset row is tapped.
+     */
+    public MilestonesAdapter(Runnable onResetClicked) {
+        super(DIFF);
+        this.onResetClicked = onResetClicked;
+        setHasStableIds(true);
+    }
+
+    @Override
+    public long getItemId(int position) {
+        return getItem(position).id;
+    }
+
+    @Override
+    public int getItemViewType(int position) {
+        return getItem(position).type;
+    }
+
+    @NonNull
+    @Override
+    public RowHolder onCreateViewHolder(@NonNull ViewGroup parent, int viewType) {
+        LayoutInflater inflater = LayoutInflater.from(parent.getContext());
+        switch (viewType) {
+            case TYPE_HEADER:
+                return new HeaderHolder(inflater.inflate(R.layout.item_milestone_header, parent, false));
+            case TYPE_MILESTONE:
+                return new MilestoneHolder(inflater.inflate(R.layout.item_milestone, parent, false));
+            case TYPE_STAT:
+                return new StatHolder(inflater.inflate(R.layout.item_milestone_stat, parent, false));
+            default:
+                View reset = inflater.inflate(R.layout.item_milestone_reset, parent, false);
+                reset.setOnClickListener(v -> onResetClicked.run());
+                return new RowHolder(reset);
+        }
+    }
+
+    @Override
+    public void onBindViewHolder(@NonNull RowHolder holder, int position) {
+        holder.bind(getItem(position));
+    }
+
+    /**
+     * Base holder; rows without content need no binding.
+     */
+    static class RowHolder extends RecyclerView.ViewHolder {
+        RowHolder(View itemView) {
+            super(itemView);
+        }
+
+        void bind(Row row) {
+        }
+    }
+
+    static final class HeaderHolder extends RowHolder {
+        private final TextView header;
+
+        HeaderHolder(View itemView) {
+            super(itemView);
+            header = itemView.findViewById(R.id.headerText);
+        }
+
+        @Override
+        void bind(Row row) {
+            header.setText(row.title);
+        }
+    }
+
+    static final class MilestoneHolder extends RowHolder {
+        private final TextView checkmark;
+        private final TextView title;
+        private final TextView description;
+        private final int achievedColor;
+        private final int unachievedColor;
+        private final int textColor;
+
+        MilestoneHolder(View itemView) {
+            super(itemView);
+            checkmark = itemView.findViewById(R.id.checkmark);
+            title = itemView.findViewById(R.id.milestoneTitle);
+            description = itemView.findViewById(R.id.milestoneDescription);
+            achievedColor = ContextCompat.getColor(itemView.getContext(), R.color.milestone_achieved);
+            unachievedColor = ContextCompat.getColor(itemView.getContext(), R.color.milestone_unachieved);
+            textColor = ContextCompat.getColor(itemView.getContext(), R.color.milestone_text);
+        }
+
+        @Override
+        void bind(Row row) {
+            checkmark.setText(row.achieved ? "✓" : "○");
+            checkmark.setTextColor(row.achieved ? achievedColor : unachievedColor);
+            title.setText(row.title);
+            title.setTextColor(row.achieved ? textColor : unachievedColor);
+            description.setText(row.detail);
+        }
+    }
+
+    static final class StatHolder extends RowHolder {
+        private final TextView label;
+        private final TextView value;
+
+        StatHolder(View itemView) {
+            super(itemView);
+            label = itemView.findViewById(R.id.statLabel);
+            value = itemView.findViewById(R.id.statValue);
+        }
+
+        @Override
+        void bind(Row row) {
+            label.setText(row.title);
+            value.setText(row.detail);
+        }
+    }
+}
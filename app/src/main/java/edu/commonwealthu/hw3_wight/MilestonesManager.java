@@ -4,11 +4,21 @@ import android.content.Context;
 import android.content.SharedPreferences;
 
 import java.util.HashSet;
+import java.util.List;
 import java.util.Set;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 /**
  * Manages milestone achievements for the Revolution game.
  * Tracks completed puzzles by grid size and solution depth using SharedPreferences.
+ * The stored values are read once into a small primitive snapshot (a bitmask of
+ * completed grid sizes, the deepest completed puzzle, the win count and the
+ * first win time), so every query is a field read. Each change updates the
+ * snapshot and schedules a write on the background executor; changes made
+ * before that write runs are saved together in one batch.
+ * Achievements themselves are data ({@link MilestoneRules}), evaluated
+ * incrementally by a {@link MilestoneEngine} as the snapshot changes.
  *
  * @author Ethan Wight
  */
@@ -16,129 +26,160 @@ public class MilestonesManager {
 
     // Preferences keys
     private static final String PREFS_NAME = "RevolutionMilestones";
+    private static final String KEY_SIZE_MASK = "completed_size_mask";
+    private static final String KEY_MAX_DEPTH = "max_completed_depth";
+    // Legacy string-set keys, migrated into the snapshot on first load
     private static final String KEY_GRID_SIZES = "completed_grid_sizes";
     private static final String KEY_SOLUTION_DEPTHS = "completed_solution_depths";
     private static final String KEY_TOTAL_WINS = "total_wins";
     private static final String KEY_FIRST_WIN_TIME = "first_win_time";
 
-    // Milestone thresholds
-    private static final int HARD_PUZZLE_DEPTH = 10;
-    private static final int EXPERT_PUZZLE_DEPTH = 15;
-    private static final int DEDICATED_WIN_COUNT = 10;
-    private static final int ENTHUSIAST_WIN_COUNT = 25;
-    private static final int MASTER_WIN_COUNT = 50;
-
     private final SharedPreferences preferences;
+    private final Executor writer;
+    private final AtomicBoolean flushPending = new AtomicBoolean();
+    private final MilestoneEngine engine = new MilestoneEngine(MilestoneRules.ALL);
+
+    // In-memory snapshot of the stored milestone state
+    private long sizeMask;
+    private int maxDepth;
+    private int totalWins;
+    private long firstWinTime;
 
     /**
-     * Constructs a MilestonesManager.
+     * Constructs a MilestonesManager, reading the stored state from disk.
+     * Call on a background thread; {@link ProgressStore} owns the shared instance.
      *
      * @param context The application context
+     * @param writer  Runs the disk writes
      */
-    public MilestonesManager(Context context) {
-        preferences = context.getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE);
+    MilestonesManager(Context context, Executor writer) {
+        this.preferences = context.getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE);
+        this.writer = writer;
+        loadSnapshot();
     }
 
     /**
-     * Records completion of a puzzle.
-     *
-     * @param rows     Number of rows in the completed puzzle
-     * @param cols     Number of columns in the completed puzzle
-     * @param solDepth Solution depth of the completed puzzle
+     * Reads the stored state into the snapshot, converting the legacy string
+     * sets the first time they are found.
      */
-    public void recordCompletion(int rows, int cols, int solDepth) {
-        SharedPreferences.Editor editor = preferences.edit();
-
-        // Record grid size
-        Set<String> gridSizes = new HashSet<>(
-                preferences.getStringSet(KEY_GRID_SIZES, new HashSet<>()));
-        gridSizes.add(formatGridSize(rows, cols));
-        editor.putStringSet(KEY_GRID_SIZES, gridSizes);
-
-        // Record solution depth
-        Set<String> solDepths = new HashSet<>(
-                preferences.getStringSet(KEY_SOLUTION_DEPTHS, new HashSet<>()));
-        solDepths.add(String.valueOf(solDepth));
-        editor.putStringSet(KEY_SOLUTION_DEPTHS, solDepths);
-
-        // Increment total wins
-        int totalWins = preferences.getInt(KEY_TOTAL_WINS, 0);
-        editor.putInt(KEY_TOTAL_WINS, totalWins + 1);
-
-        // Record first win time if not set
-        if (!preferences.contains(KEY_FIRST_WIN_TIME)) {
-            editor.putLong(KEY_FIRST_WIN_TIME, System.currentTimeMillis());
+    private void loadSnapshot() {
+        sizeMask = preferences.getLong(KEY_SIZE_MASK, 0);
+        maxDepth = preferences.getInt(KEY_MAX_DEPTH, 0);
+        totalWins = preferences.getInt(KEY_TOTAL_WINS, 0);
+        firstWinTime = preferences.getLong(KEY_FIRST_WIN_TIME, -1);
+
+        if (preferences.contains(KEY_GRID_SIZES) || preferences.contains(KEY_SOLUTION_DEPTHS)) {
+            migrateLegacySets();
         }
-
-        editor.apply();
+        engine.update(totalWins, maxDepth, sizeMask);
     }
 
     /**
-     * Checks if a specific grid size has been completed.
-     *
-     * @param rows Number of rows
-     * @param cols Number of columns
-     * @return True if this grid size has been completed
+     * Folds the legacy "RxC" and depth string sets into the snapshot and
+     * replaces them with the primitive keys.
      */
-    public boolean hasCompletedGridSize(int rows, int cols) {
+    private void migrateLegacySets() {
         Set<String> gridSizes = preferences.getStringSet(KEY_GRID_SIZES, new HashSet<>());
-        return gridSizes.contains(formatGridSize(rows, cols));
+        for (String size : gridSizes) {
+            int separator = size.indexOf('x');
+            try {
+                sizeMask |= MilestoneRule.sizeBit(Integer.parseInt(size.substring(0, separator)),
+                        Integer.parseInt(size.substring(separator + 1)));
+            } catch (RuntimeException ignored) {
+                // Skip invalid entries
+            }
+        }
+
+        Set<String> solDepths = preferences.getStringSet(KEY_SOLUTION_DEPTHS, new HashSet<>());
+        for (String depth : solDepths) {
+            try {
+                maxDepth = Math.max(maxDepth, Integer.parseInt(depth));
+            } catch (NumberFormatException ignored) {
+                // Skip invalid entries
+            }
+        }
+
+        preferences.edit()
+                .putLong(KEY_SIZE_MASK, sizeMask)
+                .putInt(KEY_MAX_DEPTH, maxDepth)
+                .remove(KEY_GRID_SIZES)
+                .remove(KEY_SOLUTION_DEPTHS)
+                .commit();
     }
 
     /**
-     * Checks if all grid sizes (3×3, 3×4, 4×4) have been completed.
+     * Records completion of a puzzle.
      *
-     * @return True if all grid sizes completed
+     * @param rows     Number of rows in the completed puzzle
+     * @param cols     Number of columns in the completed puzzle
+     * @param solDepth Solution depth of the completed puzzle
+     * @return The milestones this completion unlocked, possibly empty
      */
-    public boolean hasCompletedAllGridSizes() {
-        return hasCompletedGridSize(3, 3) &&
-                hasCompletedGridSize(3, 4) &&
-                hasCompletedGridSize(4, 4);
+    public List<MilestoneRule> recordCompletion(int rows, int cols, int solDepth) {
+        synchronized (this) {
+            sizeMask |= MilestoneRule.sizeBit(rows, cols);
+            maxDepth = Math.max(maxDepth, solDepth);
+            totalWins++;
+            if (firstWinTime < 0) {
+                firstWinTime = System.currentTimeMillis();
+            }
+        }
+        scheduleFlush();
+        return engine.update(totalWins, maxDepth, sizeMask);
     }
 
     /**
-     * Checks if any puzzle with solution depth >= 10 has been completed.
-     *
-     * @return True if at least one hard puzzle completed
+     * Queues a write of the snapshot unless one is already waiting to run.
      */
-    public boolean hasCompletedHardPuzzle() {
-        return hasCompletedPuzzleWithMinDepth(HARD_PUZZLE_DEPTH);
+    private void scheduleFlush() {
+        if (flushPending.compareAndSet(false, true)) {
+            writer.execute(this::flush);
+        }
     }
 
     /**
-     * Checks if any puzzle with solution depth >= 15 has been completed.
-     *
-     * @return True if at least one expert puzzle completed
+     * Writes the current snapshot. Runs on the writer executor.
      */
-    public boolean hasCompletedExpertPuzzle() {
-        return hasCompletedPuzzleWithMinDepth(EXPERT_PUZZLE_DEPTH);
+    private void flush() {
+        flushPending.set(false);
+        SharedPreferences.Editor editor = preferences.edit();
+        synchronized (this) {
+            editor.putLong(KEY_SIZE_MASK, sizeMask)
+                    .putInt(KEY_MAX_DEPTH, maxDepth)
+                    .putInt(KEY_TOTAL_WINS, totalWins)
+                    .putLong(KEY_FIRST_WIN_TIME, firstWinTime);
+        }
+        editor.commit();
     }
 
     /**
-     * Checks if player has won at least 10 puzzles.
+     * Checks if a specific grid size has been completed.
      *
-     * @return True if >= 10 wins
+     * @param rows Number of rows
+     * @param cols Number of columns
+     * @return True if this grid size has been completed
      */
-    public boolean hasWon10Times() {
-        return getTotalWins() >= DEDICATED_WIN_COUNT;
+    public boolean hasCompletedGridSize(int rows, int cols) {
+        return (sizeMask & MilestoneRule.sizeBit(rows, cols)) != 0;
     }
 
     /**
-     * Checks if player has won at least 25 puzzles.
+     * Checks if a milestone has been achieved.
      *
-     * @return True if >= 25 wins
+     * @param rule A rule from {@link #getMilestones()}
+     * @return True if the milestone is unlocked
      */
-    public boolean hasWon25Times() {
-        return getTotalWins() >= ENTHUSIAST_WIN_COUNT;
+    public boolean isAchieved(MilestoneRule rule) {
+        return engine.isUnlocked(rule);
     }
 
     /**
-     * Checks if player has won at least 50 puzzles.
+     * Gets every milestone, in display order.
      *
-     * @return True if >= 50 wins
+     * @return The milestone rules
      */
-    public boolean hasWon50Times() {
-        return getTotalWins() >= MASTER_WIN_COUNT;
+    public List<MilestoneRule> getMilestones() {
+        return engine.getRules();
     }
 
     /**
@@ -147,7 +188,7 @@ public class MilestonesManager {
      * @return Total win count
      */
     public int getTotalWins() {
-        return preferences.getInt(KEY_TOTAL_WINS, 0);
+        return totalWins;
     }
 
     /**
@@ -156,42 +197,39 @@ public class MilestonesManager {
      * @return Timestamp in milliseconds, or -1 if no wins yet
      */
     public long getFirstWinTime() {
-        return preferences.getLong(KEY_FIRST_WIN_TIME, -1);
+        return firstWinTime;
     }
 
     /**
      * Gets the total number of unique milestones achieved.
      *
-     * @return Count of achieved milestones (out of 9)
+     * @return Count of achieved milestones
      */
     public int getTotalMilestonesAchieved() {
-        int count = 0;
-
-        // Grid size milestones (3)
-        if (hasCompletedGridSize(3, 3)) count++;
-        if (hasCompletedGridSize(3, 4)) count++;
-        if (hasCompletedGridSize(4, 4)) count++;
-
-        // Difficulty milestones (2)
-        if (hasCompletedHardPuzzle()) count++;
-        if (hasCompletedExpertPuzzle()) count++;
-
-        // Win count milestones (3)
-        if (hasWon10Times()) count++;
-        if (hasWon25Times()) count++;
-        if (hasWon50Times()) count++;
-
-        // Master milestone (1)
-        if (hasCompletedAllGridSizes()) count++;
+        return engine.getUnlockedCount();
+    }
 
-        return count;
+    /**
+     * Gets the number of milestones that can be achieved.
+     *
+     * @return Count of all milestones
+     */
+    public int getTotalMilestones() {
+        return engine.getRules().size();
     }
 
     /**
      * Resets all milestone data.
      */
     public void resetAllMilestones() {
-        preferences.edit().clear().apply();
+        synchronized (this) {
+            sizeMask = 0;
+            maxDepth = 0;
+            totalWins = 0;
+            firstWinTime = -1;
+        }
+        engine.reset();
+        scheduleFlush();
     }
 
     /**
@@ -203,17 +241,24 @@ public class MilestonesManager {
      */
     @SuppressWarnings("unused")
     public Set<String> getCompletedGridSizes() {
-        return preferences.getStringSet(KEY_GRID_SIZES, new HashSet<>());
+        Set<String> gridSizes = new HashSet<>();
+        for (int rows = 1; rows <= MilestoneRule.MAX_DIMENSION; rows++) {
+            for (int cols = 1; cols <= MilestoneRule.MAX_DIMENSION; cols++) {
+                if (hasCompletedGridSize(rows, cols)) {
+                    gridSizes.add(formatGridSize(rows, cols));
+                }
+            }
+        }
+        return gridSizes;
     }
 
     /**
-     * Gets all completed solution depths.
-     * Used internally by difficulty checking methods.
+     * Gets the deepest solution depth completed.
      *
-     * @return Set of solution depth strings
+     * @return The maximum completed depth, or 0 if no wins yet
      */
-    private Set<String> getCompletedSolutionDepths() {
-        return preferences.getStringSet(KEY_SOLUTION_DEPTHS, new HashSet<>());
+    public int getMaxCompletedDepth() {
+        return maxDepth;
     }
 
     /**
@@ -226,24 +271,4 @@ public class MilestonesManager {
     private String formatGridSize(int rows, int cols) {
         return rows + "x" + cols;
     }
-
-    /**
-     * Checks if any puzzle with at least the specified depth has been completed.
-     *
-     * @param minDepth Minimum solution depth
-     * @return True if such a puzzle has been completed
-     */
-    private boolean hasCompletedPuzzleWithMinDepth(int minDepth) {
-        Set<String> solDepths = getCompletedSolutionDepths();
-        for (String depth : solDepths) {
-            try {
-                if (Integer.parseInt(depth) >= minDepth) {
-                    return true;
-                }
-            } catch (NumberFormatException ignored) {
-                // Skip invalid entries
-            }
-        }
-        return false;
-    }
 }
\ No newline at end of file
@@ -0,0 +1,308 @@
+package edu.commonwealthu.hw3_wight;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * The moves of one puzzle variant (see {@link PuzzleVariant}) on one grid
+ * size, precomputed from permutations of the flat board positions. Boards
+ * are packed longs (see {@link PackedBoard}) and moves are the indices of
+ * the permutations they were built from, so scrambling, undo, hashing and
+ * solving work the same way whatever the moves do.
+ * <p>
+ * A move is applied as a handful of mask-and-shift steps: tiles that travel
+ * the same distance along the packed long are moved together, so a 2x2
+ * rotation takes four steps and a whole row shift two. Every table also
+ * carries each move's inverse and order, and an admissible heuristic built
+ * from how far each tile is, in moves, from its home square.
+ * Instances are immutable and safe to share between threads.
+ *
+ * @author Ethan Wight
+ */
+public final class MoveTable {
+
+    private static final long NIBBLE_MASK = 0xFL;
+    private static final int UNREACHABLE = Byte.MAX_VALUE;
+
+    private final int rows;
+    private final int cols;
+    private final int tiles;
+    private final int moveCount;
+    // Move m is steps start[m] until start[m + 1]; each step moves the tiles in
+    // masks[k] by shifts[k] bits (a left rotation, so negative is right), and keep[m]
+    // holds the tiles m leaves alone
+    private final int[] start;
+    private final long[] masks;
+    private final int[] shifts;
+    private final long[] keep;
+    private final int[] inverses;
+    private final int[] orders;
+    // distances[p * tiles + t]: fewest moves that carry tile t from position p home
+    private final byte[] distances;
+    private final int maxTilesMoved;
+
+    /**
+     * Builds the table for a set of moves.
+     *
+     * @param rows         The number of rows.
+     * @param cols         The number of columns.
+     * @param permutations One array per move, giving for each flat position
+     *                     the position its tile moves to. The set must
+     *                     contain the inverse of each of its moves.
+     */
+    public MoveTable(int rows, int cols, List<int[]> permutations) {
+        if (rows * cols > PackedBoard.MAX_TILES) {
+            throw new IllegalArgumentException("Board too large to pack: " + rows + "x" + cols);
+        }
+        this.rows = rows;
+        this.cols = cols;
+        this.tiles = rows * cols;
+        this.moveCount = permutations.size();
+
+        long used = 0L;
+        for (int p = 0; p < tiles; p++) {
+            used |= NIBBLE_MASK << (4 * p);
+        }
+
+        start = new int[moveCount + 1];
+        keep = new long[moveCount];
+        List<Long> stepMasks = new ArrayList<>();
+        List<Integer> stepShifts = new ArrayList<>();
+        int moved = 0;
+        for (int m = 0; m < moveCount; m++) {
+            int[] perm = permutations.get(m);
+            checkPermutation(perm);
+            start[m] = stepMasks.size();
+            long moving = 0L;
+            int count = 0;
+            // Group the moving positions by how far their tile travels
+            for (int p = 0; p < tiles; p++) {
+                if (perm[p] == p) {
+                    continue;
+                }
+                count++;
+                long bit = NIBBLE_MASK << (4 * p);
+                moving |= bit;
+                int shift = 4 * (perm[p] - p);
+                int step = stepShifts.subList(start[m], stepShifts.size()).indexOf(shift);
+                if (step < 0) {
+                    stepMasks.add(bit);
+                    stepShifts.add(shift);
+                } else {
+                    step += start[m];
+                    stepMasks.set(step, stepMasks.get(step) | bit);
+                }
+            }
+            keep[m] = used & ~moving;
+            moved = Math.max(moved, count);
+        }
+        start[moveCount] = stepMasks.size();
+        maxTilesMoved = Math.max(moved, 1);
+
+        masks = new long[stepMasks.size()];
+        shifts = new int[stepShifts.size()];
+        for (int k = 0; k < masks.length; k++) {
+            masks[k] = stepMasks.get(k);
+            shifts[k] = stepShifts.get(k);
+        }
+
+        inverses = new int[moveCount];
+        orders = new int[moveCount];
+        for (int m = 0; m < moveCount; m++) {
+            inverses[m] = findInverse(permutations, m);
+            orders[m] = order(permutations.get(m));
+        }
+        distances = tileDistances(permutations);
+    }
+
+    private void checkPermutation(int[] perm) {
+        if (perm.length != tiles) {
+            throw new IllegalArgumentException("Move covers " + perm.length + " of " + tiles + " tiles");
+        }
+        boolean[] seen = new boolean[tiles];
+        for (int target : perm) {
+            if (target < 0 || target >= tiles || seen[target]) {
+                throw new IllegalArgumentException("Move is not a permutation");
+            }
+            seen[target] = true;
+        }
+    }
+
+    private int findInverse(List<int[]> permutations, int move) {
+        int[] perm = permutations.get(move);
+        for (int candidate = 0; candidate < moveCount; candidate++) {
+            int[] other = permutations.get(candidate);
+            boolean undoes = true;
+            for (int p = 0; p < tiles && undoes; p++) {
+                undoes = other[perm[p]] == p;
+            }
+            if (undoes) {
+                return candidate;
+            }
+        }
+        throw new IllegalArgumentException("Move " + move + " has no inverse in the set");
+    }
+
+    private static int order(int[] perm) {
+        int order = 1;
+        for (int p = 0; p < perm.length; p++) {
+            int length = 1;
+            for (int q = perm[p]; q != p; q = perm[q]) {
+                length++;
+            }
+            order = order / gcd(order, length) * length;
+        }
+        return order;
+    }
+
+    private static int gcd(int a, int b) {
+        return b == 0 ? a : gcd(b, a % b);
+    }
+
+    /**
+     * Breadth-first search from each home square over the position graph,
+     * where each move carries a tile one step from p to perm[p].
+     */
+    private byte[] tileDistances(List<int[]> permutations) {
+        byte[] result = new byte[tiles * tiles];
+        int[] queue = new int[tiles];
+        for (int home = 0; home < tiles; home++) {
+            int[] distance = new int[tiles];
+            Arrays.fill(distance, -1);
+            distance[home] = 0;
+            int head = 0;
+            int tail = 0;
+            queue[tail++] = home;
+            while (head < tail) {
+                int p = queue[head++];
+                // Moves come in inverse pairs, so stepping backwards is stepping forwards
+                for (int[] perm : permutations) {
+                    int q = perm[p];
+                    if (distance[q] < 0) {
+                        distance[q] = distance[p] + 1;
+                        queue[tail++] = q;
+                    }
+                }
+            }
+            // Some variants keep tiles on part of the board (a half turn never
+            // changes a square's colour); a tile elsewhere can never get home
+            for (int p = 0; p < tiles; p++) {
+                result[p * tiles + home] = (byte) (distance[p] < 0 ? UNREACHABLE : distance[p]);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Applies a move to a packed board.
+     *
+     * @param board The packed board.
+     * @param move  A move below {@link #moveCount()}.
+     * @return The board after the move.
+     */
+    public long apply(long board, int move) {
+        long result = board & keep[move];
+        for (int k = start[move], end = start[move + 1]; k < end; k++) {
+            // Masked tiles never cross the end of the long, so rotating is shifting
+            result |= Long.rotateLeft(board & masks[k], shifts[k]);
+        }
+        return result;
+    }
+
+    /**
+     * Recovers the moves between consecutive boards of a path, such as
+     * {@link Revolution#getKnownSolutionPath()}.
+     *
+     * @param path Packed boards, each one move from the next.
+     * @return The moves, one fewer than the boards; -1 where two boards are not one move apart.
+     */
+    public int[] movesAlong(long[] path) {
+        int[] result = new int[Math.max(0, path.length - 1)];
+        for (int i = 0; i < result.length; i++) {
+            result[i] = -1;
+            for (int m = 0; m < moveCount && result[i] < 0; m++) {
+                if (apply(path[i], m) == path[i + 1]) {
+                    result[i] = m;
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Returns the number of moves.
+     */
+    public int moveCount() {
+        return moveCount;
+    }
+
+    /**
+     * Returns the move that undoes the given move.
+     */
+    public int inverse(int move) {
+        return inverses[move];
+    }
+
+    /**
+     * Returns how many times a move must be repeated to restore the board.
+     */
+    public int order(int move) {
+        return orders[move];
+    }
+
+    /**
+     * Returns the longest run of one move that a shortest solution can
+     * contain. Longer runs equal a shorter run of the inverse; when a run of
+     * exactly half the order is as short either way, only the larger move
+     * index of the pair may make it.
+     *
+     * @param move A move below {@link #moveCount()}.
+     * @return The longest useful run, at least 1.
+     */
+    public int maxRun(int move) {
+        int order = orders[move];
+        if (order % 2 == 0 && move > inverses[move]) {
+            return order / 2;
+        }
+        return Math.max((order - 1) / 2, 1);
+    }
+
+    /**
+     * Admissible distance estimate: each move carries every tile it moves one
+     * step closer at best, so neither the total of the tiles' distances
+     * divided by the most tiles one move can carry, nor the largest single
+     * distance, overestimates. On the classic variant this is the Manhattan
+     * bound of {@link PackedBoard#heuristic}.
+     *
+     * @param board The packed board.
+     * @return A lower bound on the number of moves to the solved board.
+     */
+    public int heuristic(long board) {
+        int sum = 0;
+        int max = 0;
+        for (int p = 0, row = 0; p < tiles; p++, row += tiles) {
+            int d = distances[row + (int) ((board >>> (4 * p)) & NIBBLE_MASK)];
+            sum += d;
+            if (d > max) {
+                max = d;
+            }
+        }
+        return Math.max((sum + maxTilesMoved - 1) / maxTilesMoved, max);
+    }
+
+    /**
+     * Returns the solved board for this grid size.
+     */
+    public long solved() {
+        return PackedBoard.solved(rows, cols);
+    }
+
+    public int getRows() {
+        return rows;
+    }
+
+    public int getCols() {
+        return cols;
+    }
+}
@@ -0,0 +1,214 @@
+package edu.commonwealthu.hw3_wight;
+
+/**
+ * Static helpers for working with a Revolution board packed into a single long.
+ * Each tile occupies four bits, stored as (value - 1) at bit offset
+ * 4 * (row * cols + col), so boards of up to 16 tiles fit in one primitive.
+ * Moves are encoded as small integers: (anchorIndex << 1) | (clockwise ? 1 : 0),
+ * where anchorIndex = anchorRow * (cols - 1) + anchorCol.
+ *
+ * @author Ethan Wight
+ */
+public final class PackedBoard {
+
+    /** Largest number of tiles that can be packed into one long. */
+    public static final int MAX_TILES = 16;
+
+    private static final long NIBBLE_MASK = 0xFL;
+
+    private PackedBoard() {
+    }
+
+    /**
+     * Packs a grid of tile values into a long.
+     *
+     * @param grid The grid to pack, with values from 1 to rows * cols.
+     * @return The packed board.
+     */
+    public static long pack(int[][] grid) {
+        int cols = grid[0].length;
+        long packed = 0L;
+        for (int r = 0; r < grid.length; r++) {
+            for (int c = 0; c < cols; c++) {
+                packed |= ((long) (grid[r][c] - 1) & NIBBLE_MASK) << (4 * (r * cols + c));
+            }
+        }
+        return packed;
+    }
+
+    /**
+     * Unpacks a board into a freshly allocated grid.
+     *
+     * @param board The packed board.
+     * @param rows  The number of rows.
+     * @param cols  The number of columns.
+     * @return A new grid holding the tile values.
+     */
+    public static int[][] unpack(long board, int rows, int cols) {
+        int[][] grid = new int[rows][cols];
+        unpackInto(board, grid);
+        return grid;
+    }
+
+    /**
+     * Unpacks a board into an existing grid without allocating.
+     *
+     * @param board The packed board.
+     * @param grid  The destination grid.
+     */
+    public static void unpackInto(long board, int[][] grid) {
+        int cols = grid[0].length;
+        for (int r = 0; r < grid.length; r++) {
+            for (int c = 0; c < cols; c++) {
+                grid[r][c] = (int) ((board >>> (4 * (r * cols + c))) & NIBBLE_MASK) + 1;
+            }
+        }
+    }
+
+    /**
+     * Returns the packed representation of the solved board.
+     *
+     * @param rows The number of rows.
+     * @param cols The number of columns.
+     * @return The solved board.
+     */
+    public static long solved(int rows, int cols) {
+        long packed = 0L;
+        for (int i = 0; i < rows * cols; i++) {
+            packed |= ((long) i) << (4 * i);
+        }
+        return packed;
+    }
+
+    /**
+     * Returns the zero-based tile identity stored at a flat position.
+     * The identity is also the tile's home position on the solved board.
+     *
+     * @param board    The packed board.
+     * @param position The flat position (row * cols + col).
+     * @return The tile identity at that position.
+     */
+    public static int tileAt(long board, int position) {
+        return (int) ((board >>> (4 * position)) & NIBBLE_MASK);
+    }
+
+    /**
+     * Returns the number of distinct moves available on a board.
+     *
+     * @param rows The number of rows.
+     * @param cols The number of columns.
+     * @return Twice the number of valid 2x2 anchors.
+     */
+    public static int moveCount(int rows, int cols) {
+        return 2 * (rows - 1) * (cols - 1);
+    }
+
+    /**
+     * Encodes a rotation as a move number.
+     *
+     * @param cols        The number of columns.
+     * @param anchorRow   The top row of the 2x2 subgrid.
+     * @param anchorCol   The left column of the 2x2 subgrid.
+     * @param isClockwise True for a clockwise rotation.
+     * @return The encoded move.
+     */
+    public static int encodeMove(int cols, int anchorRow, int anchorCol, boolean isClockwise) {
+        return ((anchorRow * (cols - 1) + anchorCol) << 1) | (isClockwise ? 1 : 0);
+    }
+
+    /**
+     * Returns the anchor row of an encoded move.
+     */
+    public static int moveRow(int cols, int move) {
+        return (move >> 1) / (cols - 1);
+    }
+
+    /**
+     * Returns the anchor column of an encoded move.
+     */
+    public static int moveCol(int cols, int move) {
+        return (move >> 1) % (cols - 1);
+    }
+
+    /**
+     * Returns whether an encoded move is a clockwise rotation.
+     */
+    public static boolean isClockwise(int move) {
+        return (move & 1) != 0;
+    }
+
+    /**
+     * Returns the move that undoes the given move.
+     */
+    public static int inverse(int move) {
+        return move ^ 1;
+    }
+
+    /**
+     * Applies an encoded move to a packed board.
+     *
+     * @param board The packed board.
+     * @param cols  The number of columns.
+     * @param move  The encoded move.
+     * @return The board after the move.
+     */
+    public static long applyMove(long board, int cols, int move) {
+        return rotate(board, cols, moveRow(cols, move), moveCol(cols, move), isClockwise(move));
+    }
+
+    /**
+     * Rotates the 2x2 subgrid anchored at (row, col) of a packed board.
+     * Follows the same cell cycle as {@link Revolution}'s grid rotations.
+     *
+     * @param board       The packed board.
+     * @param cols        The number of columns.
+     * @param row         The top row of the subgrid.
+     * @param col         The left column of the subgrid.
+     * @param isClockwise True for a clockwise rotation.
+     * @return The board after the rotation.
+     */
+    public static long rotate(long board, int cols, int row, int col, boolean isClockwise) {
+        int tl = 4 * (row * cols + col);
+        int tr = tl + 4;
+        int bl = tl + 4 * cols;
+        int br = bl + 4;
+
+        long vTl = (board >>> tl) & NIBBLE_MASK;
+        long vTr = (board >>> tr) & NIBBLE_MASK;
+        long vBl = (board >>> bl) & NIBBLE_MASK;
+        long vBr = (board >>> br) & NIBBLE_MASK;
+
+        long cleared = board & ~((NIBBLE_MASK << tl) | (NIBBLE_MASK << tr)
+                | (NIBBLE_MASK << bl) | (NIBBLE_MASK << br));
+
+        if (isClockwise) {
+            return cleared | (vBl << tl) | (vTl << tr) | (vBr << bl) | (vTr << br);
+        }
+        return cleared | (vTr << tl) | (vBr << tr) | (vTl << bl) | (vBl << br);
+    }
+
+    /**
+     * Admissible distance estimate: every rotation moves four tiles by one
+     * step each, so the total Manhattan distance divided by four (rounded up)
+     * never overestimates, and neither does the largest single tile distance.
+     *
+     * @param board The packed board.
+     * @param rows  The number of rows.
+     * @param cols  The number of columns.
+     * @return A lower bound on the number of moves to the solved board.
+     */
+    public static int heuristic(long board, int rows, int cols) {
+        int sum = 0;
+        int max = 0;
+        int tiles = rows * cols;
+        for (int p = 0; p < tiles; p++) {
+            int t = (int) ((board >>> (4 * p)) & NIBBLE_MASK);
+            int d = Math.abs(p / cols - t / cols) + Math.abs(p % cols - t % cols);
+            sum += d;
+            if (d > max) {
+                max = d;
+            }
+        }
+        return Math.max((sum + 3) >> 2, max);
+    }
+}
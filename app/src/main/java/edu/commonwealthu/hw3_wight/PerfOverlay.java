@@ -0,0 +1,281 @@
+package edu.commonwealthu.hw3_wight;
+
+import android.app.Activity;
+import android.graphics.Color;
+import android.graphics.Typeface;
+import android.os.Debug;
+import android.util.Log;
+import android.util.TypedValue;
+import android.view.Choreographer;
+import android.view.Gravity;
+import android.view.View;
+import android.view.ViewGroup;
+import android.view.ViewTreeObserver;
+import android.widget.FrameLayout;
+import android.widget.TextView;
+
+import java.util.Arrays;
+import java.util.Locale;
+
+/**
+ * Records frame times and move latencies and shows a live summary on top of
+ * the activity.
+ * <p>
+ * Frame durations come from the vsync timestamps passed to a
+ * {@link Choreographer.FrameCallback}; a frame longer than one refresh period
+ * counts the missed vsyncs as dropped frames. For each move, the recorder
+ * measures input-to-model latency (from the touch or click to the game being
+ * updated) and model-to-pixels latency (from the game update to the next
+ * draw of the view tree). GC counts come from the runtime statistics.
+ * Recording is allocation-free; sessions can be exported as CSV.
+ *
+ * @author Ethan Wight
+ */
+public class PerfOverlay {
+
+    private static final String TAG = "PerfOverlay";
+    private static final int FRAME_CAPACITY = 3600;
+    private static final int MOVE_CAPACITY = 512;
+    private static final int SUMMARY_FRAMES = 120;
+    private static final long REFRESH_INTERVAL_NANOS = 500_000_000L;
+
+    private final Activity activity;
+    private final View rootView;
+    private final long vsyncPeriodNanos;
+    private final Choreographer choreographer = Choreographer.getInstance();
+
+    // Ring buffers of durations in microseconds
+    private final int[] frameMicros = new int[FRAME_CAPACITY];
+    private int frameCount;
+    private final int[] inputToModelMicros = new int[MOVE_CAPACITY];
+    private final int[] modelToPixelsMicros = new int[MOVE_CAPACITY];
+    private int moveCount;
+    private final int[] scratch = new int[SUMMARY_FRAMES];
+
+    private long lastFrameNanos;
+    private long lastRefreshNanos;
+    private int droppedFrames;
+    private long pendingModelNanos = -1;
+    private int gcBaseline;
+
+    private boolean enabled;
+    private boolean attached;
+    private TextView overlayText;
+
+    private final Choreographer.FrameCallback frameCallback = new Choreographer.FrameCallback() {
+        @Override
+        public void doFrame(long frameTimeNanos) {
+            onFrame(frameTimeNanos);
+            choreographer.postFrameCallback(this);
+        }
+    };
+
+    private final ViewTreeObserver.OnDrawListener drawListener = () -> {
+        if (pendingModelNanos >= 0) {
+            modelToPixelsMicros[(moveCount - 1) % MOVE_CAPACITY] =
+                    (int) ((System.nanoTime() - pendingModelNanos) / 1000);
+            pendingModelNanos = -1;
+        }
+    };
+
+    /**
+     * Creates a recorder for an activity. Nothing is recorded until enabled.
+     *
+     * @param activity The activity whose frames and content are measured.
+     */
+    @SuppressWarnings("deprecation")
+    public PerfOverlay(Activity activity) {
+        this.activity = activity;
+        this.rootView = activity.findViewById(android.R.id.content);
+        float refreshRate = activity.getWindowManager().getDefaultDisplay().getRefreshRate();
+        this.vsyncPeriodNanos = (long) (1_000_000_000L / (refreshRate > 0 ? refreshRate : 60f));
+    }
+
+    /**
+     * Starts a new recording session and shows the overlay, or stops and hides it.
+     * Data from the last session is kept for {@link #toCsv()}.
+     */
+    public void setEnabled(boolean enabled) {
+        if (this.enabled == enabled) {
+            return;
+        }
+        this.enabled = enabled;
+        if (enabled) {
+            frameCount = 0;
+            moveCount = 0;
+            droppedFrames = 0;
+            gcBaseline = gcCount();
+            attach();
+        } else {
+            detach();
+        }
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Resumes recording when the activity becomes visible again.
+     */
+    public void onStart() {
+        if (enabled) {
+            attach();
+        }
+    }
+
+    /**
+     * Pauses recording while the activity is not visible.
+     */
+    public void onStop() {
+        detach();
+    }
+
+    /**
+     * Records that a move has been applied to the game.
+     *
+     * @param inputNanos When the input arrived, on the {@link System#nanoTime()} clock.
+     */
+    public void onMoveApplied(long inputNanos) {
+        if (!attached) {
+            return;
+        }
+        long now = System.nanoTime();
+        int slot = moveCount % MOVE_CAPACITY;
+        inputToModelMicros[slot] = (int) (Math.max(0, now - inputNanos) / 1000);
+        modelToPixelsMicros[slot] = -1;
+        moveCount++;
+        pendingModelNanos = now;
+    }
+
+    /**
+     * Formats the recorded session as CSV: one section of frame durations and
+     * one of move latencies, all in microseconds. Call on the main thread; the
+     * result can then be written to disk from any thread.
+     *
+     * @return The CSV text.
+     */
+    public String toCsv() {
+        StringBuilder out = new StringBuilder();
+        out.append("# vsync_period_us=").append(vsyncPeriodNanos / 1000)
+                .append(",dropped_frames=").append(droppedFrames)
+                .append(",gc_count=").append(gcCount() - gcBaseline).append('\n');
+        out.append("frame,duration_us\n");
+        int frames = Math.min(frameCount, FRAME_CAPACITY);
+        for (int i = frameCount - frames; i < frameCount; i++) {
+            out.append(i).append(',').append(frameMicros[i % FRAME_CAPACITY]).append('\n');
+        }
+        out.append("move,input_to_model_us,model_to_pixels_us\n");
+        int moves = Math.min(moveCount, MOVE_CAPACITY);
+        for (int i = moveCount - moves; i < moveCount; i++) {
+            out.append(i).append(',').append(inputToModelMicros[i % MOVE_CAPACITY]).append(',')
+                    .append(modelToPixelsMicros[i % MOVE_CAPACITY]).append('\n');
+        }
+        return out.toString();
+    }
+
+    private void attach() {
+        if (attached) {
+            return;
+        }
+        attached = true;
+        if (overlayText == null) {
+            overlayText = createOverlayText();
+        }
+        ((ViewGroup) rootView).addView(overlayText);
+        rootView.getViewTreeObserver().addOnDrawListener(drawListener);
+        lastFrameNanos = 0;
+        choreographer.postFrameCallback(frameCallback);
+    }
+
+    private void detach() {
+        if (!attached) {
+            return;
+        }
+        attached = false;
+        choreographer.removeFrameCallback(frameCallback);
+        if (rootView.getViewTreeObserver().isAlive()) {
+            rootView.getViewTreeObserver().removeOnDrawListener(drawListener);
+        }
+        ((ViewGroup) rootView).removeView(overlayText);
+    }
+
+    private TextView createOverlayText() {
+        TextView text = new TextView(activity);
+        text.setTextSize(TypedValue.COMPLEX_UNIT_SP, 11);
+        text.setTypeface(Typeface.MONOSPACE);
+        text.setTextColor(Color.WHITE);
+        text.setBackgroundColor(0xAA000000);
+        int padding = (int) TypedValue.applyDimension(TypedValue.COMPLEX_UNIT_DIP, 4,
+                activity.getResources().getDisplayMetrics());
+        text.setPadding(padding, padding, padding, padding);
+        FrameLayout.LayoutParams params = new FrameLayout.LayoutParams(
+                ViewGroup.LayoutParams.WRAP_CONTENT, ViewGroup.LayoutParams.WRAP_CONTENT,
+                Gravity.BOTTOM | Gravity.END);
+        text.setLayoutParams(params);
+        // Purely informational; never intercept touches meant for the board
+        text.setClickable(false);
+        text.setImportantForAccessibility(View.IMPORTANT_FOR_ACCESSIBILITY_NO);
+        return text;
+    }
+
+    private void onFrame(long frameTimeNanos) {
+        if (lastFrameNanos != 0) {
+            long duration = frameTimeNanos - lastFrameNanos;
+            frameMicros[frameCount % FRAME_CAPACITY] = (int) (duration / 1000);
+            frameCount++;
+            // A frame spanning n vsync periods missed n - 1 of them
+            long periods = (duration + vsyncPeriodNanos / 2) / vsyncPeriodNanos;
+            if (periods > 1) {
+                droppedFrames += (int) (periods - 1);
+            }
+        }
+        lastFrameNanos = frameTimeNanos;
+
+        if (frameTimeNanos - lastRefreshNanos >= REFRESH_INTERVAL_NANOS) {
+            lastRefreshNanos = frameTimeNanos;
+            updateOverlay();
+        }
+    }
+
+    /**
+     * Shows median and 95th percentile frame times over the last frames,
+     * dropped frames, the latest move latencies and GCs this session.
+     */
+    private void updateOverlay() {
+        int frames = Math.min(frameCount, SUMMARY_FRAMES);
+        float p50 = 0;
+        float p95 = 0;
+        if (frames > 0) {
+            for (int i = 0; i < frames; i++) {
+                scratch[i] = frameMicros[(frameCount - 1 - i) % FRAME_CAPACITY];
+            }
+            Arrays.sort(scratch, 0, frames);
+            p50 = scratch[frames / 2] / 1000f;
+            p95 = scratch[Math.min(frames - 1, (int) (frames * 0.95f))] / 1000f;
+        }
+
+        float inputToModel = -1;
+        float modelToPixels = -1;
+        if (moveCount > 0) {
+            int slot = (moveCount - 1) % MOVE_CAPACITY;
+            inputToModel = inputToModelMicros[slot] / 1000f;
+            modelToPixels = modelToPixelsMicros[slot] / 1000f;
+        }
+
+        overlayText.setText(String.format(Locale.US,
+                "frame p50 %.1f ms  p95 %.1f ms%ndropped %d%ninput→model %.1f ms%n"
+                        + "model→pixels %.1f ms%nGCs %d",
+                p50, p95, droppedFrames, inputToModel, modelToPixels, gcCount() - gcBaseline));
+    }
+
+    private static int gcCount() {
+        try {
+            String count = Debug.getRuntimeStat("art.gc.gc-count");
+            return count != null ? Integer.parseInt(count) : 0;
+        } catch (NumberFormatException e) {
+            Log.w(TAG, "Unreadable GC count", e);
+            return 0;
+        }
+    }
+}
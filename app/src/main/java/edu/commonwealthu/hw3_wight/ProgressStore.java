@@ -0,0 +1,164 @@
+package edu.commonwealthu.hw3_wight;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.Process;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Owns the app's persistent settings and progress: the sound setting, the
+ * {@link MilestonesManager} and the {@link GameStatsStore}. Everything is
+ * loaded on a background thread as soon as the process starts (see
+ * {@link RevolutionApplication}), after which reads are served from memory.
+ * Writes are coalesced and run on the same background thread, so the main
+ * thread never waits on disk.
+ *
+ * @author Ethan Wight
+ */
+public final class ProgressStore {
+
+    /**
+     * Notified on the main thread once everything has been loaded.
+     */
+    public interface OnLoadedListener {
+        void onLoaded(ProgressStore store);
+    }
+
+    private static final String PREFS_NAME = "RevolutionSettings";
+    private static final String KEY_SOUND_ENABLED = "sound_enabled";
+
+    private static ProgressStore instance;
+
+    private final Context appContext;
+    private final ExecutorService io = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(() -> {
+            Process.setThreadPriority(Process.THREAD_PRIORITY_BACKGROUND);
+            runnable.run();
+        }, "ProgressStore");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+
+    // Main thread only
+    private boolean loaded;
+    private final List<OnLoadedListener> pendingListeners = new ArrayList<>();
+
+    // Written once on the io thread, then published to the main thread by the loaded flag
+    private SharedPreferences settings;
+    private MilestonesManager milestones;
+    private GameStatsStore stats;
+
+    // Guarded by this; once the player has set it, the stored value no longer applies
+    private boolean soundEnabled = true;
+    private boolean soundSetByUser;
+    private final AtomicBoolean settingsFlushPending = new AtomicBoolean();
+
+    /**
+     * Returns the process-wide store, starting the background load on first use.
+     *
+     * @param context Any context; only the application context is kept.
+     */
+    public static synchronized ProgressStore get(Context context) {
+        if (instance == null) {
+            instance = new ProgressStore(context.getApplicationContext());
+        }
+        return instance;
+    }
+
+    private ProgressStore(Context appContext) {
+        this.appContext = appContext;
+        io.execute(this::load);
+    }
+
+    /**
+     * Reads every store from disk. Runs on the io thread.
+     */
+    private void load() {
+        settings = appContext.getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE);
+        boolean storedSound = settings.getBoolean(KEY_SOUND_ENABLED, true);
+        synchronized (this) {
+            if (!soundSetByUser) {
+                soundEnabled = storedSound;
+            }
+        }
+        milestones = new MilestonesManager(appContext, io);
+        stats = new GameStatsStore(appContext);
+
+        mainHandler.post(() -> {
+            loaded = true;
+            for (OnLoadedListener listener : pendingListeners) {
+                listener.onLoaded(this);
+            }
+            pendingListeners.clear();
+        });
+    }
+
+    /**
+     * Runs a listener once the store is loaded: immediately if it already is,
+     * otherwise on the main thread when loading finishes. Call on the main thread.
+     */
+    public void whenLoaded(OnLoadedListener listener) {
+        if (loaded) {
+            listener.onLoaded(this);
+        } else {
+            pendingListeners.add(listener);
+        }
+    }
+
+    /**
+     * Returns the milestones. Only valid once loaded.
+     */
+    public MilestonesManager getMilestones() {
+        return milestones;
+    }
+
+    /**
+     * Returns the game statistics. Only valid once loaded.
+     */
+    public GameStatsStore getStats() {
+        return stats;
+    }
+
+    /**
+     * Returns the serial background executor the stores write on. Other
+     * files the app saves, such as the {@link GameAutosave}, are written on
+     * it too, so writes to one file from different activities never overlap.
+     */
+    public Executor getIoExecutor() {
+        return io;
+    }
+
+    /**
+     * Returns the sound setting; true until the stored value has been loaded,
+     * unless the player has already changed it.
+     */
+    public synchronized boolean isSoundEnabled() {
+        return soundEnabled;
+    }
+
+    /**
+     * Changes the sound setting and saves it in the background. A change made
+     * before loading finishes wins over the stored value.
+     */
+    public void setSoundEnabled(boolean enabled) {
+        synchronized (this) {
+            soundEnabled = enabled;
+            soundSetByUser = true;
+        }
+        if (settingsFlushPending.compareAndSet(false, true)) {
+            io.execute(() -> {
+                settingsFlushPending.set(false);
+                settings.edit().putBoolean(KEY_SOUND_ENABLED, isSoundEnabled()).commit();
+            });
+        }
+    }
+}
@@ -0,0 +1,283 @@
+package edu.commonwealthu.hw3_wight;
+
+import android.os.Process;
+import android.util.Log;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Generates puzzles on a background thread and keeps a small queue of ready
+ * games for each (grid size, depth) pair, so that starting a new game on the
+ * UI thread is just a queue poll. Boards come from a {@link PuzzlePackRepository}
+ * when one covers the request; otherwise a scramble is checked with
+ * {@link PuzzleSolver} to have exactly the requested optimal depth. The check
+ * is best-effort: it has a time budget, and when that runs out (as it often
+ * does for deep 4x4 boards) a plain scramble of the requested length is queued
+ * instead, whose optimal solution may be shorter.
+ * <p>
+ * Queued games are capped across all pairs. When the cap is reached, the
+ * games of the pair requested least recently are dropped to make room, so
+ * the pair being played always refills.
+ * <p>
+ * The owning activity drives the lifecycle: {@link #pause()} in onStop cancels
+ * in-flight work, {@link #resume()} in onStart allows refilling again,
+ * {@link #trimMemory()} drops every queued game, and {@link #shutdown()} in
+ * onDestroy stops the worker thread.
+ *
+ * @author Ethan Wight
+ */
+public class PuzzleGenerator {
+
+    private static final String TAG = "PuzzleGenerator";
+    private static final int QUEUE_CAPACITY = 3;
+    private static final int MAX_QUEUED_PUZZLES = 12;
+    private static final long VERIFY_BUDGET_MS = 200;
+
+    private final PuzzlePackRepository packs;
+    private final ExecutorService worker;
+    private final Map<String, BlockingQueue<Revolution>> queues = new ConcurrentHashMap<>();
+    private final Set<String> pendingRefills = ConcurrentHashMap.newKeySet();
+    private final AtomicInteger queuedCount = new AtomicInteger();
+    // When each pair was last taken from or prefetched, for evicting the stalest
+    private final Map<String, Long> lastRequested = new ConcurrentHashMap<>();
+    private final AtomicLong requestClock = new AtomicLong();
+
+    // Only touched on the worker thread
+    private final Map<String, PuzzleSolver> solvers = new HashMap<>();
+    private final Random random = new Random();
+
+    private volatile boolean paused;
+    private volatile PuzzleSolver activeSolver;
+
+    /**
+     * Constructs a generator with its own low-priority worker thread, which
+     * starts by opening the bundled puzzle packs.
+     *
+     * @param packs The precomputed puzzle source to try first. Only used on
+     *              the worker thread.
+     */
+    public PuzzleGenerator(PuzzlePackRepository packs) {
+        this.packs = packs;
+        this.worker = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(() -> {
+                Process.setThreadPriority(Process.THREAD_PRIORITY_BACKGROUND);
+                runnable.run();
+            }, TAG);
+            thread.setDaemon(true);
+            return thread;
+        });
+        worker.execute(packs::openAll);
+    }
+
+    /**
+     * Returns a ready game for the given size and depth and schedules a refill.
+     * If the queue is empty (for example right after a settings change) the
+     * game is built synchronously with the plain scramble, which is cheap;
+     * packs are never opened or read here, as this runs on the UI thread.
+     *
+     * @param rows     Number of rows.
+     * @param cols     Number of columns.
+     * @param solDepth Solution depth.
+     * @return A new game; never null.
+     */
+    public Revolution take(int rows, int cols, int solDepth) {
+        String key = key(rows, cols, solDepth);
+        lastRequested.put(key, requestClock.incrementAndGet());
+        BlockingQueue<Revolution> queue = queues.get(key);
+        Revolution game = queue != null ? queue.poll() : null;
+        if (game != null) {
+            queuedCount.decrementAndGet();
+        } else {
+            game = new Revolution(rows, cols, solDepth);
+        }
+        prefetch(rows, cols, solDepth);
+        return game;
+    }
+
+    /**
+     * Schedules the queue for a size and depth to be filled in the background.
+     * Does nothing while paused or if a refill for that pair is already pending.
+     * Every call makes the pair the most recently requested, so callers that
+     * fire on every step of a scroll should debounce.
+     *
+     * @param rows     Number of rows.
+     * @param cols     Number of columns.
+     * @param solDepth Solution depth.
+     */
+    public void prefetch(int rows, int cols, int solDepth) {
+        String key = key(rows, cols, solDepth);
+        lastRequested.put(key, requestClock.incrementAndGet());
+        if (paused || worker.isShutdown() || !pendingRefills.add(key)) {
+            return;
+        }
+        worker.execute(() -> {
+            try {
+                refill(key, rows, cols, solDepth);
+            } finally {
+                pendingRefills.remove(key);
+            }
+        });
+    }
+
+    /**
+     * Stops refilling and cancels the search in progress. Queued games are kept.
+     */
+    public void pause() {
+        paused = true;
+        PuzzleSolver solver = activeSolver;
+        if (solver != null) {
+            solver.cancel();
+        }
+    }
+
+    /**
+     * Allows refills again after {@link #pause()}.
+     */
+    public void resume() {
+        paused = false;
+    }
+
+    /**
+     * Drops every queued game to release memory.
+     */
+    public void trimMemory() {
+        for (BlockingQueue<Revolution> queue : queues.values()) {
+            while (queue.poll() != null) {
+                queuedCount.decrementAndGet();
+            }
+        }
+    }
+
+    /**
+     * Cancels all work and stops the worker thread.
+     */
+    public void shutdown() {
+        pause();
+        worker.shutdownNow();
+        trimMemory();
+    }
+
+    /**
+     * Generates games until the queue is full or the generator is paused.
+     * At the global cap, games of less recently requested pairs are evicted
+     * to make room; if there are none, refilling stops. Runs on the worker
+     * thread.
+     */
+    private void refill(String key, int rows, int cols, int solDepth) {
+        BlockingQueue<Revolution> queue = queues.get(key);
+        if (queue == null) {
+            queue = new ArrayBlockingQueue<>(QUEUE_CAPACITY);
+            BlockingQueue<Revolution> existing = queues.putIfAbsent(key, queue);
+            if (existing != null) {
+                queue = existing;
+            }
+        }
+
+        while (!paused && queue.remainingCapacity() > 0) {
+            if (queuedCount.get() >= MAX_QUEUED_PUZZLES && !evictStalerThan(key)) {
+                return;
+            }
+            Revolution game = generate(rows, cols, solDepth);
+            if (game == null || paused) {
+                return;
+            }
+            if (queue.offer(game)) {
+                queuedCount.incrementAndGet();
+            }
+        }
+    }
+
+    /**
+     * Drops every queued game of the least recently requested pair, if that
+     * pair was requested less recently than the given one.
+     *
+     * @return True if any game was dropped.
+     */
+    private boolean evictStalerThan(String key) {
+        long keyRequested = lastRequested.getOrDefault(key, 0L);
+        String stalest = null;
+        long stalestRequested = keyRequested;
+        for (Map.Entry<String, BlockingQueue<Revolution>> entry : queues.entrySet()) {
+            long requested = lastRequested.getOrDefault(entry.getKey(), 0L);
+            if (!entry.getValue().isEmpty() && requested < stalestRequested) {
+                stalest = entry.getKey();
+                stalestRequested = requested;
+            }
+        }
+        if (stalest == null) {
+            return false;
+        }
+        BlockingQueue<Revolution> queue = queues.get(stalest);
+        int dropped = 0;
+        while (queue.poll() != null) {
+            queuedCount.decrementAndGet();
+            dropped++;
+        }
+        return dropped > 0;
+    }
+
+    /**
+     * Produces one game of verified depth, or falls back to a plain scramble,
+     * which may be shallower, when verification does not succeed within the
+     * budget.
+     */
+    private Revolution generate(int rows, int cols, int solDepth) {
+        Revolution fromPack = packs.nextPuzzle(rows, cols, solDepth);
+        if (fromPack != null) {
+            return fromPack;
+        }
+
+        PuzzleSolver solver = solvers.get(rows + "x" + cols);
+        if (solver == null) {
+            solver = new PuzzleSolver(rows, cols);
+            solvers.put(rows + "x" + cols, solver);
+        }
+        solver.reset();
+        activeSolver = solver;
+
+        try {
+            long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(VERIFY_BUDGET_MS);
+            int moveCount = PackedBoard.moveCount(rows, cols);
+            long solved = PackedBoard.solved(rows, cols);
+
+            while (!paused && System.nanoTime() - deadline < 0) {
+                long board = solved;
+                int last = -1;
+                for (int i = 0; i < solDepth; i++) {
+                    int move;
+                    do {
+                        move = random.nextInt(moveCount);
+                    } while (last >= 0 && move == PackedBoard.inverse(last));
+                    board = PackedBoard.applyMove(board, cols, move);
+                    last = move;
+                }
+
+                int[] solution = solver.solve(board, solDepth, deadline);
+                if (solution != null && solution.length == solDepth) {
+                    return new Revolution(rows, cols, board, solution);
+                }
+            }
+        } catch (RuntimeException e) {
+            Log.w(TAG, "Puzzle verification failed", e);
+        } finally {
+            activeSolver = null;
+        }
+
+        return paused ? null : new Revolution(rows, cols, solDepth);
+    }
+
+    private static String key(int rows, int cols, int solDepth) {
+        return rows + "x" + cols + "@" + solDepth;
+    }
+}
@@ -0,0 +1,184 @@
+package edu.commonwealthu.hw3_wight;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * Read-only view of a precomputed puzzle pack. A pack holds boards of a single
+ * grid size, grouped into buckets by verified optimal solution depth, and is
+ * memory-mapped so that opening it costs the same no matter how many puzzles
+ * it contains; only the small offset table is copied onto the heap.
+ * <p>
+ * Binary layout (big-endian):
+ * <pre>
+ *   int    magic     'RVPK'
+ *   short  version
+ *   byte   rows
+ *   byte   cols
+ *   short  maxDepth
+ *   short  reserved
+ *   (maxDepth + 1) x { long offset, int count }   offset table, one entry per depth
+ *   records           bucket d holds count records of {@link #recordSize(int)} bytes
+ * </pre>
+ * Each record is the packed board (see {@link PackedBoard}) followed by one
+ * byte per move of an optimal solution, so record i of depth d is found at
+ * offset + i * (8 + d) without any scanning.
+ *
+ * @author Ethan Wight
+ */
+public final class PuzzlePack implements Closeable {
+
+    static final int MAGIC = 0x5256504B;
+    static final int VERSION = 1;
+    static final int HEADER_SIZE = 12;
+    static final int INDEX_ENTRY_SIZE = 12;
+
+    private final ByteBuffer buffer;
+    private final int rows;
+    private final int cols;
+    private final int maxDepth;
+    private final int[] offsets;
+    private final int[] counts;
+
+    private PuzzlePack(ByteBuffer buffer) throws IOException {
+        this.buffer = buffer.order(ByteOrder.BIG_ENDIAN);
+        if (buffer.capacity() < HEADER_SIZE || buffer.getInt(0) != MAGIC) {
+            throw new IOException("Not a puzzle pack");
+        }
+        if (buffer.getShort(4) != VERSION) {
+            throw new IOException("Unsupported puzzle pack version " + buffer.getShort(4));
+        }
+        this.rows = buffer.get(6);
+        this.cols = buffer.get(7);
+        this.maxDepth = buffer.getShort(8);
+        if (rows * cols > PackedBoard.MAX_TILES || maxDepth < 0) {
+            throw new IOException("Corrupt puzzle pack header");
+        }
+
+        this.offsets = new int[maxDepth + 1];
+        this.counts = new int[maxDepth + 1];
+        for (int d = 0; d <= maxDepth; d++) {
+            int entry = HEADER_SIZE + d * INDEX_ENTRY_SIZE;
+            long offset = buffer.getLong(entry);
+            int count = buffer.getInt(entry + 8);
+            if (offset < 0 || count < 0
+                    || offset + (long) count * recordSize(d) > buffer.capacity()) {
+                throw new IOException("Corrupt puzzle pack index at depth " + d);
+            }
+            offsets[d] = (int) offset;
+            counts[d] = count;
+        }
+    }
+
+    /**
+     * Memory-maps a pack stored in a file.
+     *
+     * @param file The pack file.
+     * @return The opened pack.
+     * @throws IOException If the file cannot be mapped or is not a valid pack.
+     */
+    public static PuzzlePack open(File file) throws IOException {
+        try (RandomAccessFile raf = new RandomAccessFile(file, "r")) {
+            return map(raf.getChannel(), 0, raf.length());
+        }
+    }
+
+    /**
+     * Memory-maps a pack stored in part of a file, such as an uncompressed APK asset.
+     * The mapping stays valid after the channel is closed.
+     *
+     * @param channel The channel to map.
+     * @param start   The byte offset of the pack within the channel.
+     * @param length  The length of the pack in bytes.
+     * @return The opened pack.
+     * @throws IOException If the region cannot be mapped or is not a valid pack.
+     */
+    public static PuzzlePack map(FileChannel channel, long start, long length) throws IOException {
+        if (length > Integer.MAX_VALUE) {
+            throw new IOException("Puzzle pack too large to map: " + length);
+        }
+        MappedByteBuffer mapped = channel.map(FileChannel.MapMode.READ_ONLY, start, length);
+        return new PuzzlePack(mapped);
+    }
+
+    /**
+     * Returns the size in bytes of one record in the bucket for a depth.
+     *
+     * @param depth The solution depth.
+     * @return Eight bytes of board plus one byte per solution move.
+     */
+    public static int recordSize(int depth) {
+        return 8 + depth;
+    }
+
+    public int getRows() {
+        return rows;
+    }
+
+    public int getCols() {
+        return cols;
+    }
+
+    public int getMaxDepth() {
+        return maxDepth;
+    }
+
+    /**
+     * Returns how many puzzles the pack holds for a depth.
+     *
+     * @param depth The solution depth.
+     * @return The number of puzzles, or 0 if the depth is out of range.
+     */
+    public int count(int depth) {
+        return depth >= 0 && depth <= maxDepth ? counts[depth] : 0;
+    }
+
+    /**
+     * Returns the packed board of a puzzle.
+     *
+     * @param depth The solution depth bucket.
+     * @param index The index within the bucket.
+     * @return The packed board.
+     */
+    public long boardAt(int depth, int index) {
+        return buffer.getLong(recordOffset(depth, index));
+    }
+
+    /**
+     * Returns the optimal solution stored with a puzzle as encoded moves.
+     *
+     * @param depth The solution depth bucket.
+     * @param index The index within the bucket.
+     * @return A new array of depth encoded moves.
+     */
+    public int[] solutionAt(int depth, int index) {
+        int position = recordOffset(depth, index) + 8;
+        int[] solution = new int[depth];
+        for (int i = 0; i < depth; i++) {
+            solution[i] = buffer.get(position + i) & 0xFF;
+        }
+        return solution;
+    }
+
+    private int recordOffset(int depth, int index) {
+        if (index < 0 || index >= count(depth)) {
+            throw new IndexOutOfBoundsException("No puzzle " + index + " at depth " + depth);
+        }
+        return offsets[depth] + index * recordSize(depth);
+    }
+
+    /**
+     * Mapped buffers are released by the garbage collector; closing only
+     * documents that the pack is no longer in use.
+     */
+    @Override
+    public void close() {
+        // Nothing to release eagerly
+    }
+}
@@ -0,0 +1,139 @@
+package edu.commonwealthu.hw3_wight;
+
+import android.content.Context;
+import android.content.res.AssetFileDescriptor;
+import android.content.res.AssetManager;
+import android.util.Log;
+
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Serves puzzles from the precomputed packs bundled under assets/packs.
+ * Packs are memory-mapped on first use and kept open for the life of the
+ * process; each (grid size, depth) bucket is walked with its own cursor so
+ * that consecutive games do not repeat a board. Opening a pack touches the
+ * APK, so every method here belongs on a background thread.
+ *
+ * @author Ethan Wight
+ */
+public class PuzzlePackRepository {
+
+    private static final String TAG = "PuzzlePackRepository";
+    private static final String PACK_DIRECTORY = "packs/";
+    private static final String PACK_EXTENSION = ".rvpk";
+    private static final Pattern PACK_NAME = Pattern.compile("revolution_(\\d+)x(\\d+)\\.rvpk");
+
+    private final AssetManager assets;
+    private final Map<String, PuzzlePack> packs = new HashMap<>();
+    private final Map<String, int[]> cursors = new HashMap<>();
+    private final Random random = new Random();
+
+    /**
+     * Constructs a repository backed by the application's assets.
+     *
+     * @param context Any context; only the application's assets are retained.
+     */
+    public PuzzlePackRepository(Context context) {
+        this.assets = context.getApplicationContext().getAssets();
+    }
+
+    /**
+     * Opens every bundled pack ahead of the first request.
+     */
+    public synchronized void openAll() {
+        String[] names;
+        try {
+            names = assets.list(PACK_DIRECTORY.substring(0, PACK_DIRECTORY.length() - 1));
+        } catch (IOException e) {
+            Log.w(TAG, "Failed to list puzzle packs", e);
+            return;
+        }
+        if (names == null) {
+            return;
+        }
+        for (String name : names) {
+            Matcher matcher = PACK_NAME.matcher(name);
+            if (matcher.matches()) {
+                getPack(Integer.parseInt(matcher.group(1)), Integer.parseInt(matcher.group(2)));
+            }
+        }
+    }
+
+    /**
+     * Returns the next precomputed puzzle for a grid size and depth.
+     *
+     * @param rows     Number of rows.
+     * @param cols     Number of columns.
+     * @param solDepth Optimal solution depth wanted.
+     * @return A new game, or null if no pack covers this size and depth.
+     */
+    public synchronized Revolution nextPuzzle(int rows, int cols, int solDepth) {
+        PuzzlePack pack = getPack(rows, cols);
+        if (pack == null || pack.count(solDepth) == 0) {
+            return null;
+        }
+
+        int index = nextIndex(rows + "x" + cols + "@" + solDepth, pack.count(solDepth));
+        return new Revolution(rows, cols, pack.boardAt(solDepth, index),
+                pack.solutionAt(solDepth, index));
+    }
+
+    /**
+     * Returns whether a pack covers a grid size and depth.
+     *
+     * @param rows     Number of rows.
+     * @param cols     Number of columns.
+     * @param solDepth Optimal solution depth.
+     * @return True if at least one puzzle is available.
+     */
+    public synchronized boolean hasPuzzles(int rows, int cols, int solDepth) {
+        PuzzlePack pack = getPack(rows, cols);
+        return pack != null && pack.count(solDepth) > 0;
+    }
+
+    /**
+     * Advances the cursor for a bucket, starting at a random index so that a
+     * fresh install does not always begin with the same puzzle.
+     */
+    private int nextIndex(String bucket, int count) {
+        int[] cursor = cursors.get(bucket);
+        if (cursor == null) {
+            cursor = new int[]{random.nextInt(count)};
+            cursors.put(bucket, cursor);
+        }
+        int index = cursor[0] % count;
+        cursor[0] = index + 1;
+        return index;
+    }
+
+    /**
+     * Opens (or returns the already opened) pack for a grid size.
+     */
+    private PuzzlePack getPack(int rows, int cols) {
+        String name = PACK_DIRECTORY + "revolution_" + rows + "x" + cols + PACK_EXTENSION;
+        if (packs.containsKey(name)) {
+            return packs.get(name);
+        }
+
+        PuzzlePack pack = null;
+        try (AssetFileDescriptor afd = assets.openFd(name);
+             FileInputStream in = afd.createInputStream()) {
+            pack = PuzzlePack.map(in.getChannel(), afd.getStartOffset(), afd.getLength());
+            if (pack.getRows() != rows || pack.getCols() != cols) {
+                Log.w(TAG, "Pack " + name + " has the wrong grid size");
+                pack = null;
+            }
+        } catch (IOException e) {
+            // Missing or compressed asset: fall back to on-the-fly generation
+            Log.d(TAG, "No puzzle pack for " + rows + "x" + cols);
+        }
+        packs.put(name, pack);
+        return pack;
+    }
+}
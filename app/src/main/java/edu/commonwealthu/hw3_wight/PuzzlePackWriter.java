@@ -0,0 +1,259 @@
+package edu.commonwealthu.hw3_wight;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+
+/**
+ * Offline builder for {@link PuzzlePack} files. Every bucket is a true
+ * difficulty level rather than a scramble length. As far as memory allows,
+ * boards are drawn from an exhaustive breadth-first search from the solved
+ * board, which lists every board at each exact distance; this is the only way
+ * to reach the deepest boards, which random scrambles almost never produce.
+ * Beyond that, boards are produced by random scrambles and kept only when
+ * {@link PuzzleSolver} confirms that their optimal solution is exactly the
+ * target depth. The header records the deepest depth actually filled, so a
+ * pack of a fully searched board ends at its diameter.
+ * <p>
+ * Usage: {@code PuzzlePackWriter <rows> <cols> <maxDepth> <puzzlesPerDepth> <outputFile>}
+ *
+ * @author Ethan Wight
+ */
+public class PuzzlePackWriter {
+
+    private static final int ATTEMPTS_PER_PUZZLE = 50;
+    // Most neighbors one breadth-first level may generate, about 64 MB of boards
+    private static final long ENUMERATION_LIMIT = 1L << 23;
+
+    private final int rows;
+    private final int cols;
+    private final int maxDepth;
+    private final PuzzleSolver solver;
+    private final Random random;
+
+    // levels[d]: every board at exactly distance d, sorted, for each enumerated depth
+    private final long[][] levels;
+    private final long[][] boards;
+    private final byte[][] solutions;
+    private final int[] counts;
+
+    /**
+     * Constructs a writer for one grid size.
+     *
+     * @param rows     The number of rows.
+     * @param cols     The number of columns.
+     * @param maxDepth The deepest bucket to fill.
+     * @param seed     The random seed, so packs can be rebuilt reproducibly.
+     */
+    public PuzzlePackWriter(int rows, int cols, int maxDepth, long seed) {
+        if (rows * cols > PackedBoard.MAX_TILES) {
+            throw new IllegalArgumentException("Board too large to pack: " + rows + "x" + cols);
+        }
+        this.rows = rows;
+        this.cols = cols;
+        this.maxDepth = maxDepth;
+        this.solver = new PuzzleSolver(rows, cols);
+        this.random = new Random(seed);
+        this.levels = new long[maxDepth + 1][];
+        this.boards = new long[maxDepth + 1][];
+        this.solutions = new byte[maxDepth + 1][];
+        this.counts = new int[maxDepth + 1];
+    }
+
+    /**
+     * Generates up to perDepth distinct puzzles for every depth from 1 to maxDepth.
+     * Depths the board cannot reach (beyond its diameter) stay empty.
+     *
+     * @param perDepth The number of puzzles wanted per depth.
+     */
+    public void generate(int perDepth) {
+        int moveCount = PackedBoard.moveCount(rows, cols);
+        long solved = PackedBoard.solved(rows, cols);
+
+        for (int depth = enumerate(perDepth) + 1; depth <= maxDepth; depth++) {
+            boards[depth] = new long[perDepth];
+            solutions[depth] = new byte[perDepth * depth];
+            Set<Long> seen = new HashSet<>();
+            long attempts = (long) perDepth * ATTEMPTS_PER_PUZZLE;
+
+            for (long a = 0; a < attempts && counts[depth] < perDepth; a++) {
+                long board = solved;
+                int last = -1;
+                for (int i = 0; i < depth; i++) {
+                    int move;
+                    do {
+                        move = random.nextInt(moveCount);
+                    } while (last >= 0 && move == PackedBoard.inverse(last));
+                    board = PackedBoard.applyMove(board, cols, move);
+                    last = move;
+                }
+                if (!seen.add(board)) {
+                    continue;
+                }
+
+                int[] solution = solver.solve(board, depth);
+                if (solution == null || solution.length != depth) {
+                    continue;
+                }
+
+                int index = counts[depth]++;
+                boards[depth][index] = board;
+                for (int i = 0; i < depth; i++) {
+                    solutions[depth][index * depth + i] = (byte) solution[i];
+                }
+            }
+        }
+    }
+
+    /**
+     * Walks out from the solved board one complete level at a time, filling
+     * each bucket with boards picked at random from its level, until the next
+     * level would not fit in memory.
+     *
+     * @param perDepth The number of puzzles wanted per depth.
+     * @return The deepest depth filled this way; maxDepth if every board was found.
+     */
+    private int enumerate(int perDepth) {
+        int moveCount = PackedBoard.moveCount(rows, cols);
+        levels[0] = new long[] {PackedBoard.solved(rows, cols)};
+        long[] previous = new long[0];
+
+        for (int depth = 1; depth <= maxDepth; depth++) {
+            long[] current = levels[depth - 1];
+            if ((long) current.length * moveCount > ENUMERATION_LIMIT) {
+                return depth - 1;
+            }
+            // Moves are reversible, so a neighbor of the current level is in
+            // the previous, the current or the next one
+            long[] next = new long[current.length * moveCount];
+            int size = 0;
+            for (long board : current) {
+                for (int move = 0; move < moveCount; move++) {
+                    next[size++] = PackedBoard.applyMove(board, cols, move);
+                }
+            }
+            Arrays.sort(next, 0, size);
+            int kept = 0;
+            for (int i = 0; i < size; i++) {
+                long board = next[i];
+                if ((kept == 0 || next[kept - 1] != board)
+                        && Arrays.binarySearch(previous, board) < 0
+                        && Arrays.binarySearch(current, board) < 0) {
+                    next[kept++] = board;
+                }
+            }
+            if (kept == 0) {
+                // Every board has been found; deeper buckets cannot be filled
+                return maxDepth;
+            }
+            levels[depth] = Arrays.copyOf(next, kept);
+            pick(depth, perDepth);
+            previous = current;
+        }
+        return maxDepth;
+    }
+
+    /**
+     * Fills a bucket with distinct boards picked at random from its level,
+     * each with a solution read back through the levels below it.
+     */
+    private void pick(int depth, int perDepth) {
+        long[] level = levels[depth].clone();
+        int count = Math.min(perDepth, level.length);
+        boards[depth] = new long[count];
+        solutions[depth] = new byte[count * depth];
+
+        for (int i = 0; i < count; i++) {
+            int j = i + random.nextInt(level.length - i);
+            long board = level[j];
+            level[j] = level[i];
+            level[i] = board;
+
+            boards[depth][i] = board;
+            for (int d = depth; d > 0; d--) {
+                int move = 0;
+                while (Arrays.binarySearch(levels[d - 1],
+                        PackedBoard.applyMove(board, cols, move)) < 0) {
+                    move++;
+                }
+                solutions[depth][i * depth + depth - d] = (byte) move;
+                board = PackedBoard.applyMove(board, cols, move);
+            }
+        }
+        counts[depth] = count;
+    }
+
+    /**
+     * Writes the generated puzzles in the {@link PuzzlePack} format.
+     *
+     * @param file The destination file.
+     * @throws IOException If the file cannot be written.
+     */
+    public void write(File file) throws IOException {
+        // Empty buckets past the deepest filled one are left out of the header
+        int deepest = maxDepth;
+        while (deepest > 0 && counts[deepest] == 0) {
+            deepest--;
+        }
+        try (DataOutputStream out = new DataOutputStream(
+                new BufferedOutputStream(new FileOutputStream(file)))) {
+            out.writeInt(PuzzlePack.MAGIC);
+            out.writeShort(PuzzlePack.VERSION);
+            out.writeByte(rows);
+            out.writeByte(cols);
+            out.writeShort(deepest);
+            out.writeShort(0);
+
+            long offset = PuzzlePack.HEADER_SIZE
+                    + (long) (deepest + 1) * PuzzlePack.INDEX_ENTRY_SIZE;
+            for (int d = 0; d <= deepest; d++) {
+                out.writeLong(offset);
+                out.writeInt(counts[d]);
+                offset += (long) counts[d] * PuzzlePack.recordSize(d);
+            }
+
+            for (int d = 1; d <= deepest; d++) {
+                for (int i = 0; i < counts[d]; i++) {
+                    out.writeLong(boards[d][i]);
+                    out.write(solutions[d], i * d, d);
+                }
+            }
+        }
+    }
+
+    /**
+     * Returns the number of puzzles generated for each depth.
+     */
+    public int[] getCounts() {
+        return Arrays.copyOf(counts, counts.length);
+    }
+
+    /**
+     * Command-line entry point for building packs ahead of time.
+     *
+     * @param args rows, cols, maxDepth, puzzlesPerDepth, outputFile
+     * @throws IOException If the pack cannot be written.
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length != 5) {
+            System.err.println("Usage: PuzzlePackWriter <rows> <cols> <maxDepth> "
+                    + "<puzzlesPerDepth> <outputFile>");
+            System.exit(1);
+        }
+        int rows = Integer.parseInt(args[0]);
+        int cols = Integer.parseInt(args[1]);
+        int maxDepth = Integer.parseInt(args[2]);
+        int perDepth = Integer.parseInt(args[3]);
+
+        PuzzlePackWriter writer = new PuzzlePackWriter(rows, cols, maxDepth, 0x5EED);
+        writer.generate(perDepth);
+        writer.write(new File(args[4]));
+        System.out.println("Puzzles per depth: " + Arrays.toString(writer.getCounts()));
+    }
+}
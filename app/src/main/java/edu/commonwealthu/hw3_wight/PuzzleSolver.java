@@ -0,0 +1,234 @@
+package edu.commonwealthu.hw3_wight;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Finds shortest move sequences for packed Revolution boards using
+ * iterative-deepening A* with the admissible {@link MoveTable#heuristic}.
+ * Moves come from a {@link MoveTable}, so any {@link PuzzleVariant} can be solved.
+ * A search can be bounded by depth, by a deadline, or cancelled from another
+ * thread; in each of those cases it returns null instead of a solution.
+ * A CPU budget (see {@link #setCpuBudget}) makes a long search pause at
+ * regular intervals so that it only takes a share of a core.
+ * Instances are not thread-safe; use one solver per worker thread.
+ *
+ * @author Ethan Wight
+ */
+public class PuzzleSolver {
+
+    private static final int FOUND = -1;
+    private static final int ABORTED = -2;
+    private static final int DEADLINE_CHECK_INTERVAL = 4096;
+
+    private final MoveTable moves;
+    private final int moveCount;
+    private final int[] path;
+
+    private volatile boolean cancelled;
+    private boolean hasDeadline;
+    private long deadlineNanos;
+    private long workNanos;
+    private long restNanos;
+    private long sliceStartNanos;
+    private long nodesExpanded;
+    private boolean timedOut;
+    private int foundLength;
+
+    /**
+     * Constructs a solver for classic boards of the given size.
+     *
+     * @param rows The number of rows.
+     * @param cols The number of columns.
+     */
+    public PuzzleSolver(int rows, int cols) {
+        this(PuzzleVariant.CLASSIC.table(rows, cols));
+    }
+
+    /**
+     * Constructs a solver for boards played with the given moves.
+     *
+     * @param moves The moves of the variant being played.
+     */
+    public PuzzleSolver(MoveTable moves) {
+        this.moves = moves;
+        this.moveCount = moves.moveCount();
+        this.path = new int[64];
+    }
+
+    /**
+     * Finds an optimal solution no longer than maxDepth, with no time limit.
+     *
+     * @param board    The packed board to solve.
+     * @param maxDepth The longest solution to consider.
+     * @return The encoded moves of an optimal solution, or null if none exists
+     *         within maxDepth or the search was cancelled.
+     */
+    public int[] solve(long board, int maxDepth) {
+        return solve(board, maxDepth, 0L, false);
+    }
+
+    /**
+     * Finds an optimal solution no longer than maxDepth before a deadline.
+     *
+     * @param board         The packed board to solve.
+     * @param maxDepth      The longest solution to consider.
+     * @param deadlineNanos The {@link System#nanoTime()} value at which to give up.
+     * @return The encoded moves of an optimal solution, or null if none was found.
+     */
+    public int[] solve(long board, int maxDepth, long deadlineNanos) {
+        return solve(board, maxDepth, deadlineNanos, true);
+    }
+
+    private int[] solve(long board, int maxDepth, long deadlineNanos, boolean hasDeadline) {
+        this.hasDeadline = hasDeadline;
+        this.deadlineNanos = deadlineNanos;
+        this.sliceStartNanos = System.nanoTime();
+        this.nodesExpanded = 0;
+        this.timedOut = false;
+        maxDepth = Math.min(maxDepth, path.length);
+
+        int bound = moves.heuristic(board);
+        while (bound <= maxDepth) {
+            int result = search(board, 0, bound, -1, 0);
+            if (result == FOUND) {
+                return foundPath();
+            }
+            if (result == ABORTED || result == Integer.MAX_VALUE) {
+                return null;
+            }
+            bound = result;
+        }
+        return null;
+    }
+
+    /**
+     * Returns the optimal distance of a board, or -1 if it exceeds maxDepth.
+     *
+     * @param board    The packed board.
+     * @param maxDepth The largest distance to search.
+     * @return The optimal number of moves, or -1.
+     */
+    public int distance(long board, int maxDepth) {
+        int[] solution = solve(board, maxDepth);
+        return solution == null ? -1 : solution.length;
+    }
+
+    /**
+     * Limits the share of a core the solver uses: after searching for workMs
+     * it sleeps for restMs before going on. Deadlines still count wall time,
+     * so a throttled search gets less done before its deadline.
+     * Interrupting the thread while it sleeps cancels the search.
+     *
+     * @param workMs How long to search between pauses.
+     * @param restMs How long each pause lasts, or 0 to run flat out.
+     */
+    public void setCpuBudget(long workMs, long restMs) {
+        this.workNanos = TimeUnit.MILLISECONDS.toNanos(workMs);
+        this.restNanos = TimeUnit.MILLISECONDS.toNanos(restMs);
+    }
+
+    /**
+     * Requests that any search in progress stop as soon as possible.
+     * The flag stays set until {@link #reset()} is called.
+     */
+    public void cancel() {
+        cancelled = true;
+    }
+
+    /**
+     * Clears a previous cancellation so the solver can be reused.
+     */
+    public void reset() {
+        cancelled = false;
+    }
+
+    /**
+     * Returns whether the last search stopped because its deadline passed.
+     */
+    public boolean isTimedOut() {
+        return timedOut;
+    }
+
+    /**
+     * Returns the number of nodes expanded by the last search.
+     */
+    public long getNodesExpanded() {
+        return nodesExpanded;
+    }
+
+    private int[] foundPath() {
+        int[] solution = new int[foundLength];
+        System.arraycopy(path, 0, solution, 0, foundLength);
+        return solution;
+    }
+
+    /**
+     * Depth-first search bounded by f = g + h. Returns FOUND, ABORTED, or the
+     * smallest f value that exceeded the bound.
+     */
+    private int search(long board, int g, int bound, int lastMove, int run) {
+        int h = moves.heuristic(board);
+        int f = g + h;
+        if (f > bound) {
+            return f;
+        }
+        if (h == 0) {
+            foundLength = g;
+            return FOUND;
+        }
+        if ((++nodesExpanded % DEADLINE_CHECK_INTERVAL) == 0) {
+            if (cancelled) {
+                return ABORTED;
+            }
+            if (hasDeadline || restNanos > 0) {
+                long now = System.nanoTime();
+                if (hasDeadline && now - deadlineNanos > 0) {
+                    timedOut = true;
+                    return ABORTED;
+                }
+                if (restNanos > 0 && now - sliceStartNanos > workNanos && !rest()) {
+                    return ABORTED;
+                }
+            }
+        }
+
+        int min = Integer.MAX_VALUE;
+        for (int move = 0; move < moveCount; move++) {
+            // Undoing the previous move never helps
+            if (lastMove >= 0 && move == moves.inverse(lastMove)) {
+                continue;
+            }
+            // A longer run of one move equals a shorter run of its inverse
+            // (three quarter turns are one the other way)
+            boolean repeat = move == lastMove;
+            if (repeat && run >= moves.maxRun(move)) {
+                continue;
+            }
+            path[g] = move;
+            int result = search(moves.apply(board, move), g + 1, bound,
+                    move, repeat ? run + 1 : 1);
+            if (result == FOUND || result == ABORTED) {
+                return result;
+            }
+            if (result < min) {
+                min = result;
+            }
+        }
+        return min;
+    }
+
+    /**
+     * Pauses for the rest part of the CPU budget. Returns false if the search
+     * was cancelled or the thread interrupted meanwhile.
+     */
+    private boolean rest() {
+        try {
+            TimeUnit.NANOSECONDS.sleep(restNanos);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+        sliceStartNanos = System.nanoTime();
+        return !cancelled;
+    }
+}
@@ -0,0 +1,190 @@
+package edu.commonwealthu.hw3_wight;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * The rule sets a Revolution board can be played with. Each variant lists
+ * its moves as permutations of the flat board positions, and {@link #table}
+ * turns them into a {@link MoveTable} that the game and the solver use
+ * without knowing which variant they are playing.
+ * <p>
+ * Moves are numbered in the order a variant lists them. Rotations are listed
+ * anchor by anchor in row-major order, counter-clockwise then clockwise, so
+ * {@link #CLASSIC} moves are numbered exactly as in {@link PackedBoard}.
+ *
+ * @author Ethan Wight
+ */
+public enum PuzzleVariant {
+
+    /** Quarter turns of any 2x2 block. */
+    CLASSIC {
+        @Override
+        void addMoves(int rows, int cols, List<int[]> moves) {
+            addBlockRotations(rows, cols, 2, false, moves);
+        }
+    },
+
+    /** Quarter turns of any 3x3 block; the center tile stays put. */
+    BLOCK_3X3 {
+        @Override
+        void addMoves(int rows, int cols, List<int[]> moves) {
+            addBlockRotations(rows, cols, 3, false, moves);
+        }
+    },
+
+    /** Half turns of any 2x2 block, which swap its diagonals. */
+    HALF_TURN {
+        @Override
+        void addMoves(int rows, int cols, List<int[]> moves) {
+            for (int r = 0; r + 1 < rows; r++) {
+                for (int c = 0; c + 1 < cols; c++) {
+                    int[] move = identity(rows * cols);
+                    int tl = r * cols + c;
+                    swap(move, tl, tl + cols + 1);
+                    swap(move, tl + 1, tl + cols);
+                    add(moves, move);
+                }
+            }
+        }
+    },
+
+    /** Cyclic shifts of a whole row left or right, or a whole column up or down. */
+    SHIFTS {
+        @Override
+        void addMoves(int rows, int cols, List<int[]> moves) {
+            for (int r = 0; r < rows; r++) {
+                for (int step : new int[] {cols - 1, 1}) {
+                    int[] move = identity(rows * cols);
+                    for (int c = 0; c < cols; c++) {
+                        move[r * cols + c] = r * cols + (c + step) % cols;
+                    }
+                    add(moves, move);
+                }
+            }
+            for (int c = 0; c < cols; c++) {
+                for (int step : new int[] {rows - 1, 1}) {
+                    int[] move = identity(rows * cols);
+                    for (int r = 0; r < rows; r++) {
+                        move[r * cols + c] = ((r + step) % rows) * cols + c;
+                    }
+                    add(moves, move);
+                }
+            }
+        }
+    },
+
+    /** Quarter turns of 2x2 blocks on a board whose edges wrap around. */
+    TORUS {
+        @Override
+        void addMoves(int rows, int cols, List<int[]> moves) {
+            addBlockRotations(rows, cols, 2, true, moves);
+        }
+    };
+
+    private final Map<Integer, MoveTable> tables = new ConcurrentHashMap<>();
+
+    /**
+     * Lists the moves of this variant on a grid, through {@link #add}.
+     */
+    abstract void addMoves(int rows, int cols, List<int[]> moves);
+
+    /**
+     * Returns the move table for a grid size, built once and then shared.
+     *
+     * @param rows The number of rows.
+     * @param cols The number of columns.
+     * @return The table.
+     * @throws IllegalArgumentException If the variant has no moves on this grid.
+     */
+    public MoveTable table(int rows, int cols) {
+        int key = rows * (PackedBoard.MAX_TILES + 1) + cols;
+        MoveTable table = tables.get(key);
+        if (table == null) {
+            List<int[]> moves = new ArrayList<>();
+            addMoves(rows, cols, moves);
+            if (moves.isEmpty()) {
+                throw new IllegalArgumentException(name() + " has no moves on " + rows + "x" + cols);
+            }
+            table = new MoveTable(rows, cols, moves);
+            tables.put(key, table);
+        }
+        return table;
+    }
+
+    /**
+     * Adds a move unless it does nothing or repeats an earlier one, as
+     * happens when short rows wrap around.
+     */
+    private static void add(List<int[]> moves, int[] move) {
+        if (Arrays.equals(move, identity(move.length))) {
+            return;
+        }
+        for (int[] existing : moves) {
+            if (Arrays.equals(existing, move)) {
+                return;
+            }
+        }
+        moves.add(move);
+    }
+
+    /**
+     * Adds counter-clockwise and clockwise quarter turns of every size x size
+     * block, anchored at its top-left corner. With wrapping, blocks may
+     * be anchored anywhere and continue across the opposite edges.
+     */
+    private static void addBlockRotations(int rows, int cols, int size, boolean wrap,
+                                          List<int[]> moves) {
+        if (size > rows || size > cols) {
+            return;
+        }
+        int lastRow = wrap ? rows : rows - size + 1;
+        int lastCol = wrap ? cols : cols - size + 1;
+        // The block's outer ring, clockwise from the top-left corner
+        int[] ringRows = new int[4 * (size - 1)];
+        int[] ringCols = new int[ringRows.length];
+        for (int i = 0; i < size - 1; i++) {
+            ringRows[i] = 0;
+            ringCols[i] = i;
+            ringRows[size - 1 + i] = i;
+            ringCols[size - 1 + i] = size - 1;
+            ringRows[2 * (size - 1) + i] = size - 1;
+            ringCols[2 * (size - 1) + i] = size - 1 - i;
+            ringRows[3 * (size - 1) + i] = size - 1 - i;
+            ringCols[3 * (size - 1) + i] = 0;
+        }
+        for (int r = 0; r < lastRow; r++) {
+            for (int c = 0; c < lastCol; c++) {
+                int[] ring = new int[ringRows.length];
+                for (int i = 0; i < ring.length; i++) {
+                    ring[i] = ((r + ringRows[i]) % rows) * cols + (c + ringCols[i]) % cols;
+                }
+                // A quarter turn carries each ring tile size - 1 places along the ring
+                for (int clockwise = 0; clockwise < 2; clockwise++) {
+                    int step = clockwise == 1 ? size - 1 : ring.length - (size - 1);
+                    int[] move = identity(rows * cols);
+                    for (int i = 0; i < ring.length; i++) {
+                        move[ring[i]] = ring[(i + step) % ring.length];
+                    }
+                    add(moves, move);
+                }
+            }
+        }
+    }
+
+    private static int[] identity(int tiles) {
+        int[] move = new int[tiles];
+        for (int p = 0; p < tiles; p++) {
+            move[p] = p;
+        }
+        return move;
+    }
+
+    private static void swap(int[] move, int a, int b) {
+        move[a] = b;
+        move[b] = a;
+    }
+}
@@ -0,0 +1,488 @@
+package edu.commonwealthu.hw3_wight;
+
+import android.os.Bundle;
+import android.os.Handler;
+import android.os.Looper;
+import android.view.MenuItem;
+import android.widget.AdapterView;
+import android.widget.ArrayAdapter;
+import android.widget.Button;
+import android.widget.Spinner;
+import android.widget.TextView;
+import android.widget.Toast;
+
+import androidx.annotation.NonNull;
+import androidx.appcompat.app.AppCompatActivity;
+import androidx.core.content.ContextCompat;
+
+import com.google.android.material.appbar.MaterialToolbar;
+
+import java.util.ArrayDeque;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.Executor;
+
+/**
+ * Race mode: the player and the computer start from the same scrambled board,
+ * shown side by side, and the first to solve it wins.
+ * <p>
+ * The computer's moves come from a {@link SolutionStreamer} on a background
+ * thread with a CPU budget, so its search never competes with the player's
+ * board for a whole core. It plays them at a chosen pace, with the delay
+ * between moves varied the way a person's would be; if the search has not
+ * caught up, it simply waits. Both boards follow their games through
+ * {@link GameEventBus} subscriptions and animate independently, and both
+ * sides are timed by one {@link RaceClock}.
+ *
+ * @author Ethan Wight
+ */
+public class RaceActivity extends AppCompatActivity {
+
+    public static final String EXTRA_ROWS = "rows";
+    public static final String EXTRA_COLS = "cols";
+    public static final String EXTRA_DEPTH = "depth";
+
+    private static final String KEY_PLAYER_GAME = "playerGame";
+    private static final String KEY_OPPONENT_GAME = "opponentGame";
+    private static final String KEY_PLAYER_MOVES = "playerMoves";
+    private static final String KEY_OPPONENT_MOVES = "opponentMoves";
+    private static final String KEY_ELAPSED = "elapsedNanos";
+    private static final String KEY_WINNER = "winner";
+    private static final String KEY_PACE = "pace";
+
+    private static final int DEFAULT_ROWS = 3;
+    private static final int DEFAULT_COLS = 3;
+    private static final int DEFAULT_DEPTH = 5;
+
+    // Average delay between the computer's moves for each pace
+    private static final long[] PACE_MS = {1500, 900, 500};
+    private static final int DEFAULT_PACE = 1;
+    // Each delay is this much shorter or longer at most
+    private static final double PACE_JITTER = 0.4;
+    // The computer looks at a new board for this many moves' worth of time first
+    private static final int READING_MOVES = 2;
+
+    // The search takes at most half a core: 8 ms of work, then 8 ms of rest
+    private static final long SOLVER_WORK_MS = 8;
+    private static final long SOLVER_REST_MS = 8;
+
+    private static final long CLOCK_TICK_MS = 100;
+    private static final long ROTATION_ANIMATION_DURATION = 300;
+
+    private int rows;
+    private int cols;
+    private int depth;
+
+    private final Handler handler = new Handler(Looper.getMainLooper());
+    private final Random random = new Random();
+    private final RaceClock clock = new RaceClock();
+    private Executor mainExecutor;
+    private Side player;
+    private Side opponent;
+    private Side winner;
+
+    private SolutionStreamer opponentSolver;
+    private final ArrayDeque<Integer> opponentMoves = new ArrayDeque<>();
+    private boolean opponentWaiting;
+    private int pace = DEFAULT_PACE;
+
+    private TextView clockView;
+    private Button rotateLeftButton;
+    private Button rotateRightButton;
+    private int selectedAnchorRow = -1;
+    private int selectedAnchorCol = -1;
+
+    private SoundEngine soundEngine;
+    private GameEventBus.Subscription soundSubscription;
+
+    private final Runnable clockTick = new Runnable() {
+        @Override
+        public void run() {
+            clockView.setText(RaceClock.format(clock.elapsedNanos()));
+            if (clock.isRunning()) {
+                handler.postDelayed(this, CLOCK_TICK_MS);
+            }
+        }
+    };
+
+    private final Runnable opponentTurn = this::playOpponentMove;
+
+    /**
+     * One side of the race: a game, the board showing it and its status line.
+     * The board follows the game's events, with a fresh subscription for each
+     * game so that a previous race's events never reach it.
+     */
+    private final class Side {
+
+        final BoardView board;
+        final TextView status;
+        final GameEventBus events = new GameEventBus();
+        Revolution game;
+        GameEventBus.Subscription subscription;
+        int moves;
+        long finishNanos = -1;
+
+        Side(BoardView board, TextView status) {
+            this.board = board;
+            this.status = status;
+            board.setRotationDuration(ROTATION_ANIMATION_DURATION);
+            board.setColors(ContextCompat.getColor(RaceActivity.this, R.color.tile_background),
+                    ContextCompat.getColor(RaceActivity.this, R.color.selected_tile_background),
+                    ContextCompat.getColor(RaceActivity.this, R.color.tile_text_color));
+        }
+
+        void attach(Revolution newGame, int movesMade) {
+            detach();
+            game = newGame;
+            moves = movesMade;
+            finishNanos = -1;
+            game.setEventBus(events);
+            board.setBoard(game.getGrid());
+            board.clearHighlight();
+            subscription = events.subscribe(mainExecutor, GameEventBus.Delivery.ALL,
+                    this::onEvents);
+            showMoves();
+        }
+
+        void detach() {
+            if (subscription != null) {
+                subscription.cancel();
+                subscription = null;
+            }
+            if (game != null) {
+                game.setEventBus(null);
+            }
+        }
+
+        private void onEvents(List<GameEvent> batch) {
+            for (GameEvent event : batch) {
+                if (event.getType() == GameEvent.Type.MOVE_APPLIED) {
+                    int move = event.getMove();
+                    board.enqueueRotation(PackedBoard.moveRow(cols, move),
+                            PackedBoard.moveCol(cols, move), !PackedBoard.isClockwise(move));
+                    moves++;
+                    showMoves();
+                } else if (event.getType() == GameEvent.Type.SOLVED) {
+                    // Timed when the move was made, not when it was drawn
+                    onFinished(this, clock.elapsedNanosAt(event.getTimeNanos()));
+                }
+            }
+        }
+
+        void showMoves() {
+            status.setText(getString(R.string.race_moves, moves));
+        }
+
+        void showFinished() {
+            status.setText(getString(R.string.race_finished,
+                    RaceClock.format(finishNanos), moves));
+        }
+    }
+
+    @Override
+    protected void onCreate(Bundle savedInstanceState) {
+        super.onCreate(savedInstanceState);
+        setContentView(R.layout.activity_race);
+
+        MaterialToolbar toolbar = findViewById(R.id.toolbar);
+        setSupportActionBar(toolbar);
+        if (getSupportActionBar() != null) {
+            getSupportActionBar().setDisplayHomeAsUpEnabled(true);
+        }
+
+        rows = getIntent().getIntExtra(EXTRA_ROWS, DEFAULT_ROWS);
+        cols = getIntent().getIntExtra(EXTRA_COLS, DEFAULT_COLS);
+        depth = getIntent().getIntExtra(EXTRA_DEPTH, DEFAULT_DEPTH);
+        mainExecutor = ContextCompat.getMainExecutor(this);
+
+        clockView = findViewById(R.id.raceClock);
+        player = new Side(findViewById(R.id.playerBoard), findViewById(R.id.playerStatus));
+        opponent = new Side(findViewById(R.id.opponentBoard), findViewById(R.id.opponentStatus));
+        player.board.setOnTileClickListener(this::onTileClicked);
+        player.board.setOnSwipeRotateListener(this::onSwipeRotate);
+        rotateLeftButton = findViewById(R.id.rotateLeftButton);
+        rotateRightButton = findViewById(R.id.rotateRightButton);
+        rotateLeftButton.setOnClickListener(v -> rotateSelectedSubgrid(true));
+        rotateRightButton.setOnClickListener(v -> rotateSelectedSubgrid(false));
+        findViewById(R.id.newRaceButton).setOnClickListener(v -> startRace());
+
+        opponentSolver = new SolutionStreamer(rows, cols);
+        opponentSolver.setCpuBudget(SOLVER_WORK_MS, SOLVER_REST_MS);
+
+        if (savedInstanceState != null) {
+            pace = savedInstanceState.getInt(KEY_PACE, DEFAULT_PACE);
+        }
+        setupPaceSpinner();
+
+        soundEngine = new SoundEngine(this);
+        soundEngine.setEnabled(ProgressStore.get(this).isSoundEnabled());
+        soundSubscription = soundEngine.follow(player.events);
+
+        if (savedInstanceState != null) {
+            restoreState(savedInstanceState);
+        } else {
+            startRace();
+        }
+    }
+
+    /**
+     * Sets up the pace spinner; a new pace applies from the computer's next move.
+     */
+    private void setupPaceSpinner() {
+        Spinner paceSpinner = findViewById(R.id.paceSpinner);
+        ArrayAdapter<String> adapter = new ArrayAdapter<>(this,
+                android.R.layout.simple_spinner_item,
+                getResources().getStringArray(R.array.race_paces));
+        adapter.setDropDownViewResource(android.R.layout.simple_spinner_dropdown_item);
+        paceSpinner.setAdapter(adapter);
+        paceSpinner.setSelection(pace);
+        paceSpinner.setOnItemSelectedListener(new AdapterView.OnItemSelectedListener() {
+            @Override
+            public void onItemSelected(AdapterView<?> parent, android.view.View view, int position, long id) {
+                pace = position;
+            }
+
+            @Override
+            public void onNothingSelected(AdapterView<?> parent) {}
+        });
+    }
+
+    /**
+     * Scrambles a new board and starts both sides on it.
+     */
+    private void startRace() {
+        Revolution playerGame = new Revolution(rows, cols, depth);
+        // A scramble can undo itself; a race needs something to solve
+        while (playerGame.isOver()) {
+            playerGame = new Revolution(rows, cols, depth);
+        }
+        // The computer gets its own game of the same board, with the same known solution
+        MoveTable moves = playerGame.getMoveTable();
+        Revolution opponentGame = new Revolution(rows, cols, playerGame.getPackedBoard(),
+                moves.movesAlong(playerGame.getKnownSolutionPath()));
+
+        clock.reset(0);
+        beginRace(playerGame, 0, opponentGame, 0);
+        scheduleOpponentMove(READING_MOVES * PACE_MS[pace]);
+    }
+
+    /**
+     * Shows both games, starts the computer's search from its board and runs the clock.
+     */
+    private void beginRace(Revolution playerGame, int playerMoves,
+                           Revolution opponentGame, int opponentMovesMade) {
+        handler.removeCallbacks(opponentTurn);
+        opponentMoves.clear();
+        opponentWaiting = false;
+        winner = null;
+        selectedAnchorRow = -1;
+        selectedAnchorCol = -1;
+
+        player.attach(playerGame, playerMoves);
+        opponent.attach(opponentGame, opponentMovesMade);
+        setPlayerInputEnabled(true);
+
+        opponentSolver.start(opponentGame.getKnownSolutionPath(), new SolutionStreamer.Listener() {
+            @Override
+            public void onMove(int move) {
+                opponentMoves.add(move);
+                if (opponentWaiting) {
+                    opponentWaiting = false;
+                    playOpponentMove();
+                }
+            }
+
+            @Override
+            public void onComplete(int totalMoves, boolean optimal) {}
+        });
+        opponent.status.setText(R.string.race_thinking);
+
+        clock.start();
+        handler.removeCallbacks(clockTick);
+        clockTick.run();
+    }
+
+    /**
+     * Makes the computer's next move, or waits for its search if no move is known yet.
+     */
+    private void playOpponentMove() {
+        if (winner != null || !clock.isRunning()) {
+            return;
+        }
+        Integer move = opponentMoves.poll();
+        if (move == null) {
+            opponentWaiting = true;
+            return;
+        }
+        opponent.game.move(move);
+        scheduleOpponentMove(nextDelayMs());
+    }
+
+    private void scheduleOpponentMove(long delayMs) {
+        handler.removeCallbacks(opponentTurn);
+        handler.postDelayed(opponentTurn, delayMs);
+    }
+
+    /**
+     * Returns a delay around the chosen pace, longer or shorter at random.
+     */
+    private long nextDelayMs() {
+        double factor = 1 + PACE_JITTER * (2 * random.nextDouble() - 1);
+        return Math.round(PACE_MS[pace] * factor);
+    }
+
+    /**
+     * Ends the race when either side solves its board. The earlier finish
+     * wins, even if the events reach the main thread in the other order.
+     */
+    private void onFinished(Side side, long elapsedNanos) {
+        side.finishNanos = elapsedNanos;
+        side.showFinished();
+        if (winner != null && winner.finishNanos <= elapsedNanos) {
+            return;
+        }
+        winner = side;
+        // Keeps the run, so the other side's finish in this pass is still timed correctly
+        clock.finish(elapsedNanos);
+        clockView.setText(RaceClock.format(elapsedNanos));
+        handler.removeCallbacks(opponentTurn);
+        opponentSolver.cancel();
+        opponentWaiting = false;
+        setPlayerInputEnabled(false);
+        player.board.clearHighlight();
+
+        String time = RaceClock.format(elapsedNanos);
+        Toast.makeText(this, side == player ? getString(R.string.race_won, time)
+                : getString(R.string.race_lost, time), Toast.LENGTH_LONG).show();
+    }
+
+    private void setPlayerInputEnabled(boolean enabled) {
+        player.board.setEnabled(enabled);
+        rotateLeftButton.setEnabled(enabled);
+        rotateRightButton.setEnabled(enabled);
+    }
+
+    /**
+     * Selects or deselects the subgrid anchored at a tapped tile.
+     */
+    private void onTileClicked(int r, int c) {
+        if (r >= rows - 1 || c >= cols - 1) {
+            Toast.makeText(this, R.string.select_subgrid_prompt, Toast.LENGTH_SHORT).show();
+            return;
+        }
+        if (selectedAnchorRow == r && selectedAnchorCol == c) {
+            selectedAnchorRow = -1;
+            selectedAnchorCol = -1;
+            player.board.clearHighlight();
+        } else {
+            selectedAnchorRow = r;
+            selectedAnchorCol = c;
+            player.board.setHighlight(r, c);
+        }
+    }
+
+    private void onSwipeRotate(int anchorRow, int anchorCol, boolean isLeftRotation) {
+        applyPlayerRotation(anchorRow, anchorCol, isLeftRotation);
+    }
+
+    private void rotateSelectedSubgrid(boolean isLeftRotation) {
+        if (selectedAnchorRow < 0) {
+            Toast.makeText(this, R.string.subgrid_selection_prompt, Toast.LENGTH_SHORT).show();
+            return;
+        }
+        applyPlayerRotation(selectedAnchorRow, selectedAnchorCol, isLeftRotation);
+    }
+
+    /**
+     * Applies the player's rotation; the board, sound and result follow from its events.
+     */
+    private void applyPlayerRotation(int anchorRow, int anchorCol, boolean isLeftRotation) {
+        if (winner != null || player.game.isOver()) {
+            return;
+        }
+        if (isLeftRotation) {
+            player.game.rotateLeft(anchorRow, anchorCol);
+        } else {
+            player.game.rotateRight(anchorRow, anchorCol);
+        }
+        selectedAnchorRow = -1;
+        selectedAnchorCol = -1;
+        player.board.clearHighlight();
+    }
+
+    @Override
+    protected void onSaveInstanceState(@NonNull Bundle outState) {
+        super.onSaveInstanceState(outState);
+        outState.putSerializable(KEY_PLAYER_GAME, player.game);
+        outState.putSerializable(KEY_OPPONENT_GAME, opponent.game);
+        outState.putInt(KEY_PLAYER_MOVES, player.moves);
+        outState.putInt(KEY_OPPONENT_MOVES, opponent.moves);
+        outState.putLong(KEY_ELAPSED, clock.elapsedNanos());
+        outState.putInt(KEY_WINNER, winner == null ? 0 : winner == player ? 1 : 2);
+        outState.putInt(KEY_PACE, pace);
+    }
+
+    /**
+     * Picks the race up where it was. The computer searches again from its
+     * current board; moves it had found but not yet played are found again.
+     */
+    private void restoreState(Bundle savedInstanceState) {
+        Revolution playerGame = (Revolution) savedInstanceState.getSerializable(KEY_PLAYER_GAME);
+        Revolution opponentGame = (Revolution) savedInstanceState.getSerializable(KEY_OPPONENT_GAME);
+        long elapsedNanos = savedInstanceState.getLong(KEY_ELAPSED);
+        int finished = savedInstanceState.getInt(KEY_WINNER);
+
+        clock.reset(elapsedNanos);
+        beginRace(playerGame, savedInstanceState.getInt(KEY_PLAYER_MOVES),
+                opponentGame, savedInstanceState.getInt(KEY_OPPONENT_MOVES));
+        if (finished != 0) {
+            onFinished(finished == 1 ? player : opponent, elapsedNanos);
+        } else {
+            scheduleOpponentMove(nextDelayMs());
+        }
+    }
+
+    @Override
+    public boolean onOptionsItemSelected(@NonNull MenuItem item) {
+        if (item.getItemId() == android.R.id.home) {
+            finish();
+            return true;
+        }
+        return super.onOptionsItemSelected(item);
+    }
+
+    @Override
+    protected void onResume() {
+        super.onResume();
+        soundEngine.resumeAll();
+        if (winner == null && !clock.isRunning() && player.game != null) {
+            clock.start();
+            clockTick.run();
+            scheduleOpponentMove(nextDelayMs());
+        }
+    }
+
+    @Override
+    protected void onPause() {
+        super.onPause();
+        soundEngine.pauseAll();
+        // The race stands still while it is not on screen; the search may carry on
+        if (winner == null) {
+            clock.pause();
+            handler.removeCallbacks(clockTick);
+            handler.removeCallbacks(opponentTurn);
+            opponentWaiting = false;
+        }
+    }
+
+    @Override
+    protected void onDestroy() {
+        super.onDestroy();
+        handler.removeCallbacksAndMessages(null);
+        opponentSolver.cancel();
+        player.detach();
+        opponent.detach();
+        soundSubscription.cancel();
+        soundEngine.release();
+    }
+}
@@ -0,0 +1,99 @@
+package edu.commonwealthu.hw3_wight;
+
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The single clock both sides of a race are timed by. It counts on the
+ * {@link System#nanoTime()} timeline, the same one {@link GameEvent}s are
+ * stamped with, so a finish is timed at the moment the solving move was
+ * made rather than when the screen caught up with it. The clock can be
+ * paused while the race is not on screen. Use from the main thread.
+ *
+ * @author Ethan Wight
+ */
+public final class RaceClock {
+
+    // The time shown while the clock is stopped
+    private long accumulatedNanos;
+    // The time on the clock when the current or last run began, and when that was
+    private long runBaseNanos;
+    private long runStartNanos = -1;
+    private boolean running;
+
+    /**
+     * Starts or resumes the clock; does nothing if it is running.
+     */
+    public void start() {
+        if (!running) {
+            runBaseNanos = accumulatedNanos;
+            runStartNanos = System.nanoTime();
+            running = true;
+        }
+    }
+
+    /**
+     * Stops the clock, keeping the time so far.
+     */
+    public void pause() {
+        if (running) {
+            accumulatedNanos = elapsedNanosAt(System.nanoTime());
+            running = false;
+        }
+    }
+
+    /**
+     * Stops the clock showing a time reached during the current run, such as
+     * the winner's finish. The run is remembered, so {@link #elapsedNanosAt}
+     * still converts the time stamps of events from it that arrive later.
+     *
+     * @param elapsedNanos The race time to show.
+     */
+    public void finish(long elapsedNanos) {
+        accumulatedNanos = elapsedNanos;
+        running = false;
+    }
+
+    /**
+     * Stops the clock and sets it to a given time, as when a race is restored.
+     */
+    public void reset(long elapsedNanos) {
+        accumulatedNanos = elapsedNanos;
+        runBaseNanos = elapsedNanos;
+        runStartNanos = -1;
+        running = false;
+    }
+
+    public boolean isRunning() {
+        return running;
+    }
+
+    /**
+     * Returns the race time now.
+     */
+    public long elapsedNanos() {
+        return running ? elapsedNanosAt(System.nanoTime()) : accumulatedNanos;
+    }
+
+    /**
+     * Returns the race time at a moment of the current or last run, such as
+     * the time stamp of an event. Still valid after the clock has stopped.
+     *
+     * @param nanoTime A {@link System#nanoTime()} value.
+     */
+    public long elapsedNanosAt(long nanoTime) {
+        if (runStartNanos < 0) {
+            return accumulatedNanos;
+        }
+        return runBaseNanos + Math.max(0, nanoTime - runStartNanos);
+    }
+
+    /**
+     * Formats a race time as minutes, seconds and tenths.
+     */
+    public static String format(long elapsedNanos) {
+        long tenths = TimeUnit.NANOSECONDS.toMillis(elapsedNanos) / 100;
+        return String.format(Locale.getDefault(), "%d:%02d.%d",
+                tenths / 600, (tenths / 10) % 60, tenths % 10);
+    }
+}
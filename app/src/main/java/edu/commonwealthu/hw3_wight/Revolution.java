@@ -2,6 +2,8 @@ package edu.commonwealthu.hw3_wight;
 
 import androidx.annotation.NonNull;
 
+import java.io.IOException;
+import java.io.ObjectInputStream;
 import java.io.Serializable;
 import java.util.Locale;
 import java.util.Random;
@@ -11,9 +13,17 @@ import java.util.Stack;
  * Implements the backend logic for the Revolution puzzle game. This class
  * manages the game's state, including the grid of numbers, move history, and
  * the rules for rotating sub-grids. The game is won when the numbers are sorted
- * in ascending order.
+ * in ascending order. The moves come from the game's {@link PuzzleVariant};
+ * the classic variant rotates 2x2 sub-grids.
  * Enhanced with surrender mode that allows undoing through the scrambling sequence
  * to reveal the solution.
+ * <p>
+ * The game is only modified on the UI thread, but after every change it
+ * publishes an immutable {@link BoardSnapshot} that background work can read
+ * from any thread without locking or copying the grid. Every move, undo,
+ * solve and surrender is also published as a {@link GameEvent} on the
+ * game's {@link GameEventBus}, if it has one, so that rendering, sound and
+ * saving can follow the game without being called from the input path.
  *
  * @author Ethan Wight
  */
@@ -23,33 +33,38 @@ public class Revolution implements Serializable {
     private final int rows;
     private final int cols;
     private final Stack<int[][]> moveHistory;
-    private final Stack<Move> scrambleMoves;
+    // Encoded moves of the game's variant, in the order they were scrambled
+    private final Stack<Integer> scrambleMoves;
     private boolean surrenderMode;
     private final Random random;
+    private final PuzzleVariant variant;
+    // Shared per variant and grid size, so looked up again after deserialization
+    private transient MoveTable moves;
+    // Rebuilt after deserialization; volatile so other threads see each snapshot whole
+    private transient volatile BoardSnapshot snapshot;
+    // Belongs to whoever is showing the game, so never saved with it
+    private transient GameEventBus events;
 
     /**
-     * Represents a single rotation move in the puzzle.
+     * Constructs a new Revolution game with a specified grid size and solution depth.
+     *
+     * @param rows     The number of rows in the grid.
+     * @param cols     The number of columns in the grid.
+     * @param solDepth The number of random moves to perform to scramble the puzzle.
      */
-    private static class Move implements Serializable {
-        final int row;
-        final int col;
-        final boolean isClockwise;
-
-        Move(int row, int col, boolean isClockwise) {
-            this.row = row;
-            this.col = col;
-            this.isClockwise = isClockwise;
-        }
+    public Revolution(int rows, int cols, int solDepth) {
+        this(PuzzleVariant.CLASSIC, rows, cols, solDepth);
     }
 
     /**
-     * Constructs a new Revolution game with a specified grid size and solution depth.
+     * Constructs a new game of any variant with a specified grid size and solution depth.
      *
+     * @param variant  The rules the game is played with.
      * @param rows     The number of rows in the grid.
      * @param cols     The number of columns in the grid.
      * @param solDepth The number of random moves to perform to scramble the puzzle.
      */
-    public Revolution(int rows, int cols, int solDepth) {
+    public Revolution(PuzzleVariant variant, int rows, int cols, int solDepth) {
         this.rows = rows;
         this.cols = cols;
         this.grid = new int[rows][cols];
@@ -57,9 +72,54 @@ public class Revolution implements Serializable {
         this.scrambleMoves = new Stack<>();
         this.surrenderMode = false;
         this.random = new Random();
+        this.variant = variant;
+        this.moves = variant.table(rows, cols);
 
         initializeGrid();
         scrambleGrid(solDepth);
+        publishSnapshot();
+    }
+
+    /**
+     * Constructs a game from a precomputed board, such as one read from a
+     * {@link PuzzlePack}. The known optimal solution is recorded as the
+     * scramble sequence so that surrender mode can still reveal it.
+     *
+     * @param rows     The number of rows in the grid.
+     * @param cols     The number of columns in the grid.
+     * @param board    The packed starting board.
+     * @param solution The encoded moves of an optimal solution (see {@link PackedBoard}).
+     */
+    public Revolution(int rows, int cols, long board, int[] solution) {
+        this(PuzzleVariant.CLASSIC, rows, cols, board, solution);
+    }
+
+    /**
+     * Constructs a game of any variant from a precomputed board.
+     *
+     * @param variant  The rules the game is played with.
+     * @param rows     The number of rows in the grid.
+     * @param cols     The number of columns in the grid.
+     * @param board    The packed starting board.
+     * @param solution The moves of an optimal solution, numbered as in the variant's {@link MoveTable}.
+     */
+    public Revolution(PuzzleVariant variant, int rows, int cols, long board, int[] solution) {
+        this.rows = rows;
+        this.cols = cols;
+        this.grid = PackedBoard.unpack(board, rows, cols);
+        this.moveHistory = new Stack<>();
+        this.scrambleMoves = new Stack<>();
+        this.surrenderMode = false;
+        this.random = new Random();
+        this.variant = variant;
+        this.moves = variant.table(rows, cols);
+
+        // Undo pops the most recent scramble and reverses it, so push the
+        // inverted solution from last move to first.
+        for (int i = solution.length - 1; i >= 0; i--) {
+            scrambleMoves.push(moves.inverse(solution[i]));
+        }
+        publishSnapshot();
     }
 
     /**
@@ -75,82 +135,69 @@ public class Revolution implements Serializable {
     }
 
     /**
-     * Scrambles the grid by applying a specified number of random rotations.
-     * Each rotation is recorded so it can be undone in surrender mode.
+     * Scrambles the grid by applying a specified number of random moves.
+     * Each move is recorded so it can be undone in surrender mode.
      *
-     * @param solDepth The number of random rotations to apply.
+     * @param solDepth The number of random moves to apply.
      */
     private void scrambleGrid(int solDepth) {
+        long board = PackedBoard.pack(grid);
         for (int i = 0; i < solDepth; i++) {
-            randomRotation();
+            int move = random.nextInt(moves.moveCount());
+            board = moves.apply(board, move);
+            // Record this scramble move for surrender mode
+            scrambleMoves.push(move);
         }
-    }
-
-    /**
-     * Performs a single random rotation on a valid 2x2 subgrid.
-     * The move is recorded in scrambleMoves for potential reversal in surrender mode.
-     */
-    private void randomRotation() {
-        int anchorRow = random.nextInt(rows - 1);
-        int anchorCol = random.nextInt(cols - 1);
-        boolean isClockwise = random.nextBoolean();
-
-        if (isClockwise) {
-            rotateClockwise(anchorRow, anchorCol);
-        } else {
-            rotateCounterclockwise(anchorRow, anchorCol);
-        }
-
-        // Record this scramble move for surrender mode
-        scrambleMoves.push(new Move(anchorRow, anchorCol, isClockwise));
+        PackedBoard.unpackInto(board, grid);
     }
 
     /**
      * Rotates the 2x2 subgrid anchored at the specified position to the right (clockwise).
+     * Only classic games have 2x2 rotations; other variants ignore this.
      *
      * @param row The top row of the 2x2 subgrid to rotate.
      * @param col The left column of the 2x2 subgrid to rotate.
      */
     public void rotateRight(int row, int col) {
-        if (isValidAnchor(row, col)) {
-            saveState();
-            rotateClockwise(row, col);
+        if (variant == PuzzleVariant.CLASSIC && isValidAnchor(row, col)) {
+            move(PackedBoard.encodeMove(cols, row, col, true));
         }
     }
 
     /**
      * Rotates the 2x2 subgrid anchored at the specified position to the left (counter-clockwise).
+     * Only classic games have 2x2 rotations; other variants ignore this.
      *
      * @param row The top row of the 2x2 subgrid to rotate.
      * @param col The left column of the 2x2 subgrid to rotate.
      */
     public void rotateLeft(int row, int col) {
-        if (isValidAnchor(row, col)) {
-            saveState();
-            rotateCounterclockwise(row, col);
+        if (variant == PuzzleVariant.CLASSIC && isValidAnchor(row, col)) {
+            move(PackedBoard.encodeMove(cols, row, col, false));
         }
     }
 
     /**
-     * Helper method to perform a clockwise rotation.
+     * Makes a move of the game's variant, recording it for undo.
+     *
+     * @param move A move numbered as in {@link #getMoveTable()}; others are ignored.
      */
-    private void rotateClockwise(int row, int col) {
-        int temp = grid[row][col];
-        grid[row][col] = grid[row + 1][col];
-        grid[row + 1][col] = grid[row + 1][col + 1];
-        grid[row + 1][col + 1] = grid[row][col + 1];
-        grid[row][col + 1] = temp;
+    public void move(int move) {
+        if (move >= 0 && move < moves.moveCount()) {
+            saveState();
+            applyMove(move);
+            publish(GameEvent.Type.MOVE_APPLIED, move);
+        }
     }
 
     /**
-     * Helper method to perform a counter-clockwise rotation.
+     * Applies a move to the packed board, then brings the grid and the
+     * published snapshot up to date.
      */
-    private void rotateCounterclockwise(int row, int col) {
-        int temp = grid[row][col];
-        grid[row][col] = grid[row][col + 1];
-        grid[row][col + 1] = grid[row + 1][col + 1];
-        grid[row + 1][col + 1] = grid[row + 1][col];
-        grid[row + 1][col] = temp;
+    private void applyMove(int move) {
+        BoardSnapshot next = snapshot.next(moves.apply(snapshot.getPackedBoard(), move));
+        next.copyInto(grid);
+        snapshot = next;
     }
 
     /**
@@ -193,12 +240,96 @@ public class Revolution implements Serializable {
         return copyOfGrid();
     }
 
+    /**
+     * Copies the current grid into an existing array without allocating.
+     *
+     * @param destination An array of at least rows x cols to receive the grid.
+     */
+    public void copyGridInto(int[][] destination) {
+        for (int r = 0; r < rows; r++) {
+            System.arraycopy(grid[r], 0, destination[r], 0, cols);
+        }
+    }
+
+    /**
+     * Returns the current grid packed into a single long (see {@link PackedBoard}).
+     *
+     * @return The packed board.
+     */
+    public long getPackedBoard() {
+        return snapshot.getPackedBoard();
+    }
+
+    /**
+     * Returns the latest immutable snapshot of the board. Safe to call, and to
+     * read the result, from any thread.
+     *
+     * @return The board as of the most recent change.
+     */
+    public BoardSnapshot getSnapshot() {
+        return snapshot;
+    }
+
+    /**
+     * Publishes a snapshot of the whole grid, following the previous one.
+     */
+    private void publishSnapshot() {
+        BoardSnapshot previous = snapshot;
+        snapshot = new BoardSnapshot(rows, cols, PackedBoard.pack(grid),
+                previous != null ? previous.getVersion() + 1 : 0);
+    }
+
+    /**
+     * Sets the bus this game publishes its events on, or null to stop publishing.
+     */
+    public void setEventBus(GameEventBus events) {
+        this.events = events;
+    }
+
+    /**
+     * Publishes an event for the current snapshot, followed by
+     * {@link GameEvent.Type#SOLVED} if it left the board solved.
+     */
+    private void publish(GameEvent.Type type, int move) {
+        if (events == null) {
+            return;
+        }
+        BoardSnapshot current = snapshot;
+        events.publish(new GameEvent(type, current, move));
+        if (type != GameEvent.Type.SURRENDER && current.isSolved()) {
+            events.publish(new GameEvent(GameEvent.Type.SOLVED, current, -1));
+        }
+    }
+
+    private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+        in.defaultReadObject();
+        moves = variant.table(rows, cols);
+        publishSnapshot();
+    }
+
+    /**
+     * Returns the rules this game is played with.
+     */
+    public PuzzleVariant getVariant() {
+        return variant;
+    }
+
+    /**
+     * Returns the moves of this game's variant, for solving or replaying it.
+     */
+    public MoveTable getMoveTable() {
+        return moves;
+    }
+
     /**
      * Enables surrender mode, allowing undo operations to go back through
      * the scrambling sequence to reveal the solution.
      */
     public void enableSurrenderMode() {
-        surrenderMode = true;
+        if (!surrenderMode) {
+            surrenderMode = true;
+            publish(GameEvent.Type.SURRENDER, -1);
+        }
     }
 
     /**
@@ -223,17 +354,15 @@ public class Revolution implements Serializable {
             for (int r = 0; r < rows; r++) {
                 System.arraycopy(previousGrid[r], 0, this.grid[r], 0, cols);
             }
+            publishSnapshot();
+            publish(GameEvent.Type.UNDO, -1);
             return true;
         }
         // In surrender mode, also undo scramble moves
         else if (surrenderMode && !scrambleMoves.isEmpty()) {
-            Move move = scrambleMoves.pop();
-            // Reverse the rotation (clockwise becomes counter-clockwise and vice versa)
-            if (move.isClockwise) {
-                rotateCounterclockwise(move.row, move.col);
-            } else {
-                rotateClockwise(move.row, move.col);
-            }
+            // Reverse the move (clockwise becomes counter-clockwise and vice versa)
+            applyMove(moves.inverse(scrambleMoves.pop()));
+            publish(GameEvent.Type.UNDO, -1);
             return true;
         }
         return false;
@@ -262,6 +391,16 @@ public class Revolution implements Serializable {
         return moveHistory.size();
     }
 
+    /**
+     * Returns the number of the player's own moves that undo can take back,
+     * before it reaches any scramble move.
+     *
+     * @return The number of moves in the move history.
+     */
+    public int getMoveHistorySize() {
+        return moveHistory.size();
+    }
+
     /**
      * Returns the number of scramble moves remaining to undo in surrender mode.
      *
@@ -271,6 +410,30 @@ public class Revolution implements Serializable {
         return scrambleMoves.size();
     }
 
+    /**
+     * Returns the boards visited by undoing every user move and then every
+     * scramble move, starting with the current board and ending with the
+     * solved one. Consecutive boards are one move apart, so the result is
+     * a valid (though not necessarily short) solution path.
+     *
+     * @return The packed boards along the path.
+     */
+    public long[] getKnownSolutionPath() {
+        long[] path = new long[1 + moveHistory.size() + scrambleMoves.size()];
+        int length = 0;
+        path[length++] = PackedBoard.pack(grid);
+        for (int i = moveHistory.size() - 1; i >= 0; i--) {
+            path[length++] = PackedBoard.pack(moveHistory.get(i));
+        }
+
+        long board = path[length - 1];
+        for (int i = scrambleMoves.size() - 1; i >= 0; i--) {
+            board = moves.apply(board, moves.inverse(scrambleMoves.get(i)));
+            path[length++] = board;
+        }
+        return path;
+    }
+
     /**
      * Automatically reveals the full solution by undoing all moves and scrambles.
      * Only works in surrender mode.
@@ -297,15 +460,7 @@ public class Revolution implements Serializable {
      * @return True if the grid is in its solved state, false otherwise.
      */
     public boolean isOver() {
-        int expectedValue = 1;
-        for (int r = 0; r < rows; r++) {
-            for (int c = 0; c < cols; c++) {
-                if (grid[r][c] != expectedValue++) {
-                    return false;
-                }
-            }
-        }
-        return true;
+        return snapshot.isSolved();
     }
 
     /**
@@ -0,0 +1,18 @@
+package edu.commonwealthu.hw3_wight;
+
+import android.app.Application;
+
+/**
+ * Starts loading saved settings and progress in the background as soon as the
+ * process starts, so they are usually in memory before the first screen needs them.
+ *
+ * @author Ethan Wight
+ */
+public class RevolutionApplication extends Application {
+
+    @Override
+    public void onCreate() {
+        super.onCreate();
+        ProgressStore.get(this);
+    }
+}
@@ -0,0 +1,294 @@
+package edu.commonwealthu.hw3_wight;
+
+import android.os.Handler;
+import android.os.Looper;
+import android.os.Process;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Computes a short solution from the current board on a background thread and
+ * streams its moves to the main thread as soon as each one is known.
+ * <p>
+ * First an optimal solution is searched for within a time budget. If the board
+ * is too deep for that, the streamer falls back to shortening a known solution
+ * path (the undo history followed by the reversed scramble): from the current
+ * board it searches a few moves ahead for the furthest reachable board on that
+ * path, emits those moves, and repeats, retrying the optimal search from each
+ * new position. Every step makes progress, so moves keep flowing while the
+ * rest of the solution is still being worked out.
+ * <p>
+ * The search can be given a CPU budget (see {@link #setCpuBudget}) when it
+ * competes with animation for the processor, as in {@link RaceActivity}. It
+ * covers both the optimal search and the look-ahead for shortcuts.
+ *
+ * @author Ethan Wight
+ */
+public class SolutionStreamer {
+
+    /**
+     * Receives solution moves on the main thread.
+     */
+    public interface Listener {
+        /**
+         * Called for each move of the solution, in order.
+         *
+         * @param move The encoded move (see {@link PackedBoard}).
+         */
+        void onMove(int move);
+
+        /**
+         * Called once after the last move has been delivered.
+         *
+         * @param totalMoves The number of moves delivered.
+         * @param optimal    True if the delivered sequence is a shortest solution.
+         */
+        void onComplete(int totalMoves, boolean optimal);
+    }
+
+    private static final long OPTIMAL_BUDGET_MS = 750;
+    private static final long SEGMENT_BUDGET_MS = 100;
+    private static final int MAX_OPTIMAL_DEPTH = 40;
+    private static final int LOOKAHEAD_DEPTH = 4;
+    // Boards expanded between checks of the CPU budget during the look-ahead
+    private static final int BUDGET_CHECK_INTERVAL = 4096;
+
+    private final int rows;
+    private final int cols;
+    private final int moveCount;
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+
+    private Job activeJob;
+    private long cpuWorkMs;
+    private long cpuRestMs;
+
+    /**
+     * Constructs a streamer for one grid size.
+     *
+     * @param rows Number of rows.
+     * @param cols Number of columns.
+     */
+    public SolutionStreamer(int rows, int cols) {
+        this.rows = rows;
+        this.cols = cols;
+        this.moveCount = PackedBoard.moveCount(rows, cols);
+    }
+
+    /**
+     * Limits the share of a core each later computation uses (see
+     * {@link PuzzleSolver#setCpuBudget}).
+     *
+     * @param workMs How long to search between pauses.
+     * @param restMs How long each pause lasts, or 0 to run flat out.
+     */
+    public void setCpuBudget(long workMs, long restMs) {
+        cpuWorkMs = workMs;
+        cpuRestMs = restMs;
+    }
+
+    /**
+     * Starts computing a solution, cancelling any computation already running.
+     *
+     * @param knownPath Boards from the current position to the solved board,
+     *                  each one move from the next (see {@link Revolution#getKnownSolutionPath()}).
+     * @param listener  Receives the moves on the main thread.
+     */
+    public void start(long[] knownPath, Listener listener) {
+        cancel();
+        activeJob = new Job(knownPath, listener, cpuWorkMs, cpuRestMs);
+        Thread thread = new Thread(activeJob, "SolutionStreamer");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * Stops the computation and drops any moves not yet delivered.
+     */
+    public void cancel() {
+        if (activeJob != null) {
+            activeJob.cancel();
+            activeJob = null;
+        }
+        mainHandler.removeCallbacksAndMessages(null);
+    }
+
+    /**
+     * One solution computation with its own solver and cancellation flag, so
+     * that a cancelled job can never deliver moves into a newer one.
+     */
+    private final class Job implements Runnable {
+
+        private final long[] knownPath;
+        private final Listener listener;
+        private final PuzzleSolver solver = new PuzzleSolver(rows, cols);
+        private final long workNanos;
+        private final long restNanos;
+        private long sliceStartNanos;
+        private volatile boolean cancelled;
+
+        Job(long[] knownPath, Listener listener, long workMs, long restMs) {
+            this.knownPath = knownPath;
+            this.listener = listener;
+            this.workNanos = TimeUnit.MILLISECONDS.toNanos(workMs);
+            this.restNanos = TimeUnit.MILLISECONDS.toNanos(restMs);
+            solver.setCpuBudget(workMs, restMs);
+        }
+
+        void cancel() {
+            cancelled = true;
+            solver.cancel();
+        }
+
+        @Override
+        public void run() {
+            Process.setThreadPriority(Process.THREAD_PRIORITY_BACKGROUND);
+            long board = knownPath[0];
+            long solved = PackedBoard.solved(rows, cols);
+
+            // Fast path: the whole optimal solution fits in the budget
+            int[] optimal = solver.solve(board, MAX_OPTIMAL_DEPTH,
+                    System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(OPTIMAL_BUDGET_MS));
+            if (optimal != null) {
+                for (int move : optimal) {
+                    emit(move);
+                }
+                finish(optimal.length, true);
+                return;
+            }
+
+            Map<Long, Integer> pathIndex = new HashMap<>();
+            for (int i = 0; i < knownPath.length; i++) {
+                pathIndex.put(knownPath[i], i);
+            }
+
+            int emitted = 0;
+            int position = pathIndex.get(board);
+            while (!cancelled && board != solved) {
+                int[] rest = solver.solve(board, MAX_OPTIMAL_DEPTH,
+                        System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(SEGMENT_BUDGET_MS));
+                if (rest != null) {
+                    for (int move : rest) {
+                        emit(move);
+                    }
+                    emitted += rest.length;
+                    break;
+                }
+
+                int[] shortcut = findShortcut(board, position, pathIndex);
+                if (shortcut == null) {
+                    return;
+                }
+                for (int move : shortcut) {
+                    board = PackedBoard.applyMove(board, cols, move);
+                    emit(move);
+                }
+                emitted += shortcut.length;
+                position = pathIndex.get(board);
+            }
+            finish(emitted, false);
+        }
+
+        /**
+         * Breadth-first search up to LOOKAHEAD_DEPTH moves for the board furthest
+         * along the known path. Returns the moves to reach it, or null if cancelled.
+         */
+        private int[] findShortcut(long start, int position, Map<Long, Integer> pathIndex) {
+            int capacity = 1;
+            int layer = 1;
+            for (int d = 0; d < LOOKAHEAD_DEPTH; d++) {
+                layer *= moveCount;
+                capacity += layer;
+            }
+            long[] states = new long[capacity];
+            int[] parents = new int[capacity];
+            int[] moves = new int[capacity];
+            Set<Long> seen = new HashSet<>();
+
+            states[0] = start;
+            parents[0] = -1;
+            seen.add(start);
+            int size = 1;
+            int head = 0;
+            int best = -1;
+            int bestIndex = position;
+            long expanded = 0;
+            sliceStartNanos = System.nanoTime();
+
+            for (int depth = 0; depth < LOOKAHEAD_DEPTH && !cancelled; depth++) {
+                int layerEnd = size;
+                for (; head < layerEnd; head++) {
+                    if ((++expanded % BUDGET_CHECK_INTERVAL) == 0 && !pace()) {
+                        return null;
+                    }
+                    for (int move = 0; move < moveCount; move++) {
+                        long next = PackedBoard.applyMove(states[head], cols, move);
+                        if (!seen.add(next)) {
+                            continue;
+                        }
+                        states[size] = next;
+                        parents[size] = head;
+                        moves[size] = move;
+                        Integer index = pathIndex.get(next);
+                        if (index != null && index > bestIndex) {
+                            bestIndex = index;
+                            best = size;
+                        }
+                        size++;
+                    }
+                }
+            }
+            if (cancelled || best < 0) {
+                return null;
+            }
+
+            int length = 0;
+            for (int node = best; parents[node] >= 0; node = parents[node]) {
+                length++;
+            }
+            int[] result = new int[length];
+            for (int node = best; parents[node] >= 0; node = parents[node]) {
+                result[--length] = moves[node];
+            }
+            return result;
+        }
+
+        /**
+         * Pauses for the rest part of the CPU budget once a work slice is
+         * used up, as {@link PuzzleSolver} does. Returns false if the job was
+         * cancelled or the thread interrupted meanwhile.
+         */
+        private boolean pace() {
+            if (restNanos == 0 || System.nanoTime() - sliceStartNanos <= workNanos) {
+                return !cancelled;
+            }
+            try {
+                TimeUnit.NANOSECONDS.sleep(restNanos);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return false;
+            }
+            sliceStartNanos = System.nanoTime();
+            return !cancelled;
+        }
+
+        private void emit(int move) {
+            mainHandler.post(() -> {
+                if (!cancelled) {
+                    listener.onMove(move);
+                }
+            });
+        }
+
+        private void finish(int totalMoves, boolean optimal) {
+            mainHandler.post(() -> {
+                if (!cancelled) {
+                    listener.onComplete(totalMoves, optimal);
+                }
+            });
+        }
+    }
+}
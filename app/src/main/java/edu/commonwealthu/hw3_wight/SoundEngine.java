@@ -0,0 +1,178 @@
+package edu.commonwealthu.hw3_wight;
+
+import android.content.Context;
+import android.media.AudioAttributes;
+import android.media.SoundPool;
+import android.os.Handler;
+import android.os.HandlerThread;
+import android.os.Process;
+import android.util.Log;
+
+import java.util.List;
+
+/**
+ * Plays the game's short sound effects from a preloaded {@link SoundPool}.
+ * Samples are decoded once, in the background, when the engine is created;
+ * several rotation sounds can overlap, and every call into the pool runs on a
+ * dedicated audio thread so that playback never blocks the UI thread.
+ * Requests made before a sample has finished loading are dropped.
+ *
+ * @author Ethan Wight
+ */
+public class SoundEngine {
+
+    /** Played for each rotation. */
+    public static final int SOUND_ROTATION = 0;
+    /** Played when the puzzle is solved. */
+    public static final int SOUND_WIN = 1;
+
+    private static final String TAG = "SoundEngine";
+    private static final int MAX_STREAMS = 4;
+    private static final int[] SOUND_RESOURCES = {R.raw.rotation_sound, R.raw.win_sound};
+
+    private final HandlerThread audioThread;
+    private final Handler audioHandler;
+    private final int[] sampleIds = new int[SOUND_RESOURCES.length];
+    // Only touched on the audio thread, where the pool delivers load callbacks
+    private final boolean[] loaded = new boolean[SOUND_RESOURCES.length];
+    private SoundPool soundPool;
+    private volatile boolean enabled = true;
+
+    /**
+     * Creates the engine and starts loading every sample in the background.
+     *
+     * @param context Any context; only the application context is kept.
+     */
+    public SoundEngine(Context context) {
+        Context appContext = context.getApplicationContext();
+        audioThread = new HandlerThread("SoundEngine", Process.THREAD_PRIORITY_AUDIO);
+        audioThread.start();
+        audioHandler = new Handler(audioThread.getLooper());
+        audioHandler.post(() -> load(appContext));
+    }
+
+    /**
+     * Builds the pool and queues every sample for decoding. Runs on the audio thread.
+     */
+    private void load(Context context) {
+        AudioAttributes attributes = new AudioAttributes.Builder()
+                .setUsage(AudioAttributes.USAGE_GAME)
+                .setContentType(AudioAttributes.CONTENT_TYPE_SONIFICATION)
+                .build();
+        soundPool = new SoundPool.Builder()
+                .setMaxStreams(MAX_STREAMS)
+                .setAudioAttributes(attributes)
+                .build();
+        soundPool.setOnLoadCompleteListener((pool, sampleId, status) -> {
+            if (status != 0) {
+                Log.w(TAG, "Failed to load sample " + sampleId);
+                return;
+            }
+            for (int i = 0; i < sampleIds.length; i++) {
+                if (sampleIds[i] == sampleId) {
+                    loaded[i] = true;
+                }
+            }
+        });
+        for (int i = 0; i < SOUND_RESOURCES.length; i++) {
+            sampleIds[i] = soundPool.load(context, SOUND_RESOURCES[i], 1);
+        }
+    }
+
+    /**
+     * Turns playback on or off.
+     */
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    /**
+     * Plays a sound without waiting for it to start.
+     *
+     * @param sound {@link #SOUND_ROTATION} or {@link #SOUND_WIN}.
+     */
+    public void play(int sound) {
+        if (!enabled) {
+            return;
+        }
+        audioHandler.post(() -> playNow(sound));
+    }
+
+    /**
+     * Plays the sounds for a game's events, delivered straight to the audio
+     * thread: the win sound when the puzzle is solved, otherwise one rotation
+     * sound per batch of moves, so a burst of moves does not pile up
+     * overlapping samples.
+     *
+     * @param events The bus the game publishes on.
+     * @return The subscription, to cancel when the game is no longer shown.
+     */
+    public GameEventBus.Subscription follow(GameEventBus events) {
+        return events.subscribe(audioHandler::post, GameEventBus.Delivery.ALL, this::onEvents);
+    }
+
+    /**
+     * Picks the sound for a batch of events. Runs on the audio thread.
+     */
+    private void onEvents(List<GameEvent> batch) {
+        if (!enabled) {
+            return;
+        }
+        boolean moved = false;
+        for (GameEvent event : batch) {
+            if (event.getType() == GameEvent.Type.SOLVED) {
+                playNow(SOUND_WIN);
+                return;
+            }
+            moved |= event.getType() == GameEvent.Type.MOVE_APPLIED;
+        }
+        if (moved) {
+            playNow(SOUND_ROTATION);
+        }
+    }
+
+    /**
+     * Starts a sample if it has loaded. Runs on the audio thread.
+     */
+    private void playNow(int sound) {
+        if (soundPool != null && loaded[sound]) {
+            soundPool.play(sampleIds[sound], 1f, 1f, 1, 0, 1f);
+        }
+    }
+
+    /**
+     * Pauses every sound that is playing, for example when the activity is paused.
+     */
+    public void pauseAll() {
+        audioHandler.post(() -> {
+            if (soundPool != null) {
+                soundPool.autoPause();
+            }
+        });
+    }
+
+    /**
+     * Resumes the sounds paused by {@link #pauseAll()}.
+     */
+    public void resumeAll() {
+        audioHandler.post(() -> {
+            if (soundPool != null) {
+                soundPool.autoResume();
+            }
+        });
+    }
+
+    /**
+     * Frees the samples and stops the audio thread. The engine cannot be used afterwards.
+     */
+    public void release() {
+        audioHandler.removeCallbacksAndMessages(null);
+        audioHandler.post(() -> {
+            if (soundPool != null) {
+                soundPool.release();
+                soundPool = null;
+            }
+        });
+        audioThread.quitSafely();
+    }
+}
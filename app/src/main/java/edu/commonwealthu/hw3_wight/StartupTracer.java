@@ -0,0 +1,169 @@
+package edu.commonwealthu.hw3_wight;
+
+import android.app.Activity;
+import android.os.Looper;
+import android.os.MessageQueue;
+import android.os.Process;
+import android.os.SystemClock;
+import android.os.Trace;
+import android.util.Log;
+import android.view.View;
+import android.view.ViewTreeObserver;
+
+import java.util.ArrayDeque;
+import java.util.Locale;
+
+/**
+ * Orders and times an activity's startup. Work the first frame depends on
+ * runs inline through {@link #trace}; everything else is handed to
+ * {@link #defer} and runs one task per idle pass of the main thread after the
+ * first frame has been drawn, so the board appears and accepts input as
+ * early as possible.
+ * <p>
+ * Every phase is timed and wrapped in a {@link Trace} section for system
+ * traces. Once the deferred work has finished, the phase timings, the time to
+ * the first frame and the time until startup was complete are logged, and on
+ * a cold start the activity reports itself fully drawn. Main thread only.
+ *
+ * @author Ethan Wight
+ */
+final class StartupTracer {
+
+    private static final String TAG = "StartupTracer";
+
+    // Only the first activity of the process measures from process start
+    private static boolean coldStartClaimed;
+
+    private final Activity activity;
+    private final boolean coldStart;
+    private final long startMs;
+    private final StringBuilder report = new StringBuilder();
+    private final ArrayDeque<String> deferredPhases = new ArrayDeque<>();
+    private final ArrayDeque<Runnable> deferredWork = new ArrayDeque<>();
+    private boolean firstFrameDrawn;
+    private boolean reported;
+    private boolean cancelled;
+    private long firstFrameMs;
+
+    private final MessageQueue.IdleHandler idleHandler = new MessageQueue.IdleHandler() {
+        @Override
+        public boolean queueIdle() {
+            if (cancelled || deferredWork.isEmpty()) {
+                return false;
+            }
+            // One task per idle pass, so input queued in between is handled first
+            trace(deferredPhases.poll(), deferredWork.poll());
+            if (deferredWork.isEmpty()) {
+                finish();
+                return false;
+            }
+            return true;
+        }
+    };
+
+    /**
+     * Starts timing an activity's startup. Create at the top of {@code onCreate}.
+     */
+    StartupTracer(Activity activity) {
+        this.activity = activity;
+        this.coldStart = !coldStartClaimed;
+        coldStartClaimed = true;
+        // A cold start is measured from process start, so it includes application setup
+        this.startMs = coldStart ? Process.getStartUptimeMillis() : SystemClock.uptimeMillis();
+        if (coldStart) {
+            record("process", SystemClock.uptimeMillis() - startMs);
+        }
+    }
+
+    /**
+     * Runs a startup phase now and records how long it took.
+     *
+     * @param phase Name shown in the log and in system traces.
+     * @param work  The phase.
+     */
+    void trace(String phase, Runnable work) {
+        Trace.beginSection(phase);
+        long start = SystemClock.uptimeMillis();
+        try {
+            work.run();
+        } finally {
+            Trace.endSection();
+        }
+        record(phase, SystemClock.uptimeMillis() - start);
+    }
+
+    /**
+     * Queues a phase to run when the main thread is idle after the first frame.
+     * Phases run in the order they were deferred. Work deferred after startup
+     * has completed still waits for an idle pass, but is no longer reported.
+     *
+     * @param phase Name shown in the log and in system traces.
+     * @param work  The phase.
+     */
+    void defer(String phase, Runnable work) {
+        if (cancelled) {
+            return;
+        }
+        deferredPhases.add(phase);
+        deferredWork.add(work);
+        if (firstFrameDrawn && deferredWork.size() == 1) {
+            Looper.myQueue().addIdleHandler(idleHandler);
+        }
+    }
+
+    /**
+     * Waits for the first frame, then starts the deferred phases. Call at the
+     * end of {@code onCreate}.
+     */
+    void awaitFirstFrame() {
+        View decor = activity.getWindow().getDecorView();
+        decor.getViewTreeObserver().addOnDrawListener(new ViewTreeObserver.OnDrawListener() {
+            @Override
+            public void onDraw() {
+                if (firstFrameDrawn) {
+                    return;
+                }
+                firstFrameDrawn = true;
+                firstFrameMs = SystemClock.uptimeMillis() - startMs;
+                // Listeners cannot be removed while the tree is drawing
+                decor.post(() -> decor.getViewTreeObserver().removeOnDrawListener(this));
+                if (deferredWork.isEmpty()) {
+                    finish();
+                } else {
+                    Looper.myQueue().addIdleHandler(idleHandler);
+                }
+            }
+        });
+    }
+
+    /**
+     * Drops deferred phases that have not run yet. Call from {@code onDestroy}.
+     */
+    void cancel() {
+        cancelled = true;
+        deferredPhases.clear();
+        deferredWork.clear();
+        Looper.myQueue().removeIdleHandler(idleHandler);
+    }
+
+    private void record(String phase, long durationMs) {
+        if (reported) {
+            return;
+        }
+        report.append(report.length() == 0 ? "" : ", ")
+                .append(phase).append(' ').append(durationMs).append(" ms");
+    }
+
+    private void finish() {
+        if (reported) {
+            return;
+        }
+        reported = true;
+        Log.i(TAG, String.format(Locale.US, "%s start: first frame %d ms, complete %d ms (%s)",
+                coldStart ? "Cold" : "Warm", firstFrameMs,
+                SystemClock.uptimeMillis() - startMs, report));
+        if (coldStart) {
+            activity.reportFullyDrawn();
+        }
+    }
+}
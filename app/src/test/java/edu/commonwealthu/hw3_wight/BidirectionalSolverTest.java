@@ -0,0 +1,100 @@
+package edu.commonwealthu.hw3_wight;
+
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Checks that {@link BidirectionalSolver} finds solutions as short as
+ * {@link PuzzleSolver}'s iterative-deepening A*, whether its frontiers meet,
+ * it was prepared ahead of time, or it runs out of memory and falls back.
+ *
+ * @author Ethan Wight
+ */
+public class BidirectionalSolverTest {
+
+    private static final long MEMORY_CAP = 64L * 1024 * 1024;
+    private static final int BOARDS = 40;
+
+    @Test
+    public void matchesIterativeDeepeningOnClassicBoards() {
+        Random random = new Random(1);
+        for (int[] size : new int[][] {{3, 3}, {3, 4}}) {
+            MoveTable table = PuzzleVariant.CLASSIC.table(size[0], size[1]);
+            BidirectionalSolver solver = new BidirectionalSolver(table, MEMORY_CAP);
+            assertSameLengths(table, solver, random, 10);
+            assertFalse(solver.usedFallback());
+        }
+    }
+
+    @Test
+    public void matchesIterativeDeepeningAfterPrepare() {
+        MoveTable table = PuzzleVariant.CLASSIC.table(3, 3);
+        BidirectionalSolver solver = new BidirectionalSolver(table, MEMORY_CAP);
+        solver.prepare();
+        assertTrue(solver.getBackwardDepth() > 0);
+        assertSameLengths(table, solver, new Random(2), 14);
+    }
+
+    @Test
+    public void matchesIterativeDeepeningOnOtherVariants() {
+        Random random = new Random(3);
+        for (PuzzleVariant variant : new PuzzleVariant[] {PuzzleVariant.SHIFTS, PuzzleVariant.TORUS}) {
+            MoveTable table = variant.table(3, 3);
+            assertSameLengths(table, new BidirectionalSolver(table, MEMORY_CAP), random, 8);
+        }
+    }
+
+    @Test
+    public void fallsBackWhenOverTheMemoryCap() {
+        MoveTable table = PuzzleVariant.CLASSIC.table(3, 4);
+        BidirectionalSolver solver = new BidirectionalSolver(table, 16 * 1024);
+        assertSameLengths(table, solver, new Random(4), 10);
+        assertTrue(solver.usedFallback());
+    }
+
+    @Test
+    public void returnsNullWhenDeeperThanTheLimit() {
+        MoveTable table = PuzzleVariant.CLASSIC.table(3, 3);
+        long board = table.solved();
+        for (int move : new int[] {0, 2, 4, 6, 1, 3}) {
+            board = table.apply(board, move);
+        }
+        int distance = new PuzzleSolver(table).distance(board, 20);
+        BidirectionalSolver solver = new BidirectionalSolver(table, MEMORY_CAP);
+        assertNull(solver.solve(board, distance - 1));
+        assertNotNull(solver.solve(board, distance));
+        assertEquals(0, solver.solve(table.solved(), 0).length);
+    }
+
+    /**
+     * Solves scrambled boards both ways and checks that the bidirectional
+     * solutions solve the board and are exactly as long as the optimal ones.
+     */
+    private static void assertSameLengths(MoveTable table, BidirectionalSolver solver,
+                                          Random random, int scrambleMoves) {
+        PuzzleSolver reference = new PuzzleSolver(table);
+        for (int i = 0; i < BOARDS; i++) {
+            long board = table.solved();
+            for (int m = 0; m < scrambleMoves; m++) {
+                board = table.apply(board, random.nextInt(table.moveCount()));
+            }
+            int[] expected = reference.solve(board, scrambleMoves);
+            int[] solution = solver.solve(board, scrambleMoves);
+            assertNotNull(expected);
+            assertNotNull(solution);
+            assertEquals(expected.length, solution.length);
+
+            for (int move : solution) {
+                board = table.apply(board, move);
+            }
+            assertEquals(table.solved(), board);
+        }
+    }
+}
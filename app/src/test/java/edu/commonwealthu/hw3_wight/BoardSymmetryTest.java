@@ -0,0 +1,95 @@
+package edu.commonwealthu.hw3_wight;
+
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Checks that every {@link BoardSymmetry} round-trips through its inverse,
+ * keeps the solved board solved, agrees on one canonical form for all the
+ * images of a board, and maps moves so that moving then transforming equals
+ * transforming then making the mapped move.
+ *
+ * @author Ethan Wight
+ */
+public class BoardSymmetryTest {
+
+    private static final int[][] SIZES = {{3, 3}, {3, 4}, {4, 3}, {4, 4}};
+    private static final int BOARDS = 200;
+
+    @Test
+    public void squareGridsHaveEightSymmetriesAndOthersFour() {
+        assertEquals(8, new BoardSymmetry(3, 3).size());
+        assertEquals(4, new BoardSymmetry(3, 4).size());
+        assertEquals(8, new BoardSymmetry(4, 4).size());
+    }
+
+    @Test
+    public void transformsRoundTripAndKeepSolvedSolved() {
+        Random random = new Random(1);
+        for (int[] size : SIZES) {
+            BoardSymmetry symmetry = new BoardSymmetry(size[0], size[1]);
+            long solved = PackedBoard.solved(size[0], size[1]);
+            for (int s = 0; s < symmetry.size(); s++) {
+                assertEquals(solved, symmetry.transform(solved, s));
+                for (int i = 0; i < BOARDS; i++) {
+                    long board = scramble(size[0], size[1], random);
+                    long image = symmetry.transform(board, s);
+                    assertEquals("symmetry " + s, board, symmetry.transform(image, symmetry.inverse(s)));
+                }
+            }
+        }
+    }
+
+    @Test
+    public void everyImageSharesTheCanonicalForm() {
+        Random random = new Random(2);
+        for (int[] size : SIZES) {
+            BoardSymmetry symmetry = new BoardSymmetry(size[0], size[1]);
+            for (int i = 0; i < BOARDS; i++) {
+                long board = scramble(size[0], size[1], random);
+                long canonical = symmetry.canonical(board);
+                assertEquals(canonical, symmetry.transform(board, symmetry.canonicalSymmetry(board)));
+                for (int s = 0; s < symmetry.size(); s++) {
+                    long image = symmetry.transform(board, s);
+                    assertEquals(canonical, symmetry.canonical(image));
+                    assertTrue(Long.compareUnsigned(canonical, image) <= 0);
+                }
+            }
+        }
+    }
+
+    @Test
+    public void mappedMovesCommuteWithTransforms() {
+        Random random = new Random(3);
+        for (int[] size : SIZES) {
+            int cols = size[1];
+            BoardSymmetry symmetry = new BoardSymmetry(size[0], cols);
+            int moveCount = PackedBoard.moveCount(size[0], cols);
+            for (int i = 0; i < BOARDS / 4; i++) {
+                long board = scramble(size[0], cols, random);
+                for (int s = 0; s < symmetry.size(); s++) {
+                    for (int move = 0; move < moveCount; move++) {
+                        long movedThenTransformed =
+                                symmetry.transform(PackedBoard.applyMove(board, cols, move), s);
+                        long transformedThenMoved = PackedBoard.applyMove(
+                                symmetry.transform(board, s), cols, symmetry.transformMove(move, s));
+                        assertEquals("symmetry " + s + " move " + move,
+                                movedThenTransformed, transformedThenMoved);
+                    }
+                }
+            }
+        }
+    }
+
+    private static long scramble(int rows, int cols, Random random) {
+        long board = PackedBoard.solved(rows, cols);
+        for (int i = 0; i < 60; i++) {
+            board = PackedBoard.applyMove(board, cols, random.nextInt(PackedBoard.moveCount(rows, cols)));
+        }
+        return board;
+    }
+}
@@ -0,0 +1,109 @@
+package edu.commonwealthu.hw3_wight;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.fail;
+
+/**
+ * Builds small tablebases with {@link EndgameTablebaseWriter}, opens them
+ * with {@link EndgameTablebase} and checks every answer against
+ * {@link PuzzleSolver}: boards in range get their exact distance and an
+ * optimal solution, boards out of range are reported as such.
+ *
+ * @author Ethan Wight
+ */
+public class EndgameTablebaseTest {
+
+    private static final int MAX_DEPTH = 6;
+    private static final int BOARDS = 200;
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void distancesAndSolutionsMatchTheSolver() throws IOException {
+        Random random = new Random(1);
+        for (int[] size : new int[][] {{3, 3}, {3, 4}, {4, 4}}) {
+            int rows = size[0];
+            int cols = size[1];
+            try (EndgameTablebase tablebase = build(rows, cols)) {
+                assertEquals(rows, tablebase.getRows());
+                assertEquals(cols, tablebase.getCols());
+                assertEquals(MAX_DEPTH, tablebase.getMaxDepth());
+
+                PuzzleSolver solver = new PuzzleSolver(rows, cols);
+                long solved = PackedBoard.solved(rows, cols);
+                int moveCount = PackedBoard.moveCount(rows, cols);
+                assertEquals(0, tablebase.distance(solved));
+                assertEquals(-1, tablebase.bestMove(solved));
+
+                for (int i = 0; i < BOARDS; i++) {
+                    long board = solved;
+                    for (int m = 1 + random.nextInt(MAX_DEPTH + 2); m > 0; m--) {
+                        board = PackedBoard.applyMove(board, cols, random.nextInt(moveCount));
+                    }
+                    int expected = solver.distance(board, MAX_DEPTH);
+                    assertEquals(expected, tablebase.distance(board));
+                    if (expected < 0) {
+                        assertNull(tablebase.solution(board));
+                        continue;
+                    }
+                    int[] solution = tablebase.solution(board);
+                    assertEquals(expected, solution.length);
+                    for (int move : solution) {
+                        board = PackedBoard.applyMove(board, cols, move);
+                    }
+                    assertEquals(solved, board);
+                }
+            }
+        }
+    }
+
+    @Test
+    public void sizeMatchesTheWriterCounts() throws IOException {
+        EndgameTablebaseWriter writer = new EndgameTablebaseWriter(3, 3, MAX_DEPTH);
+        writer.generate();
+        File file = new File(folder.getRoot(), "classes.rveg");
+        writer.write(file);
+
+        int total = 0;
+        for (int count : writer.getCounts()) {
+            total += count;
+        }
+        try (EndgameTablebase tablebase = EndgameTablebase.open(file)) {
+            assertEquals(total, tablebase.size());
+        }
+        assertEquals(EndgameTablebase.HEADER_SIZE + 10L * total, file.length());
+    }
+
+    @Test
+    public void rejectsFilesThatAreNotTablebases() throws IOException {
+        File file = new File(folder.getRoot(), "garbage.rveg");
+        try (FileOutputStream out = new FileOutputStream(file)) {
+            out.write(new byte[64]);
+        }
+        try {
+            EndgameTablebase.open(file).close();
+            fail("Opened a file of zeros");
+        } catch (IOException expected) {
+            // Wrong magic number
+        }
+    }
+
+    private EndgameTablebase build(int rows, int cols) throws IOException {
+        EndgameTablebaseWriter writer = new EndgameTablebaseWriter(rows, cols, MAX_DEPTH);
+        writer.generate();
+        File file = new File(folder.getRoot(), "revolution_" + rows + "x" + cols + ".rveg");
+        writer.write(file);
+        return EndgameTablebase.open(file);
+    }
+}
@@ -0,0 +1,77 @@
+package edu.commonwealthu.hw3_wight;
+
+import java.lang.management.ManagementFactory;
+import java.util.Locale;
+
+/**
+ * Measures wall time and heap allocation of code run on the calling thread.
+ * Allocation comes from the JVM's per-thread allocation counter, so it only
+ * counts what the measured code allocates itself, not other threads.
+ *
+ * @author Ethan Wight
+ */
+final class FlowMeter {
+
+    private static final com.sun.management.ThreadMXBean THREADS =
+            (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+    /**
+     * The cost of one measured run, or the mean over several.
+     */
+    static final class Sample {
+        final String name;
+        final double millis;
+        final long bytes;
+
+        Sample(String name, double millis, long bytes) {
+            this.name = name;
+            this.millis = millis;
+            this.bytes = bytes;
+        }
+
+        @Override
+        public String toString() {
+            return String.format(Locale.US, "%-28s %9.3f ms %10d bytes", name, millis, bytes);
+        }
+    }
+
+    private FlowMeter() {
+    }
+
+    /**
+     * Runs a flow once and reports what it cost.
+     *
+     * @param name Label for the report.
+     * @param flow The code to measure.
+     */
+    static Sample measure(String name, Runnable flow) {
+        return measure(name, 0, 1, flow);
+    }
+
+    /**
+     * Runs code repeatedly and reports the mean cost per run, after unmeasured
+     * warm-up runs so class loading and JIT compilation are not counted.
+     *
+     * @param name       Label for the report.
+     * @param warmups    Runs before measuring.
+     * @param iterations Measured runs.
+     * @param flow       The code to measure.
+     */
+    static Sample measure(String name, int warmups, int iterations, Runnable flow) {
+        for (int i = 0; i < warmups; i++) {
+            flow.run();
+        }
+        long threadId = Thread.currentThread().getId();
+        long bytesBefore = THREADS.getThreadAllocatedBytes(threadId);
+        long start = System.nanoTime();
+        for (int i = 0; i < iterations; i++) {
+            flow.run();
+        }
+        long elapsed = System.nanoTime() - start;
+        long bytes = THREADS.getThreadAllocatedBytes(threadId) - bytesBefore;
+
+        Sample sample = new Sample(name, elapsed / 1e6 / iterations, bytes / iterations);
+        System.out.println(sample);
+        return sample;
+    }
+}
@@ -0,0 +1,277 @@
+package edu.commonwealthu.hw3_wight;
+
+import android.content.DialogInterface;
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.os.Bundle;
+import android.os.Looper;
+import android.os.SystemClock;
+import android.view.MotionEvent;
+import android.widget.Button;
+
+import androidx.appcompat.app.AlertDialog;
+import androidx.test.core.app.ActivityScenario;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.annotation.Config;
+import org.robolectric.annotation.GraphicsMode;
+import org.robolectric.shadows.ShadowDialog;
+
+import java.time.Duration;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.robolectric.Shadows.shadowOf;
+
+/**
+ * Drives {@link MainActivity} through scripted sessions on the JVM and fails
+ * when a flow or a hot path exceeds its time or allocation budget. Runs
+ * headless under Robolectric; no device or emulator is needed.
+ * <p>
+ * Time budgets are loose enough for a slow CI machine; they catch
+ * regressions of an order of magnitude, not noise. Allocation budgets are
+ * tight, since allocation is deterministic.
+ *
+ * @author Ethan Wight
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 35)
+public class MainActivityPerfTest {
+
+    private static final int ROWS = 3;
+    private static final int COLS = 3;
+    private static final int ROTATIONS = 500;
+    private static final int NEW_GAMES = 20;
+
+    // Budgets for whole flows
+    private static final double NEW_GAME_MAX_MS = 250;
+    private static final double ROTATIONS_MAX_MS = 5000;
+    private static final double RECREATE_MAX_MS = 1000;
+
+    // Budgets per call of the hot paths
+    private static final double POPULATE_GRID_MAX_MS = 5;
+    private static final long POPULATE_GRID_MAX_BYTES = 16 * 1024;
+    private static final double UPDATE_GRID_MAX_MS = 2;
+    private static final long UPDATE_GRID_MAX_BYTES = 1024;
+    private static final double SAVE_STATE_MAX_MS = 20;
+    private static final long SAVE_STATE_MAX_BYTES = 128 * 1024;
+    // Per animated rotation, frames included, over the same frames on an idle board;
+    // what is left is the animator's own listener bookkeeping and Robolectric's frame scheduling
+    private static final double ANIMATED_ROTATION_MAX_MS = 50;
+    private static final long ANIMATED_ROTATION_MAX_BYTES = 4 * 1024;
+
+    private static final long ANIMATION_MS = 160;
+    private static final Duration FRAME = Duration.ofMillis(16);
+    private static final int FRAMES_PER_ROTATION = (int) (ANIMATION_MS / FRAME.toMillis()) + 2;
+
+    @Test
+    public void newGameFlow() {
+        try (ActivityScenario<MainActivity> scenario = launch()) {
+            scenario.onActivity(activity -> {
+                Button newGame = activity.findViewById(R.id.newGameButton);
+                FlowMeter.Sample sample = FlowMeter.measure("new game", 2, NEW_GAMES,
+                        newGame::performClick);
+                assertWithin(sample, NEW_GAME_MAX_MS, Long.MAX_VALUE);
+            });
+        }
+    }
+
+    @Test
+    public void rotationFlow() {
+        try (ActivityScenario<MainActivity> scenario = launch()) {
+            scenario.onActivity(activity -> {
+                BoardView board = activity.findViewById(R.id.board);
+                FlowMeter.Sample sample = FlowMeter.measure(ROTATIONS + " rotations",
+                        () -> rotate(activity, ROTATIONS));
+                settle();
+                assertFalse("Board still animating", board.isRotating());
+                assertWithin(sample, ROTATIONS_MAX_MS, Long.MAX_VALUE);
+            });
+        }
+    }
+
+    @Test
+    public void undoFlow() {
+        try (ActivityScenario<MainActivity> scenario = launch()) {
+            scenario.onActivity(activity -> {
+                Button undo = activity.findViewById(R.id.undoButton);
+                rotate(activity, 50);
+                FlowMeter.measure("undo all", () -> {
+                    while (undo.isEnabled()) {
+                        undo.performClick();
+                    }
+                });
+                settle();
+                assertFalse(undo.isEnabled());
+            });
+        }
+    }
+
+    @Test
+    public void surrenderToVictoryFlow() {
+        try (ActivityScenario<MainActivity> scenario = launch()) {
+            scenario.onActivity(activity -> {
+                BoardView board = activity.findViewById(R.id.board);
+                Button undo = activity.findViewById(R.id.undoButton);
+                rotate(activity, 10);
+
+                FlowMeter.measure("surrender and undo to win", () -> {
+                    shadowOf(activity).clickMenuItem(R.id.action_surrender);
+                    idle();
+                    AlertDialog dialog = (AlertDialog) ShadowDialog.getLatestDialog();
+                    dialog.getButton(DialogInterface.BUTTON_POSITIVE).performClick();
+                    idle();
+                    // Surrender mode lets undo walk back through the scramble to the solved board
+                    while (board.isEnabled() && undo.isEnabled()) {
+                        undo.performClick();
+                    }
+                });
+                settle();
+                assertFalse("Victory should lock the board", board.isEnabled());
+            });
+        }
+    }
+
+    @Test
+    public void deviceRotationFlow() {
+        try (ActivityScenario<MainActivity> scenario = launch()) {
+            scenario.onActivity(activity -> rotate(activity, 3));
+
+            for (String orientation : new String[] {"+land", "+port"}) {
+                RuntimeEnvironment.setQualifiers(orientation);
+                FlowMeter.Sample sample = FlowMeter.measure("recreate " + orientation,
+                        scenario::recreate);
+                assertWithin(sample, RECREATE_MAX_MS, Long.MAX_VALUE);
+            }
+
+            scenario.onActivity(activity -> {
+                Button undo = activity.findViewById(R.id.undoButton);
+                assertTrue("Move history should survive recreation", undo.isEnabled());
+            });
+        }
+    }
+
+    @Test
+    public void hotPathsStayWithinBudget() {
+        try (ActivityScenario<MainActivity> scenario = launch()) {
+            scenario.onActivity(activity -> {
+                rotate(activity, 5);
+                settle();
+
+                assertWithin(FlowMeter.measure("populateGrid", 50, 500,
+                        activity::populateGrid),
+                        POPULATE_GRID_MAX_MS, POPULATE_GRID_MAX_BYTES);
+                assertWithin(FlowMeter.measure("updateGridNumbers", 50, 500,
+                        activity::updateGridNumbers),
+                        UPDATE_GRID_MAX_MS, UPDATE_GRID_MAX_BYTES);
+                assertWithin(FlowMeter.measure("onSaveInstanceState", 20, 200,
+                        () -> activity.onSaveInstanceState(new Bundle())),
+                        SAVE_STATE_MAX_MS, SAVE_STATE_MAX_BYTES);
+            });
+        }
+    }
+
+    @Test
+    @GraphicsMode(GraphicsMode.Mode.NATIVE)
+    public void animatedRotationStaysWithinBudget() {
+        try (ActivityScenario<MainActivity> scenario = launch()) {
+            scenario.onActivity(activity -> {
+                BoardView board = activity.findViewById(R.id.board);
+                board.setRotationDuration(ANIMATION_MS);
+                Canvas canvas = new Canvas(Bitmap.createBitmap(
+                        board.getWidth(), board.getHeight(), Bitmap.Config.ARGB_8888));
+                int[] rotation = new int[1];
+
+                // Every frame is drawn by hand so the board's onDraw is counted too
+                FlowMeter.Sample idle = FlowMeter.measure("idle frames", 20, 100,
+                        () -> drawFrames(board, canvas));
+                FlowMeter.Sample animated = FlowMeter.measure("animated rotation", 20, 100, () -> {
+                    int anchor = rotation[0]++ % ((ROWS - 1) * (COLS - 1));
+                    board.enqueueRotation(anchor / (COLS - 1), anchor % (COLS - 1), anchor % 2 == 0);
+                    drawFrames(board, canvas);
+                });
+                assertFalse("Board still animating", board.isRotating());
+
+                assertWithin(new FlowMeter.Sample("rotation over idle",
+                                animated.millis - idle.millis, animated.bytes - idle.bytes),
+                        ANIMATED_ROTATION_MAX_MS, ANIMATED_ROTATION_MAX_BYTES);
+            });
+        }
+    }
+
+    private static ActivityScenario<MainActivity> launch() {
+        ActivityScenario<MainActivity> scenario = ActivityScenario.launch(MainActivity.class);
+        // Let the first layout pass and the background preload finish
+        idle();
+        return scenario;
+    }
+
+    /**
+     * Makes rotations the way a player does: tap a tile to select its subgrid,
+     * then press a rotate button. Starts a new game if one is solved by chance.
+     */
+    private static void rotate(MainActivity activity, int count) {
+        BoardView board = activity.findViewById(R.id.board);
+        Button left = activity.findViewById(R.id.rotateLeftButton);
+        Button right = activity.findViewById(R.id.rotateRightButton);
+        Button newGame = activity.findViewById(R.id.newGameButton);
+
+        for (int i = 0; i < count; i++) {
+            if (!board.isEnabled()) {
+                newGame.performClick();
+            }
+            int anchor = i % ((ROWS - 1) * (COLS - 1));
+            tapTile(board, anchor / (COLS - 1), anchor % (COLS - 1));
+            (i % 3 == 0 ? right : left).performClick();
+        }
+    }
+
+    /**
+     * Sends a tap to the center of a tile, using the same geometry as the board.
+     */
+    private static void tapTile(BoardView board, int row, int col) {
+        int contentWidth = board.getWidth() - board.getPaddingLeft() - board.getPaddingRight();
+        int contentHeight = board.getHeight() - board.getPaddingTop() - board.getPaddingBottom();
+        int cell = Math.min(contentWidth / COLS, contentHeight / ROWS);
+        float x = board.getPaddingLeft() + col * cell + cell / 2f;
+        float y = board.getPaddingTop() + row * cell + cell / 2f;
+
+        long now = SystemClock.uptimeMillis();
+        MotionEvent down = MotionEvent.obtain(now, now, MotionEvent.ACTION_DOWN, x, y, 0);
+        MotionEvent up = MotionEvent.obtain(now, now, MotionEvent.ACTION_UP, x, y, 0);
+        board.dispatchTouchEvent(down);
+        board.dispatchTouchEvent(up);
+        down.recycle();
+        up.recycle();
+    }
+
+    private static void idle() {
+        shadowOf(Looper.getMainLooper()).idle();
+    }
+
+    /**
+     * Advances the clock until every queued rotation has finished animating.
+     */
+    private static void settle() {
+        shadowOf(Looper.getMainLooper()).idleFor(Duration.ofSeconds(30));
+    }
+
+    /**
+     * Advances the clock one frame at a time for as long as a rotation
+     * animates, drawing the board after each frame.
+     */
+    private static void drawFrames(BoardView board, Canvas canvas) {
+        for (int i = 0; i < FRAMES_PER_ROTATION; i++) {
+            shadowOf(Looper.getMainLooper()).idleFor(FRAME);
+            board.draw(canvas);
+        }
+    }
+
+    private static void assertWithin(FlowMeter.Sample sample, double maxMillis, long maxBytes) {
+        assertTrue(sample + " exceeds " + maxMillis + " ms", sample.millis <= maxMillis);
+        assertTrue(sample + " exceeds " + maxBytes + " bytes", sample.bytes <= maxBytes);
+    }
+}
@@ -0,0 +1,148 @@
+package edu.commonwealthu.hw3_wight;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Checks {@link MoveTable} against {@link PackedBoard} on the classic rules,
+ * and checks every {@link PuzzleVariant} against a plain breadth-first
+ * search: its moves undo each other, its heuristic never overestimates and
+ * {@link PuzzleSolver} finds solutions exactly as long as the search does.
+ *
+ * @author Ethan Wight
+ */
+public class MoveTableTest {
+
+    private static final int[][] SIZES = {{3, 3}, {3, 4}, {4, 4}};
+    private static final int BFS_DEPTH = 5;
+    private static final int SAMPLES_PER_DEPTH = 20;
+
+    @Test
+    public void classicTableMatchesPackedBoard() {
+        Random random = new Random(1);
+        for (int[] size : SIZES) {
+            int rows = size[0];
+            int cols = size[1];
+            MoveTable table = PuzzleVariant.CLASSIC.table(rows, cols);
+            assertEquals(PackedBoard.moveCount(rows, cols), table.moveCount());
+            assertEquals(PackedBoard.solved(rows, cols), table.solved());
+
+            long board = table.solved();
+            for (int i = 0; i < 200; i++) {
+                for (int move = 0; move < table.moveCount(); move++) {
+                    assertEquals(PackedBoard.applyMove(board, cols, move), table.apply(board, move));
+                    assertEquals(PackedBoard.inverse(move), table.inverse(move));
+                }
+                assertEquals(PackedBoard.heuristic(board, rows, cols), table.heuristic(board));
+                board = table.apply(board, random.nextInt(table.moveCount()));
+            }
+        }
+    }
+
+    @Test
+    public void movesAlongRecoversTheMoves() {
+        MoveTable table = PuzzleVariant.CLASSIC.table(3, 4);
+        Random random = new Random(2);
+        int[] moves = new int[30];
+        long[] path = new long[moves.length + 1];
+        path[0] = table.solved();
+        for (int i = 0; i < moves.length; i++) {
+            moves[i] = random.nextInt(table.moveCount());
+            path[i + 1] = table.apply(path[i], moves[i]);
+        }
+        assertArrayEquals(moves, table.movesAlong(path));
+
+        path[5] = path[0];
+        assertEquals(-1, table.movesAlong(path)[5]);
+    }
+
+    @Test
+    public void everyVariantUndoesAndRepeatsItsMoves() {
+        Random random = new Random(3);
+        for (PuzzleVariant variant : PuzzleVariant.values()) {
+            for (int[] size : SIZES) {
+                MoveTable table = variant.table(size[0], size[1]);
+                long board = scramble(table, random, 40);
+                for (int move = 0; move < table.moveCount(); move++) {
+                    String label = variant + " move " + move;
+                    assertEquals(label, board, table.apply(table.apply(board, move), table.inverse(move)));
+                    long repeated = board;
+                    for (int i = 0; i < table.order(move); i++) {
+                        repeated = table.apply(repeated, move);
+                    }
+                    assertEquals(label, board, repeated);
+                }
+            }
+        }
+    }
+
+    @Test
+    public void solverMatchesBreadthFirstSearchForEveryVariant() {
+        Random random = new Random(4);
+        for (PuzzleVariant variant : PuzzleVariant.values()) {
+            MoveTable table = variant.table(3, 3);
+            PuzzleSolver solver = new PuzzleSolver(table);
+            List<List<Long>> levels = levels(table, BFS_DEPTH);
+
+            for (int depth = 0; depth < levels.size(); depth++) {
+                List<Long> level = levels.get(depth);
+                for (int i = 0; i < SAMPLES_PER_DEPTH; i++) {
+                    long board = level.get(random.nextInt(level.size()));
+                    String label = variant + " at depth " + depth;
+                    assertTrue(label + " heuristic overestimates", table.heuristic(board) <= depth);
+
+                    int[] solution = solver.solve(board, BFS_DEPTH);
+                    assertNotNull(label, solution);
+                    assertEquals(label, depth, solution.length);
+                    for (int move : solution) {
+                        board = table.apply(board, move);
+                    }
+                    assertEquals(label, table.solved(), board);
+                }
+            }
+        }
+    }
+
+    /**
+     * Returns the boards at each distance from solved, up to maxDepth.
+     */
+    private static List<List<Long>> levels(MoveTable table, int maxDepth) {
+        List<List<Long>> levels = new ArrayList<>();
+        Set<Long> seen = new HashSet<>();
+        List<Long> frontier = new ArrayList<>();
+        frontier.add(table.solved());
+        seen.add(table.solved());
+        while (!frontier.isEmpty() && levels.size() <= maxDepth) {
+            levels.add(frontier);
+            List<Long> next = new ArrayList<>();
+            for (long board : frontier) {
+                for (int move = 0; move < table.moveCount(); move++) {
+                    long neighbor = table.apply(board, move);
+                    if (seen.add(neighbor)) {
+                        next.add(neighbor);
+                    }
+                }
+            }
+            frontier = next;
+        }
+        return levels;
+    }
+
+    private static long scramble(MoveTable table, Random random, int moves) {
+        long board = table.solved();
+        for (int i = 0; i < moves; i++) {
+            board = table.apply(board, random.nextInt(table.moveCount()));
+        }
+        return board;
+    }
+}
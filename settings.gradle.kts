@@ -22,3 +22,4 @@ dependencyResolutionManagement {
 
 rootProject.name = "Revolution-App"
 include(":app")
+include(":tools")
@@ -0,0 +1,43 @@
+// Offline command-line tools; plain Java, never packaged into the app
+plugins {
+    java
+    application
+}
+
+java {
+    sourceCompatibility = JavaVersion.VERSION_11
+    targetCompatibility = JavaVersion.VERSION_11
+}
+
+sourceSets {
+    main {
+        java {
+            // The tools work on the app's packed boards, so compile those sources here too
+            srcDir("../app/src/main/java")
+            include(
+                "edu/commonwealthu/hw3_wight/PackedBoard.java",
+                "edu/commonwealthu/hw3_wight/StateCensus.java"
+            )
+        }
+    }
+    test {
+        java {
+            // The census is checked against the app's solver
+            srcDir("../app/src/main/java")
+            include(
+                "edu/commonwealthu/hw3_wight/MoveTable.java",
+                "edu/commonwealthu/hw3_wight/PuzzleVariant.java",
+                "edu/commonwealthu/hw3_wight/PuzzleSolver.java",
+                "edu/commonwealthu/hw3_wight/*Test.java"
+            )
+        }
+    }
+}
+
+application {
+    mainClass.set("edu.commonwealthu.hw3_wight.StateCensus")
+}
+
+dependencies {
+    testImplementation(libs.junit)
+}
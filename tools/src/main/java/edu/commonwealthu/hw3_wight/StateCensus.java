@@ -0,0 +1,510 @@
+package edu.commonwealthu.hw3_wight;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Offline census of a whole board size: a breadth-first search from the solved
+ * board over every reachable permutation, giving the exact number of boards at
+ * each optimal distance and the diameter of the puzzle.
+ * <p>
+ * Every permutation of the tiles is identified by its rank (its position in
+ * lexicographic order), and the search keeps two bits per rank in a
+ * memory-mapped file: 3 for unvisited, otherwise the distance modulo 3. That is
+ * enough to tell the current level from the previous and next ones, so a 3x4
+ * board (12! boards) needs about 120 MB of disk and no heap. Each level is
+ * expanded by several threads, pushing moves out of the frontier while it is
+ * small and pulling unvisited boards toward it once it is large. After every
+ * level the table is flushed and a checkpoint written, so an interrupted run
+ * resumes from the last finished level.
+ * <p>
+ * A finished table doubles as a perfect strategy: a neighbor whose stored value
+ * is one less (mod 3) is exactly one move closer to solved, see
+ * {@link #bestMove(long)}.
+ * <p>
+ * Usage: {@code StateCensus <rows> <cols> <tableFile> [threads]}
+ *
+ * @author Ethan Wight
+ */
+public final class StateCensus implements Closeable {
+
+    /** Largest board the census supports: 12! boards fit in a 120 MB table. */
+    public static final int MAX_TILES = 12;
+
+    /**
+     * Notified after every finished level.
+     */
+    public interface ProgressListener {
+        void onLevel(int depth, long count, long elapsedMs);
+    }
+
+    private static final int CHECKPOINT_MAGIC = 0x52564353; // "RVCS"
+    private static final int CHECKPOINT_VERSION = 1;
+    private static final int UNVISITED = 3;
+    private static final int SEGMENT_SHIFT = 30;
+    private static final long SEGMENT_MASK = (1L << SEGMENT_SHIFT) - 1;
+    // States per work unit; a multiple of 4 so no two units share a byte
+    private static final long CHUNK_STATES = 1L << 18;
+    private static final int LOCK_STRIPES = 1 << 12;
+
+    // COUNT_CODE[code][b]: how many of the four 2-bit fields of byte b hold code
+    private static final byte[][] COUNT_CODE = new byte[4][256];
+
+    static {
+        for (int b = 0; b < 256; b++) {
+            for (int field = 0; field < 4; field++) {
+                COUNT_CODE[(b >>> (2 * field)) & 3][b]++;
+            }
+        }
+    }
+
+    private final int rows;
+    private final int cols;
+    private final int tiles;
+    private final int moveCount;
+    private final long stateCount;
+    private final long[] factorials;
+    private final File checkpointFile;
+    private final int threads;
+    private final MappedByteBuffer[] segments;
+    private final Object[] locks = new Object[LOCK_STRIPES];
+
+    // levelCounts[d] is the number of boards at distance d, for every finished level
+    private long[] levelCounts;
+    private boolean finished;
+
+    /**
+     * Opens or creates the table for a board size. An existing table with a
+     * matching checkpoint is resumed; anything else is started over.
+     *
+     * @param rows      The number of rows.
+     * @param cols      The number of columns.
+     * @param tableFile Where to keep the table; a checkpoint is kept next to it.
+     * @param threads   Worker threads used to expand each level.
+     * @throws IOException If the table cannot be created or mapped.
+     */
+    public StateCensus(int rows, int cols, File tableFile, int threads) throws IOException {
+        if (rows < 2 || cols < 2 || rows * cols > MAX_TILES) {
+            throw new IllegalArgumentException("Unsupported board size: " + rows + "x" + cols);
+        }
+        this.rows = rows;
+        this.cols = cols;
+        this.tiles = rows * cols;
+        this.moveCount = PackedBoard.moveCount(rows, cols);
+        this.factorials = new long[tiles + 1];
+        factorials[0] = 1;
+        for (int i = 1; i <= tiles; i++) {
+            factorials[i] = factorials[i - 1] * i;
+        }
+        this.stateCount = factorials[tiles];
+        this.checkpointFile = new File(tableFile.getPath() + ".ckpt");
+        this.threads = Math.max(1, threads);
+        for (int i = 0; i < LOCK_STRIPES; i++) {
+            locks[i] = new Object();
+        }
+
+        long bytes = (stateCount + 3) / 4;
+        boolean resume = readCheckpoint() && tableFile.length() == bytes;
+        try (RandomAccessFile file = new RandomAccessFile(tableFile, "rw")) {
+            file.setLength(bytes);
+            FileChannel channel = file.getChannel();
+            int segmentCount = (int) ((bytes + SEGMENT_MASK) >>> SEGMENT_SHIFT);
+            segments = new MappedByteBuffer[segmentCount];
+            for (int s = 0; s < segmentCount; s++) {
+                long start = (long) s << SEGMENT_SHIFT;
+                segments[s] = channel.map(FileChannel.MapMode.READ_WRITE, start,
+                        Math.min(1L << SEGMENT_SHIFT, bytes - start));
+            }
+        }
+        if (!resume) {
+            start();
+        }
+    }
+
+    /**
+     * Runs the search until every reachable board has been found, resuming
+     * after the last checkpointed level.
+     *
+     * @param listener Notified after each level, or null.
+     * @return The number of boards at each distance from solved.
+     * @throws IOException          If the table or checkpoint cannot be written.
+     * @throws InterruptedException If interrupted; the last finished level is kept.
+     */
+    public long[] run(ProgressListener listener) throws IOException, InterruptedException {
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        try {
+            while (!finished) {
+                long started = System.currentTimeMillis();
+                int depth = levelCounts.length - 1;
+                long frontier = levelCounts[depth];
+                long unvisited = stateCount - total(levelCounts);
+
+                // Push while the frontier's moves are fewer than the boards left to find
+                if (frontier * moveCount < unvisited) {
+                    parallel(pool, (from, to) -> push(depth, from, to));
+                } else {
+                    parallel(pool, (from, to) -> pull(depth, from, to));
+                }
+
+                long found = countLevel(pool, depth + 1);
+                if (found == 0) {
+                    finished = true;
+                } else {
+                    levelCounts = Arrays.copyOf(levelCounts, depth + 2);
+                    levelCounts[depth + 1] = found;
+                }
+                checkpoint();
+                if (listener != null && !finished) {
+                    listener.onLevel(depth + 1, found, System.currentTimeMillis() - started);
+                }
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+        return getDistribution();
+    }
+
+    /**
+     * Returns the number of boards at each distance found so far.
+     */
+    public long[] getDistribution() {
+        return levelCounts.clone();
+    }
+
+    /**
+     * Returns the largest distance from solved found so far; the diameter once
+     * the census is finished.
+     */
+    public int getDiameter() {
+        return levelCounts.length - 1;
+    }
+
+    public boolean isFinished() {
+        return finished;
+    }
+
+    /**
+     * Returns a move one step closer to solved along an optimal path.
+     * Only valid once the census is finished.
+     *
+     * @param board A packed board of this size.
+     * @return The encoded move (see {@link PackedBoard}), or -1 if the board is
+     *         solved or unreachable.
+     */
+    public int bestMove(long board) {
+        int code = code(rank(board));
+        if (code == UNVISITED || board == PackedBoard.solved(rows, cols)) {
+            return -1;
+        }
+        int closer = (code + 2) % 3;
+        for (int move = 0; move < moveCount; move++) {
+            if (code(rank(PackedBoard.applyMove(board, cols, move))) == closer) {
+                return move;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Returns the optimal number of moves to solve a board, by following
+     * {@link #bestMove(long)}. Only valid once the census is finished.
+     *
+     * @param board A packed board of this size.
+     * @return The distance, or -1 if the board is unreachable.
+     */
+    public int distance(long board) {
+        if (code(rank(board)) == UNVISITED) {
+            return -1;
+        }
+        int steps = 0;
+        for (int move = bestMove(board); move >= 0; move = bestMove(board)) {
+            board = PackedBoard.applyMove(board, cols, move);
+            steps++;
+        }
+        return steps;
+    }
+
+    /**
+     * Returns the lexicographic rank of a board's tile permutation.
+     *
+     * @param board A packed board of this size.
+     * @return A rank from 0 (solved) to tiles! - 1.
+     */
+    public long rank(long board) {
+        long rank = 0;
+        int used = 0;
+        for (int i = 0; i < tiles; i++) {
+            int tile = PackedBoard.tileAt(board, i);
+            int smallerUnused = tile - Integer.bitCount(used & ((1 << tile) - 1));
+            rank += smallerUnused * factorials[tiles - 1 - i];
+            used |= 1 << tile;
+        }
+        return rank;
+    }
+
+    /**
+     * Returns the board with a given rank.
+     *
+     * @param rank A rank from 0 to tiles! - 1.
+     * @return The packed board.
+     */
+    public long unrank(long rank) {
+        long board = 0;
+        int used = 0;
+        for (int i = 0; i < tiles; i++) {
+            long f = factorials[tiles - 1 - i];
+            int skip = (int) (rank / f);
+            rank %= f;
+            int tile = 0;
+            // The (skip)th tile not used yet
+            while (true) {
+                if ((used & (1 << tile)) == 0) {
+                    if (skip == 0) {
+                        break;
+                    }
+                    skip--;
+                }
+                tile++;
+            }
+            used |= 1 << tile;
+            board |= ((long) tile) << (4 * i);
+        }
+        return board;
+    }
+
+    @Override
+    public void close() {
+        // Mapped buffers are released with the census; make sure the table is on disk
+        for (MappedByteBuffer segment : segments) {
+            segment.force();
+        }
+    }
+
+    /**
+     * Resets the table to only the solved board.
+     */
+    private void start() throws IOException {
+        for (MappedByteBuffer segment : segments) {
+            for (int i = 0; i < segment.capacity(); i++) {
+                segment.put(i, (byte) 0xFF);
+            }
+        }
+        setCode(rank(PackedBoard.solved(rows, cols)), 0);
+        levelCounts = new long[] {1};
+        finished = false;
+        checkpoint();
+    }
+
+    /**
+     * Marks every unvisited neighbor of the frontier boards in [from, to).
+     */
+    private void push(int depth, long from, long to) {
+        int frontierCode = depth % 3;
+        int nextCode = (depth + 1) % 3;
+        for (long state = from; state < to; state++) {
+            if (code(state) != frontierCode) {
+                continue;
+            }
+            long board = unrank(state);
+            for (int move = 0; move < moveCount; move++) {
+                long neighbor = rank(PackedBoard.applyMove(board, cols, move));
+                if (code(neighbor) == UNVISITED) {
+                    // Other workers may be writing other fields of the same byte
+                    synchronized (locks[(int) ((neighbor >>> 2) & (LOCK_STRIPES - 1))]) {
+                        if (code(neighbor) == UNVISITED) {
+                            setCode(neighbor, nextCode);
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Marks every unvisited board in [from, to) that has a neighbor in the
+     * frontier. Only this worker writes to the range, so no locking is needed.
+     */
+    private void pull(int depth, long from, long to) {
+        int frontierCode = depth % 3;
+        int nextCode = (depth + 1) % 3;
+        for (long state = from; state < to; state++) {
+            if (code(state) != UNVISITED) {
+                continue;
+            }
+            long board = unrank(state);
+            for (int move = 0; move < moveCount; move++) {
+                if (code(rank(PackedBoard.applyMove(board, cols, move))) == frontierCode) {
+                    setCode(state, nextCode);
+                    break;
+                }
+            }
+        }
+    }
+
+    /**
+     * Counts the boards at a new depth. The table cannot tell them apart from
+     * boards three levels shallower, so those known counts are subtracted,
+     * which also makes a level re-run after a crash count correctly.
+     */
+    private long countLevel(ExecutorService pool, int depth) throws InterruptedException {
+        int code = depth % 3;
+        AtomicLong matches = new AtomicLong();
+        parallel(pool, (from, to) -> {
+            long count = 0;
+            for (long b = from >>> 2; b < (to + 3) >>> 2; b++) {
+                count += COUNT_CODE[code][byteAt(b) & 0xFF];
+            }
+            matches.addAndGet(count);
+        });
+        // Padding fields in the last byte stay unvisited, so they are never counted
+        long found = matches.get();
+        for (int d = depth - 3; d >= 0; d -= 3) {
+            found -= levelCounts[d];
+        }
+        return found;
+    }
+
+    private interface RangeTask {
+        void run(long from, long to);
+    }
+
+    /**
+     * Runs a task over every state in chunks handed out to the workers on demand.
+     */
+    private void parallel(ExecutorService pool, RangeTask task) throws InterruptedException {
+        AtomicLong next = new AtomicLong();
+        List<Future<?>> futures = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            futures.add(pool.submit(() -> {
+                long from;
+                while (!Thread.currentThread().isInterrupted()
+                        && (from = next.getAndAdd(CHUNK_STATES)) < stateCount) {
+                    task.run(from, Math.min(stateCount, from + CHUNK_STATES));
+                }
+            }));
+        }
+        for (Future<?> future : futures) {
+            try {
+                future.get();
+            } catch (ExecutionException e) {
+                throw new IllegalStateException("Census worker failed", e.getCause());
+            }
+        }
+    }
+
+    private byte byteAt(long index) {
+        return segments[(int) (index >>> SEGMENT_SHIFT)].get((int) (index & SEGMENT_MASK));
+    }
+
+    private int code(long state) {
+        return (byteAt(state >>> 2) >>> (2 * (int) (state & 3))) & 3;
+    }
+
+    private void setCode(long state, int code) {
+        long index = state >>> 2;
+        int shift = 2 * (int) (state & 3);
+        MappedByteBuffer segment = segments[(int) (index >>> SEGMENT_SHIFT)];
+        int offset = (int) (index & SEGMENT_MASK);
+        segment.put(offset, (byte) ((segment.get(offset) & ~(3 << shift)) | (code << shift)));
+    }
+
+    private static long total(long[] counts) {
+        long sum = 0;
+        for (long count : counts) {
+            sum += count;
+        }
+        return sum;
+    }
+
+    /**
+     * Flushes the table, then atomically replaces the checkpoint, so the
+     * checkpoint never describes levels that are not on disk.
+     */
+    private void checkpoint() throws IOException {
+        for (MappedByteBuffer segment : segments) {
+            segment.force();
+        }
+        File temp = new File(checkpointFile.getPath() + ".tmp");
+        try (DataOutputStream out = new DataOutputStream(
+                new BufferedOutputStream(new FileOutputStream(temp)))) {
+            out.writeInt(CHECKPOINT_MAGIC);
+            out.writeInt(CHECKPOINT_VERSION);
+            out.writeInt(rows);
+            out.writeInt(cols);
+            out.writeBoolean(finished);
+            out.writeInt(levelCounts.length);
+            for (long count : levelCounts) {
+                out.writeLong(count);
+            }
+        }
+        if (!temp.renameTo(checkpointFile)) {
+            throw new IOException("Could not replace " + checkpointFile);
+        }
+    }
+
+    /**
+     * Loads the checkpoint, if there is one for this board size.
+     *
+     * @return True if the table can be resumed.
+     */
+    private boolean readCheckpoint() {
+        if (!checkpointFile.exists()) {
+            return false;
+        }
+        try (DataInputStream in = new DataInputStream(
+                new BufferedInputStream(new FileInputStream(checkpointFile)))) {
+            if (in.readInt() != CHECKPOINT_MAGIC || in.readInt() != CHECKPOINT_VERSION
+                    || in.readInt() != rows || in.readInt() != cols) {
+                return false;
+            }
+            finished = in.readBoolean();
+            levelCounts = new long[in.readInt()];
+            for (int d = 0; d < levelCounts.length; d++) {
+                levelCounts[d] = in.readLong();
+            }
+            return levelCounts.length > 0;
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    public static void main(String[] args) throws IOException, InterruptedException {
+        if (args.length < 3 || args.length > 4) {
+            System.err.println("Usage: StateCensus <rows> <cols> <tableFile> [threads]");
+            System.exit(1);
+        }
+        int rows = Integer.parseInt(args[0]);
+        int cols = Integer.parseInt(args[1]);
+        int threads = args.length == 4 ? Integer.parseInt(args[3])
+                : Runtime.getRuntime().availableProcessors();
+
+        try (StateCensus census = new StateCensus(rows, cols, new File(args[2]), threads)) {
+            if (census.getDiameter() > 0 || census.isFinished()) {
+                System.out.println("Resuming after depth " + census.getDiameter());
+            }
+            long[] distribution = census.run((depth, count, elapsedMs) ->
+                    System.out.println("Depth " + depth + ": " + count + " (" + elapsedMs + " ms)"));
+            System.out.println("Boards per depth: " + Arrays.toString(distribution));
+            System.out.println("Reachable: " + total(distribution) + " of " + census.stateCount);
+            System.out.println("Diameter: " + census.getDiameter());
+        }
+    }
+}
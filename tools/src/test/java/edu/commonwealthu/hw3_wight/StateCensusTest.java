@@ -0,0 +1,123 @@
+package edu.commonwealthu.hw3_wight;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Runs {@link StateCensus} on small boards and checks its level counts
+ * against a plain breadth-first search, its ranking against itself, and its
+ * distances against {@link PuzzleSolver}. Also checks that a finished table
+ * is reopened from its checkpoint rather than searched again.
+ *
+ * @author Ethan Wight
+ */
+public class StateCensusTest {
+
+    private static final int THREADS = 2;
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void smallBoardsMatchBreadthFirstSearch() throws Exception {
+        for (int[] size : new int[][] {{2, 2}, {2, 3}}) {
+            File table = new File(folder.getRoot(), "census_" + size[0] + "x" + size[1] + ".bin");
+            try (StateCensus census = new StateCensus(size[0], size[1], table, THREADS)) {
+                long[] distribution = census.run(null);
+                assertArrayEquals(levelCounts(size[0], size[1]), distribution);
+                assertTrue(census.isFinished());
+                assertEquals(distribution.length - 1, census.getDiameter());
+            }
+        }
+    }
+
+    @Test
+    public void threeByThreeHasDiameterElevenAndOptimalMoves() throws Exception {
+        File table = new File(folder.getRoot(), "census_3x3.bin");
+        try (StateCensus census = new StateCensus(3, 3, table, THREADS)) {
+            long[] distribution = census.run(null);
+            long total = 0;
+            for (long count : distribution) {
+                total += count;
+            }
+            assertEquals(362880, total);
+            assertEquals(11, census.getDiameter());
+
+            PuzzleSolver solver = new PuzzleSolver(3, 3);
+            Random random = new Random(1);
+            for (int i = 0; i < 30; i++) {
+                long board = census.unrank((long) (random.nextDouble() * total));
+                assertEquals(solver.distance(board, 11), census.distance(board));
+            }
+        }
+    }
+
+    @Test
+    public void rankAndUnrankRoundTrip() throws Exception {
+        File table = new File(folder.getRoot(), "census_rank.bin");
+        try (StateCensus census = new StateCensus(2, 3, table, 1)) {
+            assertEquals(0, census.rank(PackedBoard.solved(2, 3)));
+            for (long rank = 0; rank < 720; rank++) {
+                assertEquals(rank, census.rank(census.unrank(rank)));
+            }
+        }
+    }
+
+    @Test
+    public void finishedTableIsResumedFromItsCheckpoint() throws Exception {
+        File table = new File(folder.getRoot(), "census_resume.bin");
+        long[] first;
+        try (StateCensus census = new StateCensus(2, 3, table, THREADS)) {
+            first = census.run(null);
+        }
+        try (StateCensus census = new StateCensus(2, 3, table, THREADS)) {
+            assertTrue(census.isFinished());
+            assertArrayEquals(first, census.getDistribution());
+            assertArrayEquals(first, census.run((depth, count, elapsedMs) -> {
+                throw new AssertionError("Level " + depth + " searched again");
+            }));
+        }
+    }
+
+    /**
+     * Counts the boards at each distance from solved with a plain breadth-first search.
+     */
+    private static long[] levelCounts(int rows, int cols) {
+        int moveCount = PackedBoard.moveCount(rows, cols);
+        List<Long> counts = new ArrayList<>();
+        Set<Long> seen = new HashSet<>();
+        List<Long> frontier = new ArrayList<>();
+        frontier.add(PackedBoard.solved(rows, cols));
+        seen.add(frontier.get(0));
+        while (!frontier.isEmpty()) {
+            counts.add((long) frontier.size());
+            List<Long> next = new ArrayList<>();
+            for (long board : frontier) {
+                for (int move = 0; move < moveCount; move++) {
+                    long neighbor = PackedBoard.applyMove(board, cols, move);
+                    if (seen.add(neighbor)) {
+                        next.add(neighbor);
+                    }
+                }
+            }
+            frontier = next;
+        }
+        long[] result = new long[counts.size()];
+        for (int d = 0; d < result.length; d++) {
+            result[d] = counts.get(d);
+        }
+        return result;
+    }
+}